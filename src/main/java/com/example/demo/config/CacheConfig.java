@@ -0,0 +1,68 @@
+package com.example.demo.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caffeine caches in front of the rarely changing lookups. Each cache is
+ * bounded in size and expires entries after a TTL; stats are recorded so
+ * hit/miss/eviction counts show up under /actuator/metrics/cache.* and
+ * /actuator/caches. Set spring.cache.type=none to switch caching off.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String MOVIES = "movies";
+    public static final String MOVIES_BY_GENRE = "moviesByGenre";
+    public static final String USERS = "users";
+    public static final String USERS_BY_USERNAME = "usersByUsername";
+    public static final String RATING_SUMMARIES = "ratingSummaries";
+
+    @Value("${cache.entities.maximum-size:10000}")
+    private long entityMaximumSize;
+
+    @Value("${cache.entities.expire-after-write:10m}")
+    private Duration entityTtl;
+
+    @Value("${cache.genre-lists.maximum-size:200}")
+    private long genreListMaximumSize;
+
+    // Korter dan de entities: rating totalen in deze lijsten worden niet per rating ge-evict
+    @Value("${cache.genre-lists.expire-after-write:1m}")
+    private Duration genreListTtl;
+
+    @Value("${cache.rating-summaries.maximum-size:10000}")
+    private long ratingSummaryMaximumSize;
+
+    // Ook niet per rating ge-evict: bij een populaire film zou elke rating de histogram query opnieuw laten lopen
+    @Value("${cache.rating-summaries.expire-after-write:30s}")
+    private Duration ratingSummaryTtl;
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> caffeineCaches() {
+        return cacheManager -> {
+            cacheManager.registerCustomCache(MOVIES, cache(entityMaximumSize, entityTtl));
+            cacheManager.registerCustomCache(USERS, cache(entityMaximumSize, entityTtl));
+            cacheManager.registerCustomCache(USERS_BY_USERNAME, cache(entityMaximumSize, entityTtl));
+            cacheManager.registerCustomCache(MOVIES_BY_GENRE, cache(genreListMaximumSize, genreListTtl));
+            cacheManager.registerCustomCache(RATING_SUMMARIES, cache(ratingSummaryMaximumSize, ratingSummaryTtl));
+        };
+    }
+
+    private Cache<Object, Object> cache(long maximumSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
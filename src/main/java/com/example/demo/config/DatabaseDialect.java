@@ -0,0 +1,30 @@
+package com.example.demo.config;
+
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Tells hand-written SQL which database it is talking to. Production runs on
+ * PostgreSQL and uses its native features (ON CONFLICT, pg_trgm, ...); the test
+ * profile runs on H2, so those queries keep a portable fallback.
+ */
+@Component
+public class DatabaseDialect {
+
+    private final boolean postgres;
+
+    public DatabaseDialect(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            this.postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not determine database type", e);
+        }
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+}
@@ -1,30 +1,73 @@
 package com.example.demo.config;
 
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.BoundedPasswordEncoder;
+import com.example.demo.security.CurrentUser;
+import com.example.demo.security.TokenAuthenticationFilter;
+import com.example.demo.security.TokenService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    // 0 = een thread per core
+    @Value("${security.bcrypt.threads:0}")
+    private int bcryptThreads;
+
+    @Value("${security.bcrypt.queue-per-thread:4}")
+    private int bcryptQueuePerThread;
+
+    @Value("${security.bcrypt.retry-after-seconds:1}")
+    private long bcryptRetryAfterSeconds;
+
+    // Lezen mag anoniem; wijzigen vraagt een token van /api/auth/login (Authorization: Bearer ...), en voor een
+    // user alleen met de token van die user. Ratings dragen het userId in de body, dat controleert RatingController
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, TokenService tokenService,
+                                           UserRepository userRepository) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+            )
             .authorizeHttpRequests(authz -> authz
-                .anyRequest().permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/auth/register", "/api/auth/login").permitAll()
+                .requestMatchers(HttpMethod.GET, "/**").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/**").permitAll()
+                .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                .requestMatchers("/api/follows/{userId}/follow/{followedUserId}").access(CurrentUser.isUserId("userId"))
+                .requestMatchers("/api/auth/users/username/{username}").access(CurrentUser.isUsername("username", userRepository::findIdByUsername))
+                .requestMatchers("/api/auth/users/{id}").access(CurrentUser.isUserId("id"))
+                .anyRequest().authenticated()
             );
         
         return http.build();
     }
     
+    // BCrypt op een eigen begrensde pool, zodat een login piek de request threads niet opeet
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = bcryptThreads > 0 ? bcryptThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), threads,
+                threads * bcryptQueuePerThread, bcryptRetryAfterSeconds, meterRegistry);
     }
 }
\ No newline at end of file
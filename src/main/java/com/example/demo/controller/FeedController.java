@@ -0,0 +1,46 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FeedItemDTO;
+import com.example.demo.service.FeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/feed")
+@Tag(name = "Feed", description = "Activity feed endpoints")
+@CrossOrigin(origins = "*")
+public class FeedController {
+
+    @Autowired
+    private FeedService feedService;
+
+    @GetMapping("/{userId}")
+    @Operation(summary = "Get recent ratings of the users someone follows, newest first")
+    public ResponseEntity<Map<String, Object>> getFeed(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<FeedItemDTO> page = feedService.getFeed(userId, before, limit);
+            response.put("items", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            if (e.getMessage().equals("User not found")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FollowCountsDTO;
+import com.example.demo.dto.UserSuggestionDTO;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.User;
+import com.example.demo.service.FollowGraphService;
 import com.example.demo.service.FollowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +28,9 @@ public class FollowController {
     @Autowired
     private FollowService followService;
 
+    @Autowired
+    private FollowGraphService followGraphService;
+
     @PostMapping("/{userId}/follow/{followedUserId}")
     @Operation(summary = "Follow a user")
     public ResponseEntity<Map<String, Object>> followUser(@PathVariable Long userId, @PathVariable Long followedUserId) {
@@ -70,11 +78,73 @@ public class FollowController {
         }
     }
 
+    @GetMapping("/{userId}/followers")
+    @Operation(summary = "Get the users following a user, paginated with a cursor")
+    public ResponseEntity<Map<String, Object>> getFollowers(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<UserSummaryDTO> page = followService.getFollowers(userId, after, limit);
+            response.put("followers", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            if (e.getMessage().equals("User not found")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/{userId}/counts")
+    @Operation(summary = "Get follower and following counts of a user")
+    public ResponseEntity<FollowCountsDTO> getFollowCounts(@PathVariable Long userId) {
+        try {
+            return ResponseEntity.ok(followService.getFollowCounts(userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{userId}/suggestions")
+    @Operation(summary = "Suggest users followed by the people a user follows, ranked by shared follows and taste")
+    public ResponseEntity<Map<String, Object>> getSuggestions(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "10") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<UserSuggestionDTO> suggestions = followGraphService.getSuggestions(userId, limit);
+            response.put("suggestions", suggestions);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+
     @GetMapping("/search")
-    @Operation(summary = "Search users by username")
-    public ResponseEntity<List<User>> searchUsers(@RequestParam String username) {
-        List<User> users = followService.searchUsers(username);
-        return ResponseEntity.ok(users);
+    @Operation(summary = "Search users by username; accounts followed by userId come first")
+    public ResponseEntity<Map<String, Object>> searchUsers(
+            @RequestParam String username,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<UserSummaryDTO> page = followService.searchUsers(username, userId, after, limit);
+            response.put("users", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
 
 }
\ No newline at end of file
@@ -1,8 +1,20 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.LeaderboardEntryDTO;
+import com.example.demo.dto.MovieFilterCriteria;
+import com.example.demo.dto.MovieFilterResult;
+import com.example.demo.dto.MovieSearchResultDTO;
+import com.example.demo.dto.MovieSuggestionDTO;
+import com.example.demo.dto.MovieSummaryDTO;
 import com.example.demo.model.Movie;
+import com.example.demo.service.LeaderboardService;
+import com.example.demo.service.MovieAutocompleteService;
+import com.example.demo.service.MovieCatalogReadModel;
 import com.example.demo.service.MovieService;
+import com.example.demo.service.TrendingService;
 import io.swagger.v3.oas.annotations.Operation;
+import org.springdoc.core.annotations.ParameterObject;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +36,18 @@ public class MovieController {
     @Autowired
     private MovieService movieService;
 
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private MovieAutocompleteService movieAutocompleteService;
+
+    @Autowired
+    private MovieCatalogReadModel catalogReadModel;
+
     @PostMapping
     @Operation(summary = "Add a new movie")
     public ResponseEntity<Map<String, Object>> addMovie(@Valid @RequestBody Movie movie) {
@@ -41,10 +65,76 @@ public class MovieController {
     }
 
     @GetMapping
-    @Operation(summary = "Get all movies")
-    public ResponseEntity<List<Movie>> getAllMovies() {
-        List<Movie> movies = movieService.getAllMovies();
-        return ResponseEntity.ok(movies);
+    @Operation(summary = "Get movies, paginated with a cursor")
+    public ResponseEntity<Map<String, Object>> getAllMovies(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<MovieSummaryDTO> page = movieService.getMoviePage(after, limit);
+            response.put("movies", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/filter")
+    @Operation(summary = "Filter movies on year, duration, genres and rating, with genre and decade facet counts")
+    public ResponseEntity<Map<String, Object>> filterMovies(
+            @ParameterObject MovieFilterCriteria criteria,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            MovieFilterResult result = movieService.filterMovies(criteria, after, limit);
+            response.put("movies", result.getMovies());
+            response.put("nextCursor", result.getNextCursor());
+            response.put("totalCount", result.getTotalCount());
+            response.put("facets", Map.of("genres", result.getGenreCounts(), "decades", result.getDecadeCounts()));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/top")
+    @Operation(summary = "Get the top rated movies, ranked by weighted average")
+    public ResponseEntity<List<LeaderboardEntryDTO>> getTopRatedMovies(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(leaderboardService.getTopRated(limit));
+    }
+
+    @GetMapping("/trending")
+    @Operation(summary = "Get the movies with the most rating activity in the last 1h, 24h or 7d")
+    public ResponseEntity<Map<String, Object>> getTrendingMovies(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            TrendingService.Window trendingWindow = TrendingService.Window.parse(window);
+            if (!trendingService.isServing()) {
+                response.put("message", "Trending movies are not available yet");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+            }
+            response.put("window", trendingWindow.getLabel());
+            response.put("movies", trendingService.getTrending(trendingWindow, limit));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/read-model/stats")
+    @Operation(summary = "Size and heap estimate of the in-memory catalog read model")
+    public ResponseEntity<Map<String, Object>> getReadModelStats() {
+        return ResponseEntity.ok(catalogReadModel.getStats());
     }
 
     @GetMapping("/{id}")
@@ -56,12 +146,22 @@ public class MovieController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search movies by name")
-    public ResponseEntity<List<Movie>> searchMoviesByName(@RequestParam String name) {
-        List<Movie> movies = movieService.searchMoviesByName(name);
+    @Operation(summary = "Search movies by name and description, best match first")
+    public ResponseEntity<List<MovieSearchResultDTO>> searchMovies(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "20") int limit) {
+        List<MovieSearchResultDTO> movies = movieService.searchMovies(name, limit);
         return ResponseEntity.ok(movies);
     }
 
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest movies for a partially typed title")
+    public ResponseEntity<List<MovieSuggestionDTO>> suggestMovies(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(movieAutocompleteService.suggest(q, limit));
+    }
+
     @GetMapping("/year/{year}")
     @Operation(summary = "Get movies by release year")
     public ResponseEntity<List<Movie>> getMoviesByYear(@PathVariable Integer year) {
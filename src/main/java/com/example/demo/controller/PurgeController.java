@@ -0,0 +1,52 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.PurgeStatusDTO;
+import com.example.demo.service.PurgeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/purges")
+@Tag(name = "Purges", description = "Progress of the background cleanup after deleting users and movies")
+@CrossOrigin(origins = "*")
+public class PurgeController {
+
+    @Autowired
+    private PurgeService purgeService;
+
+    @GetMapping
+    @Operation(summary = "Get the number of pending purges and the running and recently finished ones")
+    public ResponseEntity<Map<String, Object>> getPurges() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("pending", purgeService.getPendingCounts());
+        response.put("purges", purgeService.getRecentStatuses());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{type}/{id}")
+    @Operation(summary = "Get the purge status of a deleted user or movie (type is user or movie)")
+    public ResponseEntity<Map<String, Object>> getPurge(@PathVariable String type, @PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Optional<PurgeStatusDTO> status = purgeService.getStatus(type, id);
+            if (status.isEmpty()) {
+                response.put("message", "No purge found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            response.put("purge", status.get());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -3,22 +3,39 @@ package com.example.demo.controller;
 import com.example.demo.model.Movie;
 import com.example.demo.model.Rating;
 import com.example.demo.model.User;
+import com.example.demo.security.CurrentUser;
+import com.example.demo.service.RatingBatchService;
 import com.example.demo.service.RatingService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import jakarta.validation.constraints.Max;
-import jakarta.validation.constraints.Min;
-import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Size; 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FollowingRatingDTO;
+import com.example.demo.dto.RatingBatchResult;
 import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingRequest;
+import com.example.demo.dto.RatingSummaryDTO;
+import com.example.demo.dto.UserRatingDTO;
 import java.util.stream.Collectors;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,16 +46,30 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class RatingController {
 
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final String NOT_OWN_RATING = "Ratings can only be written for the authenticated user";
+
     @Autowired
     private RatingService ratingService;
 
+    @Autowired
+    private RatingBatchService ratingBatchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping
     @Operation(summary = "Add or update a rating")
     public ResponseEntity<Map<String, Object>> addOrUpdateRating(@Valid @RequestBody RatingRequest request) {
         Map<String, Object> response = new HashMap<>();
 
+        if (!CurrentUser.mayWriteFor(request.getUserId())) {
+            return forbidden(response);
+        }
+
         try {
-            Rating savedRating = ratingService.addOrUpdateRating(
+            RatingDTO savedRating = ratingService.addOrUpdateRating(
                 request.getUserId(),
                 request.getMovieId(),
                 request.getRating(),
@@ -54,23 +85,130 @@ public class RatingController {
         }
     }
 
-    @GetMapping("/movie/{movieId}")
-    @Operation(summary = "Get all ratings for a movie")
-    public ResponseEntity<Map<String, Object>> getRatingsByMovie(@PathVariable Long movieId) {
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Add or update many ratings from a JSON array")
+    public ResponseEntity<Map<String, Object>> addRatingsBatch(@RequestBody List<RatingRequest> requests) {
         Map<String, Object> response = new HashMap<>();
-    
-        response.put("ratings", ratingService.getRatingsByMovie(movieId));
-        response.put("averageRating", ratingService.getAverageRatingForMovie(movieId));
-        response.put("totalRatings", ratingService.getTotalRatingsForMovie(movieId));
-        
+
+        if (requests.size() > ratingBatchService.getMaxItems()) {
+            return tooManyItems(response);
+        }
+        if (!mayWriteAll(requests)) {
+            return forbidden(response);
+        }
+
+        response.put("batch", ratingBatchService.addRatings(requests.iterator()));
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/batch", consumes = NDJSON)
+    @Operation(summary = "Add or update many ratings from a newline-delimited JSON stream")
+    public ResponseEntity<Map<String, Object>> addRatingsBatchStream(InputStream body) {
+        Map<String, Object> response = new HashMap<>();
+
+        // Same limit as the JSON array: read at most maxItems + 1 lines and write nothing if there are more
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Iterator<RatingRequest> items = new NdjsonIterator(reader, objectMapper.readerFor(RatingRequest.class));
+        List<RatingRequest> requests = new ArrayList<>();
+        while (items.hasNext()) {
+            if (requests.size() == ratingBatchService.getMaxItems()) {
+                return tooManyItems(response);
+            }
+            requests.add(items.next());
+        }
+        if (!mayWriteAll(requests)) {
+            return forbidden(response);
+        }
+
+        response.put("batch", ratingBatchService.addRatings(requests.iterator()));
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> tooManyItems(Map<String, Object> response) {
+        response.put("message", "A batch can contain at most " + ratingBatchService.getMaxItems() + " ratings");
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+    }
+
+    // Malformed items (null) worden later als INVALID gemeld
+    private static boolean mayWriteAll(List<RatingRequest> requests) {
+        return requests.stream().allMatch(request -> request == null || CurrentUser.mayWriteFor(request.getUserId()));
+    }
+
+    private static ResponseEntity<Map<String, Object>> forbidden(Map<String, Object> response) {
+        response.put("message", NOT_OWN_RATING);
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    @GetMapping("/movie/{movieId}")
+    @Operation(summary = "Get a page of ratings for a movie (sort: newest, highest or lowest) with the rating summary")
+    public ResponseEntity<Map<String, Object>> getRatingsByMovie(
+            @PathVariable Long movieId,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<RatingDTO> page = ratingService.getRatingsByMovie(movieId, sort, after, limit);
+            RatingSummaryDTO summary = ratingService.getRatingSummary(movieId);
+
+            response.put("ratings", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("averageRating", summary.getAverageRating());
+            response.put("totalRatings", summary.getTotalRatings());
+            response.put("histogram", summary.getHistogram());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/movie/{movieId}/summary")
+    @Operation(summary = "Get the average, count and star histogram of a movie's ratings")
+    public ResponseEntity<RatingSummaryDTO> getRatingSummary(@PathVariable Long movieId) {
+        return ResponseEntity.ok(ratingService.getRatingSummary(movieId));
+    }
+
+    @GetMapping("/movie/{movieId}/following/{userId}")
+    @Operation(summary = "Get the average rating of a movie among the users a user follows")
+    public ResponseEntity<FollowingRatingDTO> getFollowingRating(@PathVariable Long movieId, @PathVariable Long userId) {
+        return ResponseEntity.ok(ratingService.getFollowingRating(userId, movieId));
+    }
+
+    @GetMapping("/following/{userId}")
+    @Operation(summary = "Get the average rating among the users a user follows for a page of movies")
+    public ResponseEntity<Map<String, Object>> getFollowingRatings(
+            @PathVariable Long userId,
+            @RequestParam List<Long> movieIds) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            response.put("ratings", ratingService.getFollowingRatings(userId, movieIds));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @GetMapping("/user/{userId}")
-    @Operation(summary = "Get all ratings by a user")
-    public ResponseEntity<List<Rating>> getRatingsByUser(@PathVariable Long userId) {
-        List<Rating> ratings = ratingService.getRatingsByUser(userId);
-        return ResponseEntity.ok(ratings);
+    @Operation(summary = "Get a page of a user's ratings with movie name and poster, most recently changed first")
+    public ResponseEntity<Map<String, Object>> getRatingsByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<UserRatingDTO> page = ratingService.getRatingsByUser(userId, before, limit);
+            response.put("ratings", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
 
     @GetMapping("/user/{userId}/movie/{movieId}")
@@ -90,6 +228,11 @@ public class RatingController {
     public ResponseEntity<Map<String, String>> deleteRating(@PathVariable Long id) {
         Map<String, String> response = new HashMap<>();
 
+        Optional<Long> owner = ratingService.getRatingUserId(id);
+        if (owner.isPresent() && !CurrentUser.mayWriteFor(owner.get())) {
+            response.put("message", NOT_OWN_RATING);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
         boolean deleted = ratingService.deleteRating(id);
     
         if (!deleted) {
@@ -101,31 +244,47 @@ public class RatingController {
         return ResponseEntity.ok(response);
     }
 
-    public static class RatingRequest {
-        @NotNull
-        private Long userId;
-
-        @NotNull
-        private Long movieId;
-
-        @NotNull
-        @Min(1)
-        @Max(5)
-        private Integer rating;
-
-        @Size(max = 1000)
-        private String comment;
+    // Leest de stream regel voor regel; na maxItems + 1 regels stopt de controller met lezen
+    private static class NdjsonIterator implements Iterator<RatingRequest> {
+        private final BufferedReader reader;
+        private final ObjectReader objectReader;
+        private String nextLine;
 
-        public Long getUserId() {return userId;}
-        public void setUserId(Long userId) {this.userId = userId;}
+        NdjsonIterator(BufferedReader reader, ObjectReader objectReader) {
+            this.reader = reader;
+            this.objectReader = objectReader;
+        }
 
-        public Long getMovieId() {return movieId;}
-        public void setMovieId(Long movieId) {this.movieId = movieId;}
+        @Override
+        public boolean hasNext() {
+            try {
+                while (nextLine == null) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isBlank()) {
+                        nextLine = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-        public Integer getRating() {return rating;}
-        public void setRating(Integer rating) {this.rating = rating;}
-        
-        public String getComment() {return comment;}
-        public void setComment(String comment) {this.comment = comment;}
+        @Override
+        public RatingRequest next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            try {
+                return objectReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
     }
-}
\ No newline at end of file
+}
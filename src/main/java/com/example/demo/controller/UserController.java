@@ -1,18 +1,33 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.User;
+import com.example.demo.security.PasswordHashingBusyException;
+import com.example.demo.security.TokenService;
 import com.example.demo.service.UserService;
+import com.example.demo.service.UsernameAvailabilityService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -25,6 +40,15 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UsernameAvailabilityService usernameAvailabilityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/register")
     @Operation(summary = "Register a new user")
     public ResponseEntity<Map<String, String>> registerUser(@Valid @RequestBody User user) {
@@ -38,6 +62,8 @@ public class UserController {
         } catch (IllegalArgumentException e) {
             response.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (PasswordHashingBusyException e) {
+            return busy(response, e);
         }
     }
 
@@ -48,34 +74,89 @@ public class UserController {
 
             try {
                 User user = userService.loginUser(loginRequest.getUsername(), loginRequest.getPassword());
+                TokenService.IssuedToken token = tokenService.issue(user);
                 response.put("message", "Login successful");
                 response.put("username", user.getUsername());
+                response.put("token", token.token());
+                response.put("expiresAt", token.expiresAt().toString());
                 return ResponseEntity.ok(response);
             } catch (IllegalArgumentException e) {
                 response.put("message", e.getMessage());
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            } catch (PasswordHashingBusyException e) {
+                return busy(response, e);
             }
     }
 
+    @GetMapping("/username-available")
+    @Operation(summary = "Check whether a username is still free", description = "Meant for polling from the signup form")
+    public ResponseEntity<Map<String, Object>> isUsernameAvailable(@RequestParam("u") String username) {
+        Map<String, Object> response = new HashMap<>();
+
+        // Zelfde grenzen als de validatie op User
+        if (username.length() < 3 || username.length() > 20) {
+            response.put("message", "Username must be between 3 and 20 characters");
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.put("username", username);
+        response.put("available", usernameAvailabilityService.isAvailable(username));
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/users")
-    @Operation(summary = "Get all users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    @Operation(summary = "Get users (id and username), paginated with a cursor")
+    public ResponseEntity<Map<String, Object>> getAllUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CursorPage<UserSummaryDTO> page = userService.getUserPage(after, limit);
+            response.put("users", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all users (id and username) as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        StreamingResponseBody body = output -> {
+            // Regel voor regel naar de response, er staat nooit meer dan één gebruiker in het geheugen
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            ObjectWriter lineWriter = objectMapper.writerFor(UserSummaryDTO.class);
+            try {
+                userService.forEachUser(user -> {
+                    try {
+                        writer.write(lineWriter.writeValueAsString(user));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/users/{id}")
     @Operation(summary = "Get user by ID")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        Optional<User> userOpt = userService.getUserById(id);
+    public ResponseEntity<UserSummaryDTO> getUserById(@PathVariable Long id) {
+        Optional<UserSummaryDTO> userOpt = userService.getUserById(id);
         return userOpt.map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/users/username/{username}")
     @Operation(summary = "Get user by username", description = "Retrieve a specific user by their username")
-    public ResponseEntity<User> getUserByUsername(@PathVariable String username) {
-        Optional<User> userOpt = userService.getUserByUsername(username);
+    public ResponseEntity<UserSummaryDTO> getUserByUsername(@PathVariable String username) {
+        Optional<UserSummaryDTO> userOpt = userService.getUserByUsername(username);
         return userOpt.map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
     }
@@ -117,7 +198,16 @@ public class UserController {
         } catch (IllegalArgumentException e) {
             response.put("message", e.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (PasswordHashingBusyException e) {
+            return busy(response, e);
         }
     }
 
-}
\ No newline at end of file
+    // Hashing pool vol: de client mag het na Retry-After seconden opnieuw proberen
+    private static ResponseEntity<Map<String, String>> busy(Map<String, String> response, PasswordHashingBusyException e) {
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+public class BatchItemResult {
+
+    public enum Status {
+        SAVED,
+        SUPERSEDED,
+        INVALID,
+        USER_NOT_FOUND,
+        MOVIE_NOT_FOUND,
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private String message;
+
+    public BatchItemResult(int index, Status status, String message) {
+        this.index = index;
+        this.status = status;
+        this.message = message;
+    }
+
+        public int getIndex() {return index;}
+        public void setIndex(int index) {this.index = index;}
+
+        public Status getStatus() {return status;}
+        public void setStatus(Status status) {this.status = status;}
+
+        public String getMessage() {return message;}
+        public void setMessage(String message) {this.message = message;}
+}
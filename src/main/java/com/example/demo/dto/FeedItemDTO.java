@@ -0,0 +1,39 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+public class FeedItemDTO {
+    private Long userId;
+    private String userName;
+    private Long movieId;
+    private Integer rating;
+    private String comment;
+    private LocalDateTime occurredAt;
+
+    public FeedItemDTO(Long userId, String userName, Long movieId, Integer rating, String comment, LocalDateTime occurredAt) {
+        this.userId = userId;
+        this.userName = userName;
+        this.movieId = movieId;
+        this.rating = rating;
+        this.comment = comment;
+        this.occurredAt = occurredAt;
+    }
+
+        public Long getUserId() {return userId;}
+        public void setUserId(Long userId) {this.userId = userId;}
+
+        public String getUserName() {return userName;}
+        public void setUserName(String userName) {this.userName = userName;}
+
+        public Long getMovieId() {return movieId;}
+        public void setMovieId(Long movieId) {this.movieId = movieId;}
+
+        public Integer getRating() {return rating;}
+        public void setRating(Integer rating) {this.rating = rating;}
+
+        public String getComment() {return comment;}
+        public void setComment(String comment) {this.comment = comment;}
+
+        public LocalDateTime getOccurredAt() {return occurredAt;}
+        public void setOccurredAt(LocalDateTime occurredAt) {this.occurredAt = occurredAt;}
+}
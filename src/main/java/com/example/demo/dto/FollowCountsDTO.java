@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+public class FollowCountsDTO {
+    private long followersCount;
+    private long followingCount;
+
+    public FollowCountsDTO(long followersCount, long followingCount) {
+        this.followersCount = followersCount;
+        this.followingCount = followingCount;
+    }
+
+        public long getFollowersCount() {return followersCount;}
+        public void setFollowersCount(long followersCount) {this.followersCount = followersCount;}
+
+        public long getFollowingCount() {return followingCount;}
+        public void setFollowingCount(long followingCount) {this.followingCount = followingCount;}
+}
@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+public class FollowingRatingDTO {
+    private Long movieId;
+    private long totalRatings;
+    private Double averageRating;
+
+    public FollowingRatingDTO(Long movieId, long totalRatings, long ratingSum) {
+        this.movieId = movieId;
+        this.totalRatings = totalRatings;
+        this.averageRating = totalRatings == 0 ? null : (double) ratingSum / totalRatings;
+    }
+
+        public Long getMovieId() {return movieId;}
+        public void setMovieId(Long movieId) {this.movieId = movieId;}
+
+        public long getTotalRatings() {return totalRatings;}
+        public void setTotalRatings(long totalRatings) {this.totalRatings = totalRatings;}
+
+        public Double getAverageRating() {return averageRating;}
+        public void setAverageRating(Double averageRating) {this.averageRating = averageRating;}
+}
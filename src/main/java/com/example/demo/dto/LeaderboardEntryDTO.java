@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+public class LeaderboardEntryDTO {
+    private int rank;
+    private Long movieId;
+    private String name;
+    private long ratingCount;
+    private Double averageRating;
+    private double score;
+
+    public LeaderboardEntryDTO(int rank, Long movieId, String name, long ratingCount, Double averageRating, double score) {
+        this.rank = rank;
+        this.movieId = movieId;
+        this.name = name;
+        this.ratingCount = ratingCount;
+        this.averageRating = averageRating;
+        this.score = score;
+    }
+
+        public int getRank() {return rank;}
+        public void setRank(int rank) {this.rank = rank;}
+
+        public Long getMovieId() {return movieId;}
+        public void setMovieId(Long movieId) {this.movieId = movieId;}
+
+        public String getName() {return name;}
+        public void setName(String name) {this.name = name;}
+
+        public long getRatingCount() {return ratingCount;}
+        public void setRatingCount(long ratingCount) {this.ratingCount = ratingCount;}
+
+        public Double getAverageRating() {return averageRating;}
+        public void setAverageRating(Double averageRating) {this.averageRating = averageRating;}
+
+        public double getScore() {return score;}
+        public void setScore(double score) {this.score = score;}
+}
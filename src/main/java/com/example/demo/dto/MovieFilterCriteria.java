@@ -0,0 +1,42 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Query parameters of GET /api/movies/filter. Every field is optional,
+ * a null field simply doesn't restrict the result.
+ */
+public class MovieFilterCriteria {
+    private Integer minYear;
+    private Integer maxYear;
+    private Integer minDuration;
+    private Integer maxDuration;
+    private List<String> genres;
+    private String genreMode = "any";
+    private Double minRating;
+
+    public boolean matchAllGenres() {
+        return "all".equalsIgnoreCase(genreMode);
+    }
+
+        public Integer getMinYear() {return minYear;}
+        public void setMinYear(Integer minYear) {this.minYear = minYear;}
+
+        public Integer getMaxYear() {return maxYear;}
+        public void setMaxYear(Integer maxYear) {this.maxYear = maxYear;}
+
+        public Integer getMinDuration() {return minDuration;}
+        public void setMinDuration(Integer minDuration) {this.minDuration = minDuration;}
+
+        public Integer getMaxDuration() {return maxDuration;}
+        public void setMaxDuration(Integer maxDuration) {this.maxDuration = maxDuration;}
+
+        public List<String> getGenres() {return genres;}
+        public void setGenres(List<String> genres) {this.genres = genres;}
+
+        public String getGenreMode() {return genreMode;}
+        public void setGenreMode(String genreMode) {this.genreMode = genreMode;}
+
+        public Double getMinRating() {return minRating;}
+        public void setMinRating(Double minRating) {this.minRating = minRating;}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of filtered movies together with the facet counts of the whole
+ * filtered set (not just the page), so the frontend can show how many
+ * matches each genre and decade has.
+ */
+public class MovieFilterResult {
+    private List<MovieSummaryDTO> movies;
+    private String nextCursor;
+    private long totalCount;
+    private Map<String, Long> genreCounts;
+    private Map<Integer, Long> decadeCounts;
+
+    public MovieFilterResult(List<MovieSummaryDTO> movies, long totalCount,
+                             Map<String, Long> genreCounts, Map<Integer, Long> decadeCounts) {
+        this.movies = movies;
+        this.totalCount = totalCount;
+        this.genreCounts = genreCounts;
+        this.decadeCounts = decadeCounts;
+    }
+
+        public List<MovieSummaryDTO> getMovies() {return movies;}
+        public void setMovies(List<MovieSummaryDTO> movies) {this.movies = movies;}
+
+        public String getNextCursor() {return nextCursor;}
+        public void setNextCursor(String nextCursor) {this.nextCursor = nextCursor;}
+
+        public long getTotalCount() {return totalCount;}
+        public void setTotalCount(long totalCount) {this.totalCount = totalCount;}
+
+        public Map<String, Long> getGenreCounts() {return genreCounts;}
+        public void setGenreCounts(Map<String, Long> genreCounts) {this.genreCounts = genreCounts;}
+
+        public Map<Integer, Long> getDecadeCounts() {return decadeCounts;}
+        public void setDecadeCounts(Map<Integer, Long> decadeCounts) {this.decadeCounts = decadeCounts;}
+}
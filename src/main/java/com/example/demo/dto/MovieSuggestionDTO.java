@@ -0,0 +1,27 @@
+package com.example.demo.dto;
+
+public class MovieSuggestionDTO {
+    private Long id;
+    private String name;
+    private Integer releaseYear;
+    private String posterUrl;
+
+    public MovieSuggestionDTO(Long id, String name, Integer releaseYear, String posterUrl) {
+        this.id = id;
+        this.name = name;
+        this.releaseYear = releaseYear;
+        this.posterUrl = posterUrl;
+    }
+
+        public Long getId() {return id;}
+        public void setId(Long id) {this.id = id;}
+
+        public String getName() {return name;}
+        public void setName(String name) {this.name = name;}
+
+        public Integer getReleaseYear() {return releaseYear;}
+        public void setReleaseYear(Integer releaseYear) {this.releaseYear = releaseYear;}
+
+        public String getPosterUrl() {return posterUrl;}
+        public void setPosterUrl(String posterUrl) {this.posterUrl = posterUrl;}
+}
@@ -0,0 +1,50 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public class MovieSummaryDTO {
+    private Long id;
+    private String name;
+    private Integer releaseYear;
+    private Integer durationMinutes;
+    private String posterUrl;
+    private List<String> genres;
+    private long ratingCount;
+    private Double averageRating;
+
+    public MovieSummaryDTO(Long id, String name, Integer releaseYear, Integer durationMinutes, String posterUrl,
+                           long ratingCount, long ratingSum) {
+        this.id = id;
+        this.name = name;
+        this.releaseYear = releaseYear;
+        this.durationMinutes = durationMinutes;
+        this.posterUrl = posterUrl;
+        this.genres = List.of();
+        this.ratingCount = ratingCount;
+        this.averageRating = ratingCount == 0 ? null : (double) ratingSum / ratingCount;
+    }
+
+        public Long getId() {return id;}
+        public void setId(Long id) {this.id = id;}
+
+        public String getName() {return name;}
+        public void setName(String name) {this.name = name;}
+
+        public Integer getReleaseYear() {return releaseYear;}
+        public void setReleaseYear(Integer releaseYear) {this.releaseYear = releaseYear;}
+
+        public Integer getDurationMinutes() {return durationMinutes;}
+        public void setDurationMinutes(Integer durationMinutes) {this.durationMinutes = durationMinutes;}
+
+        public String getPosterUrl() {return posterUrl;}
+        public void setPosterUrl(String posterUrl) {this.posterUrl = posterUrl;}
+
+        public List<String> getGenres() {return genres;}
+        public void setGenres(List<String> genres) {this.genres = genres;}
+
+        public long getRatingCount() {return ratingCount;}
+        public void setRatingCount(long ratingCount) {this.ratingCount = ratingCount;}
+
+        public Double getAverageRating() {return averageRating;}
+        public void setAverageRating(Double averageRating) {this.averageRating = averageRating;}
+}
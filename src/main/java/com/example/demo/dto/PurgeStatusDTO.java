@@ -0,0 +1,58 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+public class PurgeStatusDTO {
+
+    public enum State {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String type;
+    private Long id;
+    private State state;
+    private long ratingsDeleted;
+    private long followsDeleted;
+    private LocalDateTime deletedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public PurgeStatusDTO(String type, Long id, State state, long ratingsDeleted, long followsDeleted,
+                          LocalDateTime deletedAt, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.type = type;
+        this.id = id;
+        this.state = state;
+        this.ratingsDeleted = ratingsDeleted;
+        this.followsDeleted = followsDeleted;
+        this.deletedAt = deletedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+        public String getType() {return type;}
+        public void setType(String type) {this.type = type;}
+
+        public Long getId() {return id;}
+        public void setId(Long id) {this.id = id;}
+
+        public State getState() {return state;}
+        public void setState(State state) {this.state = state;}
+
+        public long getRatingsDeleted() {return ratingsDeleted;}
+        public void setRatingsDeleted(long ratingsDeleted) {this.ratingsDeleted = ratingsDeleted;}
+
+        public long getFollowsDeleted() {return followsDeleted;}
+        public void setFollowsDeleted(long followsDeleted) {this.followsDeleted = followsDeleted;}
+
+        public LocalDateTime getDeletedAt() {return deletedAt;}
+        public void setDeletedAt(LocalDateTime deletedAt) {this.deletedAt = deletedAt;}
+
+        public LocalDateTime getStartedAt() {return startedAt;}
+        public void setStartedAt(LocalDateTime startedAt) {this.startedAt = startedAt;}
+
+        public LocalDateTime getFinishedAt() {return finishedAt;}
+        public void setFinishedAt(LocalDateTime finishedAt) {this.finishedAt = finishedAt;}
+}
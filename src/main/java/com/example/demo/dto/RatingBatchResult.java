@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public class RatingBatchResult {
+    private int total;
+    private int saved;
+    private int failed;
+    private List<BatchItemResult> results;
+
+    public RatingBatchResult(List<BatchItemResult> results) {
+        this.results = results;
+        this.total = results.size();
+        this.saved = (int) results.stream()
+                .filter(r -> r.getStatus() == BatchItemResult.Status.SAVED
+                        || r.getStatus() == BatchItemResult.Status.SUPERSEDED)
+                .count();
+        this.failed = total - saved;
+    }
+
+        public int getTotal() {return total;}
+        public void setTotal(int total) {this.total = total;}
+
+        public int getSaved() {return saved;}
+        public void setSaved(int saved) {this.saved = saved;}
+
+        public int getFailed() {return failed;}
+        public void setFailed(int failed) {this.failed = failed;}
+
+        public List<BatchItemResult> getResults() {return results;}
+        public void setResults(List<BatchItemResult> results) {this.results = results;}
+}
@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public class RatingRequest {
+    @NotNull
+    private Long userId;
+
+    @NotNull
+    private Long movieId;
+
+    @NotNull
+    @Min(1)
+    @Max(5)
+    private Integer rating;
+
+    @Size(max = 1000)
+    private String comment;
+
+    public Long getUserId() {return userId;}
+    public void setUserId(Long userId) {this.userId = userId;}
+
+    public Long getMovieId() {return movieId;}
+    public void setMovieId(Long movieId) {this.movieId = movieId;}
+
+    public Integer getRating() {return rating;}
+    public void setRating(Integer rating) {this.rating = rating;}
+    
+    public String getComment() {return comment;}
+    public void setComment(String comment) {this.comment = comment;}
+}
@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+public class RatingSummaryDTO {
+    private long totalRatings;
+    private Double averageRating;
+    // Alleen met een histogram; bij een even aantal het gemiddelde van de twee middelste ratings
+    private Double medianRating;
+    // Aantal ratings per ster, histogram[0] is 1 ster; null als alleen de totalen bekend zijn
+    private long[] histogram;
+
+    public RatingSummaryDTO(long totalRatings, long ratingSum) {
+        this(totalRatings, ratingSum, null);
+    }
+
+    public RatingSummaryDTO(long totalRatings, long ratingSum, long[] histogram) {
+        this.totalRatings = totalRatings;
+        this.averageRating = totalRatings == 0 ? null : (double) ratingSum / totalRatings;
+        this.histogram = histogram;
+        if (histogram != null && totalRatings > 0) {
+            this.medianRating = (starAt(histogram, (totalRatings + 1) / 2) + starAt(histogram, totalRatings / 2 + 1)) / 2.0;
+        }
+    }
+
+    // Ster van de rank-de rating (1-based) in oplopende volgorde
+    private static int starAt(long[] histogram, long rank) {
+        long seen = 0;
+        for (int star = 1; star <= histogram.length; star++) {
+            seen += histogram[star - 1];
+            if (seen >= rank) {
+                return star;
+            }
+        }
+        return histogram.length;
+    }
+
+    public static RatingSummaryDTO empty() {
+        return new RatingSummaryDTO(0, 0, new long[5]);
+    }
+
+        public long getTotalRatings() {return totalRatings;}
+        public void setTotalRatings(long totalRatings) {this.totalRatings = totalRatings;}
+
+        public Double getAverageRating() {return averageRating;}
+        public void setAverageRating(Double averageRating) {this.averageRating = averageRating;}
+
+        public Double getMedianRating() {return medianRating;}
+        public void setMedianRating(Double medianRating) {this.medianRating = medianRating;}
+
+        public long[] getHistogram() {return histogram;}
+        public void setHistogram(long[] histogram) {this.histogram = histogram;}
+}
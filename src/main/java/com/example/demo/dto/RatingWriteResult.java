@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+public class RatingWriteResult {
+    private RatingDTO rating;
+    private Integer previousRating;
+
+    public RatingWriteResult(RatingDTO rating, Integer previousRating) {
+        this.rating = rating;
+        this.previousRating = previousRating;
+    }
+
+    public boolean isInsert() {
+        return previousRating == null;
+    }
+
+        public RatingDTO getRating() {return rating;}
+        public void setRating(RatingDTO rating) {this.rating = rating;}
+
+        public Integer getPreviousRating() {return previousRating;}
+        public void setPreviousRating(Integer previousRating) {this.previousRating = previousRating;}
+}
@@ -0,0 +1,50 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+public class UserRatingDTO {
+    private Long id;
+    private Long movieId;
+    private String movieName;
+    private String posterUrl;
+    private Integer rating;
+    private String comment;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public UserRatingDTO(Long id, Long movieId, String movieName, String posterUrl, Integer rating, String comment,
+                         LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.movieId = movieId;
+        this.movieName = movieName;
+        this.posterUrl = posterUrl;
+        this.rating = rating;
+        this.comment = comment;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+        public Long getId() {return id;}
+        public void setId(Long id) {this.id = id;}
+
+        public Long getMovieId() {return movieId;}
+        public void setMovieId(Long movieId) {this.movieId = movieId;}
+
+        public String getMovieName() {return movieName;}
+        public void setMovieName(String movieName) {this.movieName = movieName;}
+
+        public String getPosterUrl() {return posterUrl;}
+        public void setPosterUrl(String posterUrl) {this.posterUrl = posterUrl;}
+
+        public Integer getRating() {return rating;}
+        public void setRating(Integer rating) {this.rating = rating;}
+
+        public String getComment() {return comment;}
+        public void setComment(String comment) {this.comment = comment;}
+
+        public LocalDateTime getCreatedAt() {return createdAt;}
+        public void setCreatedAt(LocalDateTime createdAt) {this.createdAt = createdAt;}
+
+        public LocalDateTime getUpdatedAt() {return updatedAt;}
+        public void setUpdatedAt(LocalDateTime updatedAt) {this.updatedAt = updatedAt;}
+}
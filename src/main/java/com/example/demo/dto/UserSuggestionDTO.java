@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+public class UserSuggestionDTO {
+    private Long id;
+    private String username;
+    private int mutualFollows;
+    private long sharedRatings;
+    private double score;
+
+    public UserSuggestionDTO(Long id, String username, int mutualFollows, long sharedRatings, double score) {
+        this.id = id;
+        this.username = username;
+        this.mutualFollows = mutualFollows;
+        this.sharedRatings = sharedRatings;
+        this.score = score;
+    }
+
+        public Long getId() {return id;}
+        public void setId(Long id) {this.id = id;}
+
+        public String getUsername() {return username;}
+        public void setUsername(String username) {this.username = username;}
+
+        public int getMutualFollows() {return mutualFollows;}
+        public void setMutualFollows(int mutualFollows) {this.mutualFollows = mutualFollows;}
+
+        public long getSharedRatings() {return sharedRatings;}
+        public void setSharedRatings(long sharedRatings) {this.sharedRatings = sharedRatings;}
+
+        public double getScore() {return score;}
+        public void setScore(double score) {this.score = score;}
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+public class UserSummaryDTO {
+    private Long id;
+    private String username;
+
+    public UserSummaryDTO(Long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+        public Long getId() {return id;}
+        public void setId(Long id) {this.id = id;}
+
+        public String getUsername() {return username;}
+        public void setUsername(String username) {this.username = username;}
+}
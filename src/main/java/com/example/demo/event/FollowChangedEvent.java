@@ -0,0 +1,31 @@
+package com.example.demo.event;
+
+/**
+ * Published by FollowService when a follow row was actually added or removed
+ * (repeated follow/unfollow calls don't publish anything).
+ */
+public class FollowChangedEvent {
+    private final Long userId;
+    private final Long followedUserId;
+    private final boolean followed;
+
+    private FollowChangedEvent(Long userId, Long followedUserId, boolean followed) {
+        this.userId = userId;
+        this.followedUserId = followedUserId;
+        this.followed = followed;
+    }
+
+    public static FollowChangedEvent followed(Long userId, Long followedUserId) {
+        return new FollowChangedEvent(userId, followedUserId, true);
+    }
+
+    public static FollowChangedEvent unfollowed(Long userId, Long followedUserId) {
+        return new FollowChangedEvent(userId, followedUserId, false);
+    }
+
+    public Long getUserId() {return userId;}
+    public Long getFollowedUserId() {return followedUserId;}
+
+    // false for an unfollow
+    public boolean isFollowed() {return followed;}
+}
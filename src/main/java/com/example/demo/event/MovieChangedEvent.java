@@ -0,0 +1,39 @@
+package com.example.demo.event;
+
+import com.example.demo.model.Movie;
+
+/**
+ * Published by MovieService whenever the catalog changes, so in-memory
+ * catalog structures can patch themselves instead of reloading.
+ */
+public class MovieChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Long movieId;
+    private final Movie movie;
+
+    private MovieChangedEvent(Type type, Long movieId, Movie movie) {
+        this.type = type;
+        this.movieId = movieId;
+        this.movie = movie;
+    }
+
+    public static MovieChangedEvent saved(Movie movie) {
+        return new MovieChangedEvent(Type.SAVED, movie.getId(), movie);
+    }
+
+    public static MovieChangedEvent deleted(Long movieId) {
+        return new MovieChangedEvent(Type.DELETED, movieId, null);
+    }
+
+    public Type getType() {return type;}
+    public Long getMovieId() {return movieId;}
+
+    // Null for DELETED events
+    public Movie getMovie() {return movie;}
+}
@@ -0,0 +1,63 @@
+package com.example.demo.event;
+
+import com.example.demo.dto.RatingDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by the rating write paths. In-memory read structures listen for it
+ * after commit instead of re-reading the ratings table.
+ */
+public class RatingChangedEvent {
+    private final Long ratingId;
+    private final Long userId;
+    private final String userName;
+    private final Long movieId;
+    private final Integer oldRating;
+    private final Integer newRating;
+    private final String comment;
+    private final LocalDateTime occurredAt;
+
+    public RatingChangedEvent(Long ratingId, Long userId, String userName, Long movieId,
+                              Integer oldRating, Integer newRating, String comment, LocalDateTime occurredAt) {
+        this.ratingId = ratingId;
+        this.userId = userId;
+        this.userName = userName;
+        this.movieId = movieId;
+        this.oldRating = oldRating;
+        this.newRating = newRating;
+        this.comment = comment;
+        this.occurredAt = occurredAt;
+    }
+
+    public static RatingChangedEvent written(RatingDTO rating, Integer previousRating) {
+        LocalDateTime at = rating.getUpdatedAt() != null ? rating.getUpdatedAt() : rating.getCreatedAt();
+        return new RatingChangedEvent(rating.getId(), rating.getUserId(), rating.getUserName(), rating.getMovieId(),
+                previousRating, rating.getRating(), rating.getComment(), at);
+    }
+
+    public static RatingChangedEvent deleted(Long ratingId, Long userId, Long movieId, Integer oldRating) {
+        return new RatingChangedEvent(ratingId, userId, null, movieId, oldRating, null, null, LocalDateTime.now());
+    }
+
+    public boolean isInsert() {return oldRating == null && newRating != null;}
+    public boolean isDelete() {return newRating == null;}
+
+    // Change in the movie's rating count and rating sum caused by this event
+    public long countDelta() {
+        return (newRating != null ? 1 : 0) - (oldRating != null ? 1 : 0);
+    }
+
+    public long sumDelta() {
+        return (newRating != null ? newRating : 0) - (oldRating != null ? oldRating : 0);
+    }
+
+    public Long getRatingId() {return ratingId;}
+    public Long getUserId() {return userId;}
+    public String getUserName() {return userName;}
+    public Long getMovieId() {return movieId;}
+    public Integer getOldRating() {return oldRating;}
+    public Integer getNewRating() {return newRating;}
+    public String getComment() {return comment;}
+    public LocalDateTime getOccurredAt() {return occurredAt;}
+}
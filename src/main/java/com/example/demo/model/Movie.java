@@ -5,11 +5,16 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import java.time.LocalDateTime;
 import java.util.List;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 
 @Entity
 @Table(name = "movies")
+@SQLRestriction("deleted_at IS NULL")
 public class Movie {
 
     @Id
@@ -40,10 +45,26 @@ public class Movie {
     @Size(max = 1000, message = "Poster URL must be less than 1000 characters")
     private String posterUrl;
 
+    // Bijgehouden door RatingService, nooit via de entity zelf geschreven
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("0")
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    private long ratingCount;
+
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    private long ratingSum;
+
     @JsonIgnore
-    @OneToMany(mappedBy = "movie", cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "movie")
     private List<Rating> ratings;
 
+    // Tombstone: gezet bij het verwijderen, PurgeService ruimt de rij en alles wat eraan hangt later op
+    @JsonIgnore
+    @Column(name = "deleted_at", insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
     // Constructors
     public Movie() {}
 
@@ -58,14 +79,11 @@ public class Movie {
 
     @Transient
     public Double getAverageRating() {
-        if (ratings == null || ratings.isEmpty()) {
+        if (ratingCount == 0) {
             return null;
         }
 
-        return ratings.stream()
-                .mapToInt(Rating::getRating)
-                .average()
-                .orElse(0.0);
+        return (double) ratingSum / ratingCount;
     }
 
     // Getters and Setters
@@ -89,4 +107,10 @@ public class Movie {
 
     public String getPosterUrl() { return posterUrl; }
     public void setPosterUrl(String posterUrl) { this.posterUrl = posterUrl; }
+
+    public long getRatingCount() { return ratingCount; }
+    public void setRatingCount(long ratingCount) { this.ratingCount = ratingCount; }
+
+    public long getRatingSum() { return ratingSum; }
+    public void setRatingSum(long ratingSum) { this.ratingSum = ratingSum; }
 }
\ No newline at end of file
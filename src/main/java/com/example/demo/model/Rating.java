@@ -41,11 +41,13 @@ public class Rating{
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    @Column(name = "updated_at")
+    // Bij een insert gelijk aan created_at: de sorteersleutel van de rating historie van een user
+    @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
     public Rating() {
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
     }
 
     public Rating(User user, Movie movie, Integer rating, String comment){
@@ -54,6 +56,7 @@ public class Rating{
         this.rating = rating;
         this.comment = comment;
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
     }
 
     @PreUpdate
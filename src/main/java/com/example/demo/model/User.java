@@ -1,13 +1,19 @@
 package com.example.demo.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 @Table(name = "users")
+@SQLRestriction("deleted_at IS NULL")
 public class User {
 
     @Id
@@ -19,14 +25,21 @@ public class User {
     @Size(min = 3, max = 20, message = "Username must be between 3 and 20 characters")
     private String username;
 
+    // Wel inlezen bij register/update, nooit terugschrijven in een response
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @NotBlank(message = "Password is required")
     @Size(min = 3, max = 255, message = "Password must be between 3 and 255 characters")
     private String password;
 
     @JsonIgnore
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "user")
     private List<Rating> ratings;
 
+    // Tombstone: gezet bij het verwijderen, PurgeService ruimt de rij en alles wat eraan hangt later op
+    @JsonIgnore
+    @Column(name = "deleted_at", insertable = false, updatable = false)
+    private LocalDateTime deletedAt;
+
     @JsonIgnore
     @ManyToMany
     @JoinTable(
@@ -34,7 +47,18 @@ public class User {
         joinColumns = @JoinColumn(name = "user_id"),
         inverseJoinColumns = @JoinColumn(name = "followed_user_id")
     )
-    private List<User> following;
+    private Set<User> following;
+
+    // Bijgehouden door FollowService, nooit via de entity zelf geschreven
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "followers_count", nullable = false, insertable = false, updatable = false)
+    private long followersCount;
+
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "following_count", nullable = false, insertable = false, updatable = false)
+    private long followingCount;
 
     // Constructors
     public User() {}
@@ -71,7 +95,10 @@ public class User {
     public List<Rating> getRatings() {return ratings;}
     public void setRatings(List<Rating> ratings) {this.ratings = ratings;}
 
-    public List<User> getFollowing() {return following;}
-    public void setFollowing(List<User> following) {this.following = following;}
+    public Set<User> getFollowing() {return following;}
+    public void setFollowing(Set<User> following) {this.following = following;}
+
+    public long getFollowersCount() {return followersCount;}
+    public long getFollowingCount() {return followingCount;}
 
 }
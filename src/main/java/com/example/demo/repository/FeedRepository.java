@@ -0,0 +1,71 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.FeedItemDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Queries that (re)build the in-memory feeds of FeedService. They only run
+ * when a feed isn't in memory yet; normal feed reads never get here.
+ */
+@Repository
+public class FeedRepository {
+
+    // Recente ratings van gevolgde accounts onder de celebrity grens, nieuwste eerst
+    private static final String RECENT_FROM_FOLLOWEES =
+        "SELECT r.user_id, u.username, r.movie_id, r.rating, r.comment, " +
+        "COALESCE(r.updated_at, r.created_at) AS occurred_at " +
+        "FROM user_follows f " +
+        "JOIN users u ON u.id = f.followed_user_id " +
+        "JOIN ratings r ON r.user_id = f.followed_user_id " +
+        "JOIN movies m ON m.id = r.movie_id " +
+        "WHERE f.user_id = ? AND u.followers_count < ? AND u.deleted_at IS NULL AND m.deleted_at IS NULL " +
+        "ORDER BY occurred_at DESC, r.user_id DESC, r.movie_id DESC LIMIT ?";
+
+    private static final String RECENT_BY_USER =
+        "SELECT r.user_id, u.username, r.movie_id, r.rating, r.comment, " +
+        "COALESCE(r.updated_at, r.created_at) AS occurred_at " +
+        "FROM ratings r JOIN users u ON u.id = r.user_id JOIN movies m ON m.id = r.movie_id " +
+        "WHERE r.user_id = ? AND u.deleted_at IS NULL AND m.deleted_at IS NULL " +
+        "ORDER BY occurred_at DESC, r.movie_id DESC LIMIT ?";
+
+    private static final String CELEBRITY_FOLLOWEES =
+        "SELECT u.id FROM user_follows f JOIN users u ON u.id = f.followed_user_id " +
+        "WHERE f.user_id = ? AND u.followers_count >= ? AND u.deleted_at IS NULL";
+
+    // De andere kant: gevolgde accounts onder de grens, waarvan de inbox de ratings krijgt
+    private static final String FOLLOWEE_IDS =
+        "SELECT u.id FROM user_follows f JOIN users u ON u.id = f.followed_user_id " +
+        "WHERE f.user_id = ? AND u.followers_count < ? AND u.deleted_at IS NULL";
+
+    private static final RowMapper<FeedItemDTO> ROW_MAPPER = (rs, rowNum) -> new FeedItemDTO(
+            rs.getLong("user_id"),
+            rs.getString("username"),
+            rs.getLong("movie_id"),
+            rs.getInt("rating"),
+            rs.getString("comment"),
+            rs.getTimestamp("occurred_at").toLocalDateTime());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<FeedItemDTO> findRecentFromFollowees(Long userId, long celebrityFollowers, int limit) {
+        return jdbcTemplate.query(RECENT_FROM_FOLLOWEES, ROW_MAPPER, userId, celebrityFollowers, limit);
+    }
+
+    public List<FeedItemDTO> findRecentByUser(Long userId, int limit) {
+        return jdbcTemplate.query(RECENT_BY_USER, ROW_MAPPER, userId, limit);
+    }
+
+    public List<Long> findCelebrityFollowees(Long userId, long celebrityFollowers) {
+        return jdbcTemplate.queryForList(CELEBRITY_FOLLOWEES, Long.class, userId, celebrityFollowers);
+    }
+
+    public List<Long> findFolloweeIds(Long userId, long celebrityFollowers) {
+        return jdbcTemplate.queryForList(FOLLOWEE_IDS, Long.class, userId, celebrityFollowers);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.DatabaseDialect;
+import com.example.demo.dto.UserSummaryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain JDBC access to user_follows. Going through User.following would make
+ * Hibernate load the whole collection first; a follow or unfollow here is one
+ * statement no matter how many accounts the user already follows.
+ */
+@Repository
+public class FollowRepository {
+
+    // Beide users live houden tot de commit, zoals de rating writers doen (zie RatingUpsertRepositoryImpl):
+    // een tombstone wacht op deze follow, of de follow ziet de tombstone en voegt niets toe
+    private static final String POSTGRES_LOCK_LIVE_USERS =
+        "SELECT id FROM users WHERE id IN (?, ?) AND deleted_at IS NULL ORDER BY id FOR KEY SHARE";
+
+    // H2 (test profiel) kent geen FOR KEY SHARE, daar alleen de check
+    private static final String H2_FIND_LIVE_USERS =
+        "SELECT id FROM users WHERE id IN (?, ?) AND deleted_at IS NULL";
+
+    private static final String POSTGRES_FOLLOW =
+        "INSERT INTO user_follows (user_id, followed_user_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    // H2 (test profiel) kent geen ON CONFLICT DO NOTHING
+    private static final String PORTABLE_FOLLOW =
+        "INSERT INTO user_follows (user_id, followed_user_id) SELECT ?, ? " +
+        "WHERE NOT EXISTS (SELECT 1 FROM user_follows WHERE user_id = ? AND followed_user_id = ?)";
+
+    private static final String UNFOLLOW =
+        "DELETE FROM user_follows WHERE user_id = ? AND followed_user_id = ?";
+
+    // Beide tellers in een statement; werkt ook als iemand zichzelf volgt
+    private static final String ADJUST_COUNTS =
+        "UPDATE users SET " +
+        "following_count = following_count + CASE WHEN id = ? THEN ? ELSE 0 END, " +
+        "followers_count = followers_count + CASE WHEN id = ? THEN ? ELSE 0 END " +
+        "WHERE id IN (?, ?)";
+
+    // Loopt over de (followed_user_id, user_id) index, op follower id gepagineerd
+    private static final String FOLLOWERS =
+        "SELECT u.id, u.username FROM user_follows f JOIN users u ON u.id = f.user_id " +
+        "WHERE f.followed_user_id = ? AND f.user_id > ? AND u.deleted_at IS NULL ORDER BY f.user_id LIMIT ?";
+
+    // Gesorteerd zodat de CSR opbouw in FollowGraphService niet zelf hoeft te sorteren
+    private static final String ALL_EDGES =
+        "SELECT user_id, followed_user_id FROM user_follows ORDER BY user_id, followed_user_id";
+
+    private static final int EDGE_FETCH_SIZE = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    // De ids van de twee die live zijn; alleen binnen de transactie van de follow aanroepen
+    public Set<Long> lockLiveUsers(Long userId, Long followedUserId) {
+        Set<Long> live = new HashSet<>();
+        jdbcTemplate.query(databaseDialect.isPostgres() ? POSTGRES_LOCK_LIVE_USERS : H2_FIND_LIVE_USERS,
+                (RowCallbackHandler) rs -> live.add(rs.getLong(1)), userId, followedUserId);
+        return live;
+    }
+
+    // true als de follow nieuw is, false als hij al bestond
+    public boolean follow(Long userId, Long followedUserId) {
+        int inserted = databaseDialect.isPostgres()
+                ? jdbcTemplate.update(POSTGRES_FOLLOW, userId, followedUserId)
+                : jdbcTemplate.update(PORTABLE_FOLLOW, userId, followedUserId, userId, followedUserId);
+        return inserted > 0;
+    }
+
+    // true als er een follow verwijderd is
+    public boolean unfollow(Long userId, Long followedUserId) {
+        return jdbcTemplate.update(UNFOLLOW, userId, followedUserId) > 0;
+    }
+
+    public void adjustFollowCounts(Long userId, Long followedUserId, long delta) {
+        jdbcTemplate.update(ADJUST_COUNTS, userId, delta, followedUserId, delta, userId, followedUserId);
+    }
+
+    public List<UserSummaryDTO> findFollowers(Long userId, long afterId, int limit) {
+        return jdbcTemplate.query(FOLLOWERS,
+                (rs, rowNum) -> new UserSummaryDTO(rs.getLong("id"), rs.getString("username")),
+                userId, afterId, limit);
+    }
+
+    public interface EdgeConsumer {
+        void accept(long userId, long followedUserId);
+    }
+
+    // Streamt alle follows; de read-only transactie laat de Postgres driver een cursor gebruiken
+    @Transactional(readOnly = true)
+    public void streamEdges(EdgeConsumer consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ALL_EDGES);
+            statement.setFetchSize(EDGE_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getLong(2)));
+    }
+}
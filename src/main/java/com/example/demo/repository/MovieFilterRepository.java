@@ -0,0 +1,10 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.MovieFilterCriteria;
+import com.example.demo.dto.MovieFilterResult;
+
+public interface MovieFilterRepository {
+
+    // Pagina films na afterId plus genre/decennium facetten, in een statement
+    MovieFilterResult filterMovies(MovieFilterCriteria criteria, long afterId, int limit);
+}
@@ -0,0 +1,111 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.MovieFilterCriteria;
+import com.example.demo.dto.MovieFilterResult;
+import com.example.demo.dto.MovieSummaryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MovieFilterRepositoryImpl implements MovieFilterRepository {
+
+    // De CTE wordt door Postgres een keer gematerialiseerd; pagina, facetten en totaal lezen daarna die ene scan
+    private static final String FILTER_TEMPLATE = """
+        WITH filtered AS (
+            SELECT m.id, m.name, m.release_year, m.duration_minutes, m.poster_url, m.rating_count, m.rating_sum
+            FROM movies m
+            WHERE m.deleted_at IS NULL%s
+        )
+        SELECT 'movie' AS kind, p.id, p.name, p.release_year, p.duration_minutes, p.poster_url,
+               p.rating_count, p.rating_sum, CAST(NULL AS VARCHAR(255)) AS facet_key, CAST(NULL AS BIGINT) AS facet_count
+        FROM (SELECT * FROM filtered WHERE id > :afterId ORDER BY id LIMIT :limit) p
+        UNION ALL
+        SELECT 'genre', NULL, NULL, NULL, NULL, NULL, NULL, NULL, g.genre, COUNT(DISTINCT f.id)
+        FROM filtered f JOIN movie_genres g ON g.movie_id = f.id
+        GROUP BY g.genre
+        UNION ALL
+        SELECT 'decade', NULL, NULL, NULL, NULL, NULL, NULL, NULL,
+               CAST((f.release_year / 10) * 10 AS VARCHAR(255)), COUNT(*)
+        FROM filtered f
+        GROUP BY (f.release_year / 10) * 10
+        UNION ALL
+        SELECT 'total', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, COUNT(*)
+        FROM filtered
+        """;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public MovieFilterResult filterMovies(MovieFilterCriteria criteria, long afterId, int limit) {
+        StringBuilder where = new StringBuilder();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+
+        if (criteria.getMinYear() != null) {
+            where.append(" AND m.release_year >= :minYear");
+            params.addValue("minYear", criteria.getMinYear());
+        }
+        if (criteria.getMaxYear() != null) {
+            where.append(" AND m.release_year <= :maxYear");
+            params.addValue("maxYear", criteria.getMaxYear());
+        }
+        if (criteria.getMinDuration() != null) {
+            where.append(" AND m.duration_minutes >= :minDuration");
+            params.addValue("minDuration", criteria.getMinDuration());
+        }
+        if (criteria.getMaxDuration() != null) {
+            where.append(" AND m.duration_minutes <= :maxDuration");
+            params.addValue("maxDuration", criteria.getMaxDuration());
+        }
+        if (criteria.getGenres() != null && !criteria.getGenres().isEmpty()) {
+            List<String> genres = criteria.getGenres().stream().map(String::toLowerCase).distinct().toList();
+            params.addValue("genres", genres);
+            if (criteria.matchAllGenres()) {
+                where.append(" AND (SELECT COUNT(DISTINCT LOWER(g.genre)) FROM movie_genres g")
+                     .append(" WHERE g.movie_id = m.id AND LOWER(g.genre) IN (:genres)) = :genreCount");
+                params.addValue("genreCount", genres.size());
+            } else {
+                where.append(" AND EXISTS (SELECT 1 FROM movie_genres g")
+                     .append(" WHERE g.movie_id = m.id AND LOWER(g.genre) IN (:genres))");
+            }
+        }
+        if (criteria.getMinRating() != null) {
+            // Gemiddelde >= min zonder deling: sum >= min * count
+            where.append(" AND m.rating_count > 0 AND m.rating_sum >= CAST(:minRating AS DOUBLE PRECISION) * m.rating_count");
+            params.addValue("minRating", criteria.getMinRating());
+        }
+
+        List<MovieSummaryDTO> movies = new ArrayList<>();
+        Map<String, Long> genreCounts = new TreeMap<>();
+        Map<Integer, Long> decadeCounts = new TreeMap<>();
+        long[] total = new long[1];
+
+        jdbcTemplate.query(String.format(FILTER_TEMPLATE, where), params, rs -> {
+            switch (rs.getString("kind")) {
+                case "movie" -> movies.add(new MovieSummaryDTO(
+                        rs.getLong("id"),
+                        rs.getString("name"),
+                        rs.getInt("release_year"),
+                        (Integer) rs.getObject("duration_minutes"),
+                        rs.getString("poster_url"),
+                        rs.getLong("rating_count"),
+                        rs.getLong("rating_sum")));
+                case "genre" -> genreCounts.put(rs.getString("facet_key"), rs.getLong("facet_count"));
+                case "decade" -> decadeCounts.put(Integer.valueOf(rs.getString("facet_key")), rs.getLong("facet_count"));
+                default -> total[0] = rs.getLong("facet_count");
+            }
+        });
+
+        // UNION ALL garandeert geen volgorde
+        movies.sort(Comparator.comparing(MovieSummaryDTO::getId));
+        return new MovieFilterResult(movies, total[0], genreCounts, decadeCounts);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingSummaryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The ratings of one movie, a page at a time, and their summary. Every sort
+ * order has an index on (movie_id, sort key..., id), so a page is a seek to
+ * the cursor followed by LIMIT rows instead of reading all of a
+ * blockbuster's ratings.
+ */
+@Repository
+public class MovieRatingsRepository {
+
+    public enum Sort {
+        // idx_ratings_movie_created, achterwaarts gelezen
+        NEWEST(" AND (r.created_at, r.id) < (?, ?)", " ORDER BY r.created_at DESC, r.id DESC"),
+        // idx_ratings_movie_rating, achterwaarts: hoogste eerst, daarbinnen nieuwste eerst
+        HIGHEST(" AND (r.rating, r.created_at, r.id) < (?, ?, ?)", " ORDER BY r.rating DESC, r.created_at DESC, r.id DESC"),
+        // idx_ratings_movie_rating, voorwaarts: laagste eerst, daarbinnen oudste eerst
+        LOWEST(" AND (r.rating, r.created_at, r.id) > (?, ?, ?)", " ORDER BY r.rating, r.created_at, r.id");
+
+        private final String seek;
+        private final String orderBy;
+
+        Sort(String seek, String orderBy) {
+            this.seek = seek;
+            this.orderBy = orderBy;
+        }
+    }
+
+    private static final String PAGE =
+        "SELECT r.id, r.user_id, u.username, r.movie_id, r.rating, r.comment, r.created_at, r.updated_at " +
+        "FROM ratings r JOIN users u ON u.id = r.user_id " +
+        "WHERE r.movie_id = ? AND u.deleted_at IS NULL";
+
+    // Aantal, som en histogram in een statement, over dezelfde ratings als PAGE: die van verwijderde users
+    // tellen niet meer mee, ook al staan ze nog in de tabel (en in movies.rating_count) tot de purge
+    private static final String SUMMARY =
+        "SELECT COUNT(*) AS total, COALESCE(SUM(r.rating), 0) AS rating_sum, " +
+        "COALESCE(SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END), 0) AS stars_1, " +
+        "COALESCE(SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END), 0) AS stars_2, " +
+        "COALESCE(SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END), 0) AS stars_3, " +
+        "COALESCE(SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END), 0) AS stars_4, " +
+        "COALESCE(SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END), 0) AS stars_5 " +
+        "FROM ratings r JOIN users u ON u.id = r.user_id " +
+        "WHERE r.movie_id = ? AND u.deleted_at IS NULL";
+
+    // Startpunt voor RatingHistogramStore: hooguit vijf rijen per film. Zonder filter op users, want de store
+    // volgt daarna de events, en de purge haalt de ratings van een verwijderde user er met delete events af
+    private static final String RATING_COUNTS =
+        "SELECT r.movie_id, r.rating, COUNT(*) FROM ratings r JOIN movies m ON m.id = r.movie_id " +
+        "WHERE m.deleted_at IS NULL GROUP BY r.movie_id, r.rating";
+
+    // Dezelfde tellers voor een paar films, voor films die tijdens de load een event kregen
+    private static final String RATING_COUNTS_OF_MOVIES =
+        "SELECT r.movie_id, r.rating, COUNT(*) FROM ratings r JOIN movies m ON m.id = r.movie_id " +
+        "WHERE m.deleted_at IS NULL AND r.movie_id IN (:movieIds) GROUP BY r.movie_id, r.rating";
+
+    // Startpunt voor TrendingService: de laatste schrijfactie van elke rating binnen het venster
+    private static final String WRITTEN_SINCE =
+        "SELECT r.movie_id, r.rating, r.updated_at FROM ratings r JOIN movies m ON m.id = r.movie_id " +
+        "WHERE m.deleted_at IS NULL AND r.updated_at >= :since";
+
+    // Per IN lijst; PostgreSQL staat hooguit 32767 parameters per statement toe
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public interface RatingCountConsumer {
+        void accept(long movieId, int rating, long count);
+    }
+
+    public interface WrittenRatingConsumer {
+        void accept(long movieId, int rating, LocalDateTime writtenAt);
+    }
+
+    // Zonder cursor de eerste pagina; afterRating wordt bij NEWEST genegeerd
+    public List<RatingDTO> findPage(Long movieId, Sort sort, Integer afterRating, LocalDateTime afterCreatedAt,
+                                    Long afterId, int limit) {
+        if (afterId == null) {
+            return jdbcTemplate.query(PAGE + sort.orderBy + " LIMIT ?",
+                    (rs, rowNum) -> RatingUpsertRepositoryImpl.mapRating(rs), movieId, limit);
+        }
+
+        Timestamp createdAt = Timestamp.valueOf(afterCreatedAt);
+        Object[] args = sort == Sort.NEWEST
+                ? new Object[] {movieId, createdAt, afterId, limit}
+                : new Object[] {movieId, afterRating, createdAt, afterId, limit};
+        return jdbcTemplate.query(PAGE + sort.seek + sort.orderBy + " LIMIT ?",
+                (rs, rowNum) -> RatingUpsertRepositoryImpl.mapRating(rs), args);
+    }
+
+    public RatingSummaryDTO findSummary(Long movieId) {
+        return jdbcTemplate.queryForObject(SUMMARY, (rs, rowNum) -> new RatingSummaryDTO(
+                rs.getLong("total"),
+                rs.getLong("rating_sum"),
+                new long[] {rs.getLong("stars_1"), rs.getLong("stars_2"), rs.getLong("stars_3"),
+                        rs.getLong("stars_4"), rs.getLong("stars_5")}), movieId);
+    }
+
+    public void forEachRatingCount(RatingCountConsumer consumer) {
+        jdbcTemplate.query(RATING_COUNTS,
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getInt(2), rs.getLong(3)));
+    }
+
+    public void forEachRatingCount(Collection<Long> movieIds, RatingCountConsumer consumer) {
+        forEachChunk(movieIds, chunk -> namedParameterJdbcTemplate.query(RATING_COUNTS_OF_MOVIES,
+                new MapSqlParameterSource("movieIds", chunk),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getInt(2), rs.getLong(3))));
+    }
+
+    public void forEachRatingWrittenSince(LocalDateTime since, WrittenRatingConsumer consumer) {
+        namedParameterJdbcTemplate.query(WRITTEN_SINCE, new MapSqlParameterSource("since", Timestamp.valueOf(since)),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getInt(2),
+                        rs.getObject(3, LocalDateTime.class)));
+    }
+
+    public void forEachRatingWrittenSince(LocalDateTime since, Collection<Long> movieIds,
+                                          WrittenRatingConsumer consumer) {
+        forEachChunk(movieIds, chunk -> namedParameterJdbcTemplate.query(WRITTEN_SINCE + " AND r.movie_id IN (:movieIds)",
+                new MapSqlParameterSource("since", Timestamp.valueOf(since)).addValue("movieIds", chunk),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1), rs.getInt(2),
+                        rs.getObject(3, LocalDateTime.class))));
+    }
+
+    private static void forEachChunk(Collection<Long> ids, Consumer<List<Long>> query) {
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += MAX_IDS_PER_QUERY) {
+            query.accept(all.subList(from, Math.min(from + MAX_IDS_PER_QUERY, all.size())));
+        }
+    }
+}
@@ -1,19 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.MovieSuggestionDTO;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.dto.RatingSummaryDTO;
 import com.example.demo.model.Movie;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Long> {
-    
-    // Zoek films op naam (case insensitive)
-    List<Movie> findByNameContainingIgnoreCase(String name);
+public interface MovieRepository extends JpaRepository<Movie, Long>, MovieSearchRepository, MovieFilterRepository {
     
     // Zoek films op release jaar
     List<Movie> findByReleaseYear(Integer year);
@@ -21,10 +26,15 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     // Zoek films tussen bepaalde jaren
     List<Movie> findByReleaseYearBetween(Integer startYear, Integer endYear);
     
-    // Zoek films op genre
+    // Zoek films op genre (genres meteen mee geladen, de lijst wordt gecached)
+    @EntityGraph(attributePaths = "genres")
     @Query("SELECT DISTINCT m FROM Movie m JOIN m.genres g WHERE LOWER(g) = LOWER(:genre)")
     List<Movie> findByGenre(@Param("genre") String genre);
     
+    // Film met genres in een query, zodat de gecachte entity geen lazy collectie meer nodig heeft
+    @EntityGraph(attributePaths = "genres")
+    Optional<Movie> findWithGenresById(Long id);
+
     // Check of film met exacte naam al bestaat
     Optional<Movie> findByNameIgnoreCase(String name);
     
@@ -33,4 +43,61 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     
     // Zoek films langer dan bepaalde duur
     List<Movie> findByDurationMinutesGreaterThan(Integer duration);
-}
\ No newline at end of file
+
+    // Lichte projectie voor de catalogus, keyset gepagineerd op id
+    @Query("SELECT new com.example.demo.dto.MovieSummaryDTO(" +
+           "m.id, m.name, m.releaseYear, m.durationMinutes, m.posterUrl, m.ratingCount, m.ratingSum) " +
+           "FROM Movie m WHERE m.id > :afterId ORDER BY m.id")
+    List<MovieSummaryDTO> findSummariesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // Genres voor een hele pagina films in een query (voorkomt N+1)
+    @Query("SELECT m.id, g FROM Movie m JOIN m.genres g WHERE m.id IN :movieIds")
+    List<Object[]> findGenresByMovieIds(@Param("movieIds") List<Long> movieIds);
+
+    // Gedenormaliseerde rating totalen, in dezelfde transactie als de rating zelf bijgewerkt
+    @Modifying
+    @Query("UPDATE Movie m SET m.ratingCount = m.ratingCount + :countDelta, " +
+           "m.ratingSum = m.ratingSum + :sumDelta WHERE m.id = :movieId")
+    int adjustRatingAggregates(@Param("movieId") Long movieId,
+                               @Param("countDelta") long countDelta,
+                               @Param("sumDelta") long sumDelta);
+
+    // Startpunt voor de in-memory leaderboard: alleen films met minstens een rating
+    @Query("SELECT m.id, m.name, m.ratingCount, m.ratingSum FROM Movie m WHERE m.ratingCount > 0")
+    List<Object[]> findRatedMovieAggregates();
+
+    // Dezelfde kolommen voor een paar films, ook zonder ratings; verwijderde films ontbreken
+    @Query("SELECT m.id, m.name, m.ratingCount, m.ratingSum FROM Movie m WHERE m.id IN :ids")
+    List<Object[]> findRatingAggregates(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT m.id, m.name FROM Movie m")
+    List<Object[]> findAllNames();
+
+    // Alleen wat de autocomplete index nodig heeft
+    @Query("SELECT new com.example.demo.dto.MovieSuggestionDTO(m.id, m.name, m.releaseYear, m.posterUrl) FROM Movie m")
+    List<MovieSuggestionDTO> findAllSuggestions();
+
+    // Kolommen voor de in-memory catalogus (MovieCatalogReadModel), op id gesorteerd
+    @Query("SELECT m.id, m.name, m.releaseYear, m.durationMinutes, m.description, m.posterUrl, " +
+           "m.ratingCount, m.ratingSum FROM Movie m ORDER BY m.id")
+    List<Object[]> findCatalogColumns();
+
+    @Query("SELECT m.id, g FROM Movie m JOIN m.genres g")
+    List<Object[]> findAllGenres();
+
+    @Query("SELECT new com.example.demo.dto.RatingSummaryDTO(m.ratingCount, m.ratingSum) " +
+           "FROM Movie m WHERE m.id = :movieId")
+    Optional<RatingSummaryDTO> findRatingSummary(@Param("movieId") Long movieId);
+
+    // Voor markDeleted in dezelfde transactie: FOR UPDATE wacht op rating writers die de film met KEY SHARE
+    // vasthouden, en wie daarna komt ziet de tombstone (een UPDATE van deleted_at alleen botst daar niet mee)
+    @Query(value = "SELECT id FROM movies WHERE id = :id AND deleted_at IS NULL FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockForDelete(@Param("id") Long id);
+
+    // Soft delete: vanaf nu onzichtbaar (@SQLRestriction), PurgeService verwijdert de film en zijn ratings later
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE movies SET deleted_at = CURRENT_TIMESTAMP WHERE id = :id AND deleted_at IS NULL",
+           nativeQuery = true)
+    int markDeleted(@Param("id") Long id);
+}
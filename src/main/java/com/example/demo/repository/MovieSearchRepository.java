@@ -0,0 +1,11 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.MovieSearchResultDTO;
+
+import java.util.List;
+
+public interface MovieSearchRepository {
+
+    // Zoekt in titel en beschrijving, beste match eerst
+    List<MovieSearchResultDTO> searchMovies(String term, int limit);
+}
@@ -0,0 +1,69 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.DatabaseDialect;
+import com.example.demo.dto.MovieSearchResultDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.List;
+
+public class MovieSearchRepositoryImpl implements MovieSearchRepository {
+
+    // Full-text match op search_vector (GIN) of een typo-tolerante trigram match op de titel (GIN)
+    private static final String POSTGRES_SEARCH = """
+        SELECT m.id, m.name, m.release_year, m.poster_url,
+               ts_rank_cd(m.search_vector, q) + word_similarity(lower(:term), lower(m.name)) AS score
+        FROM movies m, websearch_to_tsquery('english', :term) q
+        WHERE (m.search_vector @@ q OR lower(:term) <% lower(m.name)) AND m.deleted_at IS NULL
+        ORDER BY score DESC, m.id
+        LIMIT :limit
+        """;
+
+    // H2 (test profiel): geen tsvector of pg_trgm, dus een LIKE scan met een simpele ranking
+    private static final String PORTABLE_SEARCH = """
+        SELECT m.id, m.name, m.release_year, m.poster_url,
+               CASE WHEN LOWER(m.name) = :term THEN 3.0
+                    WHEN LOWER(m.name) LIKE :prefix THEN 2.0
+                    WHEN LOWER(m.name) LIKE :contains THEN 1.0
+                    ELSE 0.5 END AS score
+        FROM movies m
+        WHERE (LOWER(m.name) LIKE :contains OR LOWER(m.description) LIKE :contains) AND m.deleted_at IS NULL
+        ORDER BY score DESC, m.id
+        LIMIT :limit
+        """;
+
+    private static final RowMapper<MovieSearchResultDTO> ROW_MAPPER = (rs, rowNum) -> new MovieSearchResultDTO(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getInt("release_year"),
+            rs.getString("poster_url"),
+            rs.getDouble("score"));
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    @Override
+    public List<MovieSearchResultDTO> searchMovies(String term, int limit) {
+        String normalized = term.trim().toLowerCase();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("term", normalized)
+                .addValue("limit", limit);
+
+        if (databaseDialect.isPostgres()) {
+            return jdbcTemplate.query(POSTGRES_SEARCH, params, ROW_MAPPER);
+        }
+
+        String escaped = escapeLike(normalized);
+        params.addValue("prefix", escaped + "%").addValue("contains", "%" + escaped + "%");
+        return jdbcTemplate.query(PORTABLE_SEARCH, params, ROW_MAPPER);
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access for PurgeService. Soft-deleted rows are invisible to the
+ * entities (@SQLRestriction), and the dependents are removed in batches by id
+ * instead of through a JPA cascade that would load them all first.
+ */
+@Repository
+public class PurgeRepository {
+
+    public enum Table {
+        USERS("users"),
+        MOVIES("movies");
+
+        private final String name;
+
+        Table(String name) {
+            this.name = name;
+        }
+    }
+
+    // Loopt over de partiele index op deleted_at, oudste tombstone eerst
+    private static final String TOMBSTONES =
+        "SELECT id, deleted_at FROM %s WHERE deleted_at IS NOT NULL ORDER BY deleted_at, id LIMIT ?";
+
+    private static final String TOMBSTONE_COUNT =
+        "SELECT COUNT(*) FROM %s WHERE deleted_at IS NOT NULL";
+
+    private static final String TOMBSTONE =
+        "SELECT id, deleted_at FROM %s WHERE id = ? AND deleted_at IS NOT NULL";
+
+    private static final String RATINGS_BY_USER =
+        "SELECT id, movie_id, rating FROM ratings WHERE user_id = ? LIMIT ?";
+
+    private static final String RATING_IDS_BY_MOVIE =
+        "SELECT id FROM ratings WHERE movie_id = ? LIMIT ?";
+
+    private static final String DELETE_RATING = "DELETE FROM ratings WHERE id = ?";
+
+    // Op de andere kant gesorteerd, zodat de tellers altijd in dezelfde volgorde gelockt worden
+    private static final String FOLLOWED_IDS =
+        "SELECT followed_user_id FROM user_follows WHERE user_id = ? ORDER BY followed_user_id LIMIT ?";
+
+    private static final String FOLLOWER_IDS =
+        "SELECT user_id FROM user_follows WHERE followed_user_id = ? ORDER BY user_id LIMIT ?";
+
+    private static final String DELETE_FOLLOW =
+        "DELETE FROM user_follows WHERE user_id = ? AND followed_user_id = ?";
+
+    private static final String DECREMENT_FOLLOWERS =
+        "UPDATE users SET followers_count = followers_count - 1 WHERE id = ?";
+
+    private static final String DECREMENT_FOLLOWING =
+        "UPDATE users SET following_count = following_count - 1 WHERE id = ?";
+
+    private static final String DELETE_MOVIE_GENRES = "DELETE FROM movie_genres WHERE movie_id = ?";
+
+    private static final String DELETE_TOMBSTONE = "DELETE FROM %s WHERE id = ? AND deleted_at IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public record Tombstone(long id, LocalDateTime deletedAt) {
+    }
+
+    public record RatingRow(long id, long movieId, int rating) {
+    }
+
+    public List<Tombstone> findTombstones(Table table, int limit) {
+        return jdbcTemplate.query(String.format(TOMBSTONES, table.name),
+                (rs, rowNum) -> new Tombstone(rs.getLong("id"), rs.getTimestamp("deleted_at").toLocalDateTime()),
+                limit);
+    }
+
+    public long countTombstones(Table table) {
+        Long count = jdbcTemplate.queryForObject(String.format(TOMBSTONE_COUNT, table.name), Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public Optional<Tombstone> findTombstone(Table table, long id) {
+        return jdbcTemplate.query(String.format(TOMBSTONE, table.name),
+                (rs, rowNum) -> new Tombstone(rs.getLong("id"), rs.getTimestamp("deleted_at").toLocalDateTime()),
+                id).stream().findFirst();
+    }
+
+    public List<RatingRow> findRatingsByUser(long userId, int limit) {
+        return jdbcTemplate.query(RATINGS_BY_USER,
+                (rs, rowNum) -> new RatingRow(rs.getLong("id"), rs.getLong("movie_id"), rs.getInt("rating")),
+                userId, limit);
+    }
+
+    public List<Long> findRatingIdsByMovie(long movieId, int limit) {
+        return jdbcTemplate.queryForList(RATING_IDS_BY_MOVIE, Long.class, movieId, limit);
+    }
+
+    public void deleteRatings(List<Long> ratingIds) {
+        List<Object[]> args = new ArrayList<>(ratingIds.size());
+        for (Long ratingId : ratingIds) {
+            args.add(new Object[] {ratingId});
+        }
+        jdbcTemplate.batchUpdate(DELETE_RATING, args);
+    }
+
+    public List<Long> findFollowedIds(long userId, int limit) {
+        return jdbcTemplate.queryForList(FOLLOWED_IDS, Long.class, userId, limit);
+    }
+
+    public List<Long> findFollowerIds(long userId, int limit) {
+        return jdbcTemplate.queryForList(FOLLOWER_IDS, Long.class, userId, limit);
+    }
+
+    // Verwijdert userId -> followedIds en houdt followers_count van de andere kant bij
+    public void deleteFollowing(long userId, List<Long> followedIds) {
+        List<Object[]> follows = new ArrayList<>(followedIds.size());
+        List<Object[]> counts = new ArrayList<>(followedIds.size());
+        for (Long followedId : followedIds) {
+            follows.add(new Object[] {userId, followedId});
+            counts.add(new Object[] {followedId});
+        }
+        jdbcTemplate.batchUpdate(DELETE_FOLLOW, follows);
+        jdbcTemplate.batchUpdate(DECREMENT_FOLLOWERS, counts);
+    }
+
+    // Verwijdert followerIds -> userId en houdt following_count van de andere kant bij
+    public void deleteFollowers(long userId, List<Long> followerIds) {
+        List<Object[]> follows = new ArrayList<>(followerIds.size());
+        List<Object[]> counts = new ArrayList<>(followerIds.size());
+        for (Long followerId : followerIds) {
+            follows.add(new Object[] {followerId, userId});
+            counts.add(new Object[] {followerId});
+        }
+        jdbcTemplate.batchUpdate(DELETE_FOLLOW, follows);
+        jdbcTemplate.batchUpdate(DECREMENT_FOLLOWING, counts);
+    }
+
+    // Alleen een rij die nog steeds een tombstone heeft
+    public boolean deleteTombstone(Table table, long id) {
+        if (table == Table.MOVIES) {
+            jdbcTemplate.update(DELETE_MOVIE_GENRES, id);
+        }
+        return jdbcTemplate.update(String.format(DELETE_TOMBSTONE, table.name), id) > 0;
+    }
+}
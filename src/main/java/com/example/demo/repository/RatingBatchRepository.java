@@ -0,0 +1,209 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.DatabaseDialect;
+import com.example.demo.dto.RatingRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plain JDBC batch writes for bulk rating ingestion. Rating ids come from an
+ * IDENTITY column, which makes Hibernate give up on insert batching, so this
+ * bypasses the entity layer and sends each chunk as one JDBC batch.
+ *
+ * Insert or update is decided by the database, not by an earlier read:
+ * existing rows are locked before they are updated, and new pairs go in
+ * with ON CONFLICT DO NOTHING, whose RETURNING tells which rows this
+ * transaction created. A pair another transaction created in between is
+ * locked and updated in the next round. Ratings are only written for users
+ * and movies that are live and locked until the commit.
+ */
+@Repository
+public class RatingBatchRepository {
+
+    public record RatingKey(long userId, long movieId) {}
+
+    // Live users en movies van de chunk; KEY SHARE houdt ze live tot de commit (zie RatingUpsertRepositoryImpl)
+    private static final String POSTGRES_LOCK_LIVE_USERS =
+        "SELECT id FROM users WHERE id = ANY(CAST(? AS BIGINT[])) AND deleted_at IS NULL ORDER BY id FOR KEY SHARE";
+
+    private static final String POSTGRES_LOCK_LIVE_MOVIES =
+        "SELECT id FROM movies WHERE id = ANY(CAST(? AS BIGINT[])) AND deleted_at IS NULL ORDER BY id FOR KEY SHARE";
+
+    private static final String H2_FIND_LIVE_USERS =
+        "SELECT id FROM users WHERE id IN (:ids) AND deleted_at IS NULL";
+
+    private static final String H2_FIND_LIVE_MOVIES =
+        "SELECT id FROM movies WHERE id IN (:ids) AND deleted_at IS NULL";
+
+    // Bestaande ratings van de chunk vergrendelen, in een vaste volgorde tegen deadlocks tussen batches
+    private static final String POSTGRES_LOCK_CURRENT =
+        "SELECT r.user_id, r.movie_id, r.rating FROM ratings r " +
+        "JOIN UNNEST(CAST(? AS BIGINT[]), CAST(? AS BIGINT[])) AS k(user_id, movie_id) " +
+        "ON r.user_id = k.user_id AND r.movie_id = k.movie_id " +
+        "ORDER BY r.user_id, r.movie_id FOR UPDATE OF r";
+
+    // Een statement voor alle nieuwe paren; RETURNING zegt welke echt ingevoegd zijn. Wat een gelijktijdige
+    // transactie net aanmaakte wordt overgeslagen en in de volgende ronde een update
+    private static final String POSTGRES_INSERT_MISSING =
+        "INSERT INTO ratings (user_id, movie_id, rating, comment, created_at, updated_at) " +
+        "SELECT k.user_id, k.movie_id, k.rating, k.comment, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP " +
+        "FROM UNNEST(CAST(? AS BIGINT[]), CAST(? AS BIGINT[]), CAST(? AS INTEGER[]), CAST(? AS TEXT[])) " +
+        "AS k(user_id, movie_id, rating, comment) " +
+        "ON CONFLICT (user_id, movie_id) DO NOTHING " +
+        "RETURNING user_id, movie_id";
+
+    // H2 (test profiel): een superset van de paren vergrendelen, de caller filtert
+    private static final String H2_LOCK_CURRENT =
+        "SELECT user_id, movie_id, rating FROM ratings WHERE user_id IN (:userIds) AND movie_id IN (:movieIds) " +
+        "ORDER BY user_id, movie_id FOR UPDATE";
+
+    // H2 kent geen ON CONFLICT; een MERGE met alleen WHEN NOT MATCHED geeft per item 0 of 1
+    private static final String H2_INSERT_MISSING =
+        "MERGE INTO ratings r " +
+        "USING (SELECT CAST(? AS BIGINT) AS user_id, CAST(? AS BIGINT) AS movie_id, " +
+        "CAST(? AS INTEGER) AS rating, CAST(? AS CLOB) AS comment) s " +
+        "ON r.user_id = s.user_id AND r.movie_id = s.movie_id " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, movie_id, rating, comment, created_at, updated_at) " +
+        "VALUES (s.user_id, s.movie_id, s.rating, s.comment, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+
+    private static final String UPDATE_EXISTING =
+        "UPDATE ratings SET rating = ?, comment = ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ? AND movie_id = ?";
+
+    private static final String ADJUST_AGGREGATES =
+        "UPDATE movies SET rating_count = rating_count + ?, rating_sum = rating_sum + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    public Set<Long> lockLiveUsers(Set<Long> ids) {
+        return lockLive(ids, POSTGRES_LOCK_LIVE_USERS, H2_FIND_LIVE_USERS);
+    }
+
+    public Set<Long> lockLiveMovies(Set<Long> ids) {
+        return lockLive(ids, POSTGRES_LOCK_LIVE_MOVIES, H2_FIND_LIVE_MOVIES);
+    }
+
+    private Set<Long> lockLive(Set<Long> ids, String postgresSql, String h2Sql) {
+        Set<Long> live = new HashSet<>();
+        if (ids.isEmpty()) {
+            return live;
+        }
+
+        RowCallbackHandler collect = rs -> live.add(rs.getLong(1));
+        if (databaseDialect.isPostgres()) {
+            jdbcTemplate.query(postgresSql,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())), collect);
+        } else {
+            namedParameterJdbcTemplate.query(h2Sql, new MapSqlParameterSource("ids", ids), collect);
+        }
+        return live;
+    }
+
+    // Huidige waarde van de paren die al bestaan; de rijen blijven vergrendeld tot de commit
+    public Map<RatingKey, Integer> lockCurrentValues(Set<RatingKey> keys) {
+        Map<RatingKey, Integer> current = new HashMap<>();
+        if (keys.isEmpty()) {
+            return current;
+        }
+
+        RowCallbackHandler collect = rs -> {
+            RatingKey key = new RatingKey(rs.getLong(1), rs.getLong(2));
+            if (keys.contains(key)) {
+                current.put(key, rs.getInt(3));
+            }
+        };
+        if (databaseDialect.isPostgres()) {
+            jdbcTemplate.query(POSTGRES_LOCK_CURRENT, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint",
+                        keys.stream().map(RatingKey::userId).toArray()));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint",
+                        keys.stream().map(RatingKey::movieId).toArray()));
+            }, collect);
+        } else {
+            Set<Long> userIds = new HashSet<>();
+            Set<Long> movieIds = new HashSet<>();
+            for (RatingKey key : keys) {
+                userIds.add(key.userId());
+                movieIds.add(key.movieId());
+            }
+            namedParameterJdbcTemplate.query(H2_LOCK_CURRENT,
+                    new MapSqlParameterSource("userIds", userIds).addValue("movieIds", movieIds), collect);
+        }
+        return current;
+    }
+
+    // Alleen voor paren die lockCurrentValues net vergrendeld heeft
+    public void updateRatings(List<RatingRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(requests.size());
+        for (RatingRequest request : requests) {
+            args.add(new Object[] {request.getRating(), request.getComment(), request.getUserId(), request.getMovieId()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_EXISTING, args);
+    }
+
+    // Geeft de paren die deze transactie echt heeft ingevoegd
+    public Set<RatingKey> insertMissingRatings(List<RatingRequest> requests) {
+        Set<RatingKey> inserted = new HashSet<>();
+        if (requests.isEmpty()) {
+            return inserted;
+        }
+
+        if (databaseDialect.isPostgres()) {
+            jdbcTemplate.query(POSTGRES_INSERT_MISSING, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("bigint",
+                        requests.stream().map(RatingRequest::getUserId).toArray()));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint",
+                        requests.stream().map(RatingRequest::getMovieId).toArray()));
+                ps.setArray(3, ps.getConnection().createArrayOf("integer",
+                        requests.stream().map(RatingRequest::getRating).toArray()));
+                ps.setArray(4, ps.getConnection().createArrayOf("text",
+                        requests.stream().map(RatingRequest::getComment).toArray()));
+            }, (RowCallbackHandler) rs -> inserted.add(new RatingKey(rs.getLong(1), rs.getLong(2))));
+            return inserted;
+        }
+
+        List<Object[]> args = new ArrayList<>(requests.size());
+        for (RatingRequest request : requests) {
+            args.add(new Object[] {request.getUserId(), request.getMovieId(), request.getRating(), request.getComment()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(H2_INSERT_MISSING, args);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.add(new RatingKey(requests.get(i).getUserId(), requests.get(i).getMovieId()));
+            }
+        }
+        return inserted;
+    }
+
+    // deltas: movieId -> {countDelta, sumDelta}
+    public void adjustRatingAggregates(Map<Long, long[]> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((movieId, delta) -> args.add(new Object[] {delta[0], delta[1], movieId}));
+        jdbcTemplate.batchUpdate(ADJUST_AGGREGATES, args);
+    }
+}
@@ -1,38 +1,67 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.UserRatingDTO;
 import com.example.demo.model.Rating;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import com.example.demo.dto.RatingDTO;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface RatingRepository extends JpaRepository<Rating, Long> {
+public interface RatingRepository extends JpaRepository<Rating, Long>, RatingUpsertRepository {
 
-    List<Rating> findByMovieId(Long movieId);
+    // User en movie via inner joins: ratings van verwijderde (tombstoned) accounts of films vallen zo weg
+    // tot PurgeService ze opruimt, en Hibernate hoeft geen onzichtbare parent te laden
+    @Override
+    @Query("SELECT r FROM Rating r JOIN FETCH r.user JOIN FETCH r.movie WHERE r.id = :id")
+    Optional<Rating> findById(@Param("id") Long id);
 
-    List<Rating> findByUserId(Long userId);
+    @Query("SELECT r.user.id FROM Rating r WHERE r.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
 
-    Optional<Rating> findByUserIdAndMovieId(Long userId, Long movieId);
+    @Query("SELECT r FROM Rating r JOIN FETCH r.user JOIN FETCH r.movie WHERE r.movie.id = :movieId")
+    List<Rating> findByMovieId(@Param("movieId") Long movieId);
 
-    @Query("SELECT AVG(r.rating) FROM Rating r WHERE r.movie.id = :movieId")
-    Double getAverageRatingForMovie(@Param("movieId") Long movieId);
+    // Rating historie van een user, laatst gewijzigd eerst: een seek op idx_ratings_user_updated,
+    // met alleen de film kolommen die een profielpagina toont
+    @Query("SELECT new com.example.demo.dto.UserRatingDTO(r.id, m.id, m.name, m.posterUrl, r.rating, r.comment, " +
+           "r.createdAt, r.updatedAt) FROM Rating r JOIN r.movie m WHERE r.user.id = :userId " +
+           "ORDER BY r.updatedAt DESC, r.id DESC")
+    List<UserRatingDTO> findHistory(@Param("userId") Long userId, Limit limit);
 
-    Long countByMovieId(Long movieId);
+    // De losse <= geeft de index een bereik om vanaf te seeken; alleen de OR wordt dan een filter
+    @Query("SELECT new com.example.demo.dto.UserRatingDTO(r.id, m.id, m.name, m.posterUrl, r.rating, r.comment, " +
+           "r.createdAt, r.updatedAt) FROM Rating r JOIN r.movie m WHERE r.user.id = :userId " +
+           "AND r.updatedAt <= :beforeUpdatedAt AND (r.updatedAt < :beforeUpdatedAt OR r.id < :beforeId) " +
+           "ORDER BY r.updatedAt DESC, r.id DESC")
+    List<UserRatingDTO> findHistoryBefore(@Param("userId") Long userId,
+                                          @Param("beforeUpdatedAt") LocalDateTime beforeUpdatedAt,
+                                          @Param("beforeId") Long beforeId, Limit limit);
 
-    @Query ("SELECT r.movie.id, AVG(r.rating) as avgRating" +
-            " FROM Rating r" +
-            " GROUP BY r.movie.id" +
-            " ORDER BY avgRating DESC")
-    List<Object[]> findTopRatedMovies();
+    @Query("SELECT r FROM Rating r JOIN FETCH r.user JOIN FETCH r.movie " +
+           "WHERE r.user.id = :userId AND r.movie.id = :movieId")
+    Optional<Rating> findByUserIdAndMovieId(@Param("userId") Long userId, @Param("movieId") Long movieId);
 
-    @Query("SELECT new com.example.demo.dto.RatingDTO(" +
-       "r.id, r.user.id, r.user.username, r.movie.id, " +
-       "r.rating, r.comment, r.createdAt, r.updatedAt) " +
-       "FROM Rating r WHERE r.movie.id = :movieId")
-    List<RatingDTO> findRatingDTOsByMovieId(@Param("movieId") Long movieId);
-}
\ No newline at end of file
+    // Per kandidaat: aantal films die ook door userId gerate zijn en de som van de absolute verschillen
+    @Query("SELECT c.user.id, COUNT(c), SUM(ABS(c.rating - m.rating)) FROM Rating m, Rating c " +
+           "WHERE c.movie.id = m.movie.id AND m.user.id = :userId AND c.user.id IN :candidateIds " +
+           "GROUP BY c.user.id")
+    List<Object[]> findTasteOverlap(@Param("userId") Long userId,
+                                    @Param("candidateIds") Collection<Long> candidateIds);
+
+    // Aantal en som van de ratings die de gevolgde accounts van userId aan elk van de films gaven
+    @Query(value = "SELECT r.movie_id, COUNT(*), SUM(r.rating) FROM user_follows f " +
+                   "JOIN users u ON u.id = f.followed_user_id " +
+                   "JOIN ratings r ON r.user_id = f.followed_user_id " +
+                   "WHERE f.user_id = :userId AND u.deleted_at IS NULL AND r.movie_id IN (:movieIds) " +
+                   "GROUP BY r.movie_id",
+           nativeQuery = true)
+    List<Object[]> findFollowingRatingTotals(@Param("userId") Long userId,
+                                             @Param("movieIds") Collection<Long> movieIds);
+}
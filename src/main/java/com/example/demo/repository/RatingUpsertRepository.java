@@ -0,0 +1,13 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.RatingWriteResult;
+
+import java.util.Optional;
+
+public interface RatingUpsertRepository {
+
+    // Insert of update van een rating; previousRating is null bij een nieuwe rating. Leeg als de user of
+    // movie niet bestaat of verwijderd is. Alleen binnen een transactie aanroepen: de rating en de user en
+    // movie blijven vergrendeld, zodat previousRating klopt en geen delete ertussen komt tot de commit
+    Optional<RatingWriteResult> upsertRating(Long userId, Long movieId, Integer rating, String comment);
+}
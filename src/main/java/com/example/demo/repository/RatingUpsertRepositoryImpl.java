@@ -0,0 +1,140 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.DatabaseDialect;
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingWriteResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public class RatingUpsertRepositoryImpl implements RatingUpsertRepository {
+
+    // Alleen live users en movies krijgen ratings. KEY SHARE houdt ze live tot de commit: andere writers
+    // en de aggregate update gaan gewoon door, een delete (SELECT ... FOR UPDATE voor de tombstone) wacht
+    private static final String POSTGRES_LOCK_LIVE_PARENTS = """
+        SELECT (SELECT id FROM users WHERE id = :userId AND deleted_at IS NULL FOR KEY SHARE) AS user_id,
+               (SELECT id FROM movies WHERE id = :movieId AND deleted_at IS NULL FOR KEY SHARE) AS movie_id
+        """;
+
+    // H2 (test profiel) kent geen KEY SHARE; daar alleen de controle
+    private static final String H2_FIND_LIVE_PARENTS =
+        "SELECT (SELECT id FROM users WHERE id = :userId AND deleted_at IS NULL) AS user_id, " +
+        "(SELECT id FROM movies WHERE id = :movieId AND deleted_at IS NULL) AS movie_id";
+
+    // Een nieuwe rating is een statement. Bestaat het paar al (ook als een gelijktijdige transactie
+    // het net aanmaakte: ON CONFLICT wacht op diens commit), dan voegt dit niets toe en wordt het een update
+    private static final String POSTGRES_INSERT = """
+        INSERT INTO ratings (user_id, movie_id, rating, comment, created_at, updated_at)
+        VALUES (:userId, :movieId, :rating, :comment, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON CONFLICT (user_id, movie_id) DO NOTHING
+        RETURNING id, user_id, (SELECT username FROM users WHERE id = :userId) AS username,
+                  movie_id, rating, comment, created_at, updated_at
+        """;
+
+    private static final String POSTGRES_UPDATE = """
+        UPDATE ratings SET rating = :rating, comment = :comment, updated_at = CURRENT_TIMESTAMP
+        WHERE user_id = :userId AND movie_id = :movieId
+        RETURNING id, user_id, (SELECT username FROM users WHERE id = :userId) AS username,
+                  movie_id, rating, comment, created_at, updated_at
+        """;
+
+    // De row lock houdt de oude waarde geldig tot de transactie (met de aggregate update) commit
+    private static final String LOCK_PREVIOUS =
+        "SELECT rating FROM ratings WHERE user_id = :userId AND movie_id = :movieId FOR UPDATE";
+
+    // H2 (test profiel): geen ON CONFLICT en geen RETURNING
+    private static final String INSERT_NEW =
+        "INSERT INTO ratings (user_id, movie_id, rating, comment, created_at, updated_at) " +
+        "VALUES (:userId, :movieId, :rating, :comment, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+
+    private static final String UPDATE_EXISTING =
+        "UPDATE ratings SET rating = :rating, comment = :comment, updated_at = CURRENT_TIMESTAMP " +
+        "WHERE user_id = :userId AND movie_id = :movieId";
+
+    private static final String SELECT_WRITTEN =
+        "SELECT r.id, r.user_id, u.username, r.movie_id, r.rating, r.comment, r.created_at, r.updated_at " +
+        "FROM ratings r JOIN users u ON u.id = r.user_id " +
+        "WHERE r.user_id = :userId AND r.movie_id = :movieId";
+
+    // Alleen een delete tussen de insert en de lock laat een poging mislukken
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    @Override
+    public Optional<RatingWriteResult> upsertRating(Long userId, Long movieId, Integer rating, String comment) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("movieId", movieId)
+                .addValue("rating", rating)
+                .addValue("comment", comment);
+
+        String lockParents = databaseDialect.isPostgres() ? POSTGRES_LOCK_LIVE_PARENTS : H2_FIND_LIVE_PARENTS;
+        boolean parentsLive = Boolean.TRUE.equals(jdbcTemplate.queryForObject(lockParents, params,
+                (rs, rowNum) -> rs.getObject("user_id") != null && rs.getObject("movie_id") != null));
+        if (!parentsLive) {
+            return Optional.empty();
+        }
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            RatingDTO inserted = insertIfAbsent(params);
+            if (inserted != null) {
+                return Optional.of(new RatingWriteResult(inserted, null));
+            }
+
+            List<Integer> previous = jdbcTemplate.queryForList(LOCK_PREVIOUS, params, Integer.class);
+            if (!previous.isEmpty()) {
+                return Optional.of(new RatingWriteResult(update(params), previous.get(0)));
+            }
+        }
+        throw new ConcurrencyFailureException("Rating for user " + userId + " and movie " + movieId
+                + " kept changing concurrently");
+    }
+
+    private RatingDTO insertIfAbsent(MapSqlParameterSource params) {
+        if (databaseDialect.isPostgres()) {
+            List<RatingDTO> inserted = jdbcTemplate.query(POSTGRES_INSERT, params, (rs, rowNum) -> mapRating(rs));
+            return inserted.isEmpty() ? null : inserted.get(0);
+        }
+
+        // H2 breekt bij een mislukt statement de transactie niet af, dus hier mag de unique constraint beslissen
+        try {
+            jdbcTemplate.update(INSERT_NEW, params);
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject(SELECT_WRITTEN, params, (rs, rowNum) -> mapRating(rs));
+    }
+
+    private RatingDTO update(MapSqlParameterSource params) {
+        if (databaseDialect.isPostgres()) {
+            return jdbcTemplate.queryForObject(POSTGRES_UPDATE, params, (rs, rowNum) -> mapRating(rs));
+        }
+        jdbcTemplate.update(UPDATE_EXISTING, params);
+        return jdbcTemplate.queryForObject(SELECT_WRITTEN, params, (rs, rowNum) -> mapRating(rs));
+    }
+
+    static RatingDTO mapRating(ResultSet rs) throws SQLException {
+        return new RatingDTO(
+                rs.getLong("id"),
+                rs.getLong("user_id"),
+                rs.getString("username"),
+                rs.getLong("movie_id"),
+                rs.getInt("rating"),
+                rs.getString("comment"),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("updated_at", LocalDateTime.class));
+    }
+}
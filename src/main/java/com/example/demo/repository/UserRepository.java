@@ -1,15 +1,73 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.FollowCountsDTO;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
-    List<User> findByUsernameContainingIgnoreCase(String username);
+
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    @Query("SELECT f FROM User u JOIN u.following f WHERE u.id = :userId ORDER BY f.username")
+    List<User> findFollowing(@Param("userId") Long userId);
+
+    @Query("SELECT new com.example.demo.dto.FollowCountsDTO(u.followersCount, u.followingCount) " +
+           "FROM User u WHERE u.id = :userId")
+    Optional<FollowCountsDTO> findFollowCounts(@Param("userId") Long userId);
+
+    // Id en username, keyset gepagineerd op id; nooit de entity (met password hash)
+    @Query("SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username) " +
+           "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserSummaryDTO> findSummariesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // Voor de NDJSON export: alleen binnen een (read-only) transactie gebruiken en de stream sluiten
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username) FROM User u ORDER BY u.id")
+    Stream<UserSummaryDTO> streamAllSummaries();
+
+    // Voor de user caches: alleen id en username, de password hash komt nooit in een cache
+    @Query("SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username) FROM User u WHERE u.id = :id")
+    Optional<UserSummaryDTO> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT new com.example.demo.dto.UserSummaryDTO(u.id, u.username) FROM User u WHERE u.username = :username")
+    Optional<UserSummaryDTO> findSummaryByUsername(@Param("username") String username);
+
+    // Voor markDeleted in dezelfde transactie, zie MovieRepository.lockForDelete
+    @Query(value = "SELECT id FROM users WHERE id = :id AND deleted_at IS NULL FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockForDelete(@Param("id") Long id);
+
+    @Query(value = "SELECT id FROM users WHERE username = :username AND deleted_at IS NULL FOR UPDATE",
+           nativeQuery = true)
+    Optional<Long> lockForDeleteByUsername(@Param("username") String username);
+
+    // Soft delete: vanaf nu onzichtbaar (@SQLRestriction), PurgeService verwijdert de rij later
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE users SET deleted_at = CURRENT_TIMESTAMP WHERE id = :id AND deleted_at IS NULL",
+           nativeQuery = true)
+    int markDeleted(@Param("id") Long id);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE users SET deleted_at = CURRENT_TIMESTAMP WHERE username = :username AND deleted_at IS NULL",
+           nativeQuery = true)
+    int markDeletedByUsername(@Param("username") String username);
 }
@@ -0,0 +1,95 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.DatabaseDialect;
+import com.example.demo.dto.UserSummaryDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC reads on users. Username search is keyset-paginated on
+ * (lower(username), id). On Postgres that key uses the "C" collation so it
+ * matches the indexes from V8: the trigram index answers substring patterns,
+ * the btree answers prefix patterns and the ORDER BY, so a page stops after
+ * LIMIT rows.
+ */
+@Repository
+public class UserSearchRepository {
+
+    public static final int MIN_SUBSTRING_LENGTH = 3;
+
+    private static final String POSTGRES_KEY = "lower(u.username) COLLATE \"C\"";
+    private static final String PORTABLE_KEY = "LOWER(u.username)";
+
+    // %1$s is de sorteersleutel van de database
+    private static final String FOLLOWED_MATCHING =
+        "SELECT u.id, u.username FROM user_follows f JOIN users u ON u.id = f.followed_user_id " +
+        "WHERE f.user_id = ? AND u.deleted_at IS NULL AND %1$s LIKE ? AND (%1$s, u.id) > (?, ?) " +
+        "ORDER BY %1$s, u.id LIMIT ?";
+
+    private static final String ALL_MATCHING =
+        "SELECT u.id, u.username FROM users u " +
+        "WHERE u.deleted_at IS NULL AND %1$s LIKE ? AND (%1$s, u.id) > (?, ?) " +
+        "ORDER BY %1$s, u.id LIMIT ?";
+
+    private static final String NOT_FOLLOWED_MATCHING =
+        "SELECT u.id, u.username FROM users u " +
+        "WHERE u.deleted_at IS NULL AND %1$s LIKE ? AND (%1$s, u.id) > (?, ?) " +
+        "AND NOT EXISTS (SELECT 1 FROM user_follows f WHERE f.user_id = ? AND f.followed_user_id = u.id) " +
+        "ORDER BY %1$s, u.id LIMIT ?";
+
+    private static final String ALL_USERNAMES = "SELECT username FROM users";
+
+    private static final int USERNAME_FETCH_SIZE = 10_000;
+
+    private static final RowMapper<UserSummaryDTO> ROW_MAPPER =
+        (rs, rowNum) -> new UserSummaryDTO(rs.getLong("id"), rs.getString("username"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    // term is lowercase; afterName/afterId is the key of the last row of the previous page
+    public List<UserSummaryDTO> findFollowedMatching(Long userId, String term, String afterName, long afterId, int limit) {
+        return jdbcTemplate.query(sql(FOLLOWED_MATCHING), ROW_MAPPER, userId, likePattern(term), afterName, afterId, limit);
+    }
+
+    // Zonder notFollowedBy alle gebruikers, anders alleen de gebruikers die notFollowedBy niet volgt
+    public List<UserSummaryDTO> findMatching(String term, Long notFollowedBy, String afterName, long afterId, int limit) {
+        String pattern = likePattern(term);
+        if (notFollowedBy == null) {
+            return jdbcTemplate.query(sql(ALL_MATCHING), ROW_MAPPER, pattern, afterName, afterId, limit);
+        }
+        return jdbcTemplate.query(sql(NOT_FOLLOWED_MATCHING), ROW_MAPPER,
+                pattern, afterName, afterId, notFollowedBy, limit);
+    }
+
+    // Streamt alle usernames; de read-only transactie laat de Postgres driver een cursor gebruiken
+    @Transactional(readOnly = true)
+    public void forEachUsername(Consumer<String> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ALL_USERNAMES);
+            statement.setFetchSize(USERNAME_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+    }
+
+    // Trigrammen hebben minstens 3 tekens nodig; kortere termen zoeken alleen op prefix
+    private static String likePattern(String term) {
+        String escaped = MovieSearchRepositoryImpl.escapeLike(term);
+        return term.length() < MIN_SUBSTRING_LENGTH ? escaped + "%" : "%" + escaped + "%";
+    }
+
+    private String sql(String template) {
+        return template.formatted(databaseDialect.isPostgres() ? POSTGRES_KEY : PORTABLE_KEY);
+    }
+}
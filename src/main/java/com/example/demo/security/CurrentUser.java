@@ -0,0 +1,60 @@
+package com.example.demo.security;
+
+import com.example.demo.security.TokenService.TokenPrincipal;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * The user a request acts as: the TokenPrincipal that TokenAuthenticationFilter
+ * put in the security context. A token only allows writes for its own user.
+ */
+public final class CurrentUser {
+
+    private CurrentUser() {
+    }
+
+    public static Optional<TokenPrincipal> principal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof TokenPrincipal principal) {
+            return Optional.of(principal);
+        }
+        return Optional.empty();
+    }
+
+    // For a userId from the request body. Without a principal nobody may write, also when the
+    // filter chain would have let the request through
+    public static boolean mayWriteFor(Long userId) {
+        return principal().map(principal -> Objects.equals(principal.userId(), userId)).orElse(false);
+    }
+
+    // For SecurityConfig: the path variable must be the id of the authenticated user
+    public static AuthorizationManager<RequestAuthorizationContext> isUserId(String variable) {
+        return matches(variable, (principal, value) -> String.valueOf(principal.userId()).equals(value));
+    }
+
+    // De username in de token is die van het moment van inloggen en veroudert bij een rename,
+    // dus de username uit het pad eerst naar een id vertalen en dat vergelijken
+    public static AuthorizationManager<RequestAuthorizationContext> isUsername(
+            String variable, Function<String, Optional<Long>> idOfUsername) {
+        return matches(variable, (principal, value) -> value != null
+                && idOfUsername.apply(value).map(id -> id.equals(principal.userId())).orElse(false));
+    }
+
+    private static AuthorizationManager<RequestAuthorizationContext> matches(
+            String variable, BiPredicate<TokenPrincipal, String> check) {
+        return (authentication, context) -> {
+            Authentication current = authentication.get();
+            boolean granted = current != null && current.getPrincipal() instanceof TokenPrincipal principal
+                    && check.test(principal, context.getVariables().get(variable));
+            return new AuthorizationDecision(granted);
+        };
+    }
+}
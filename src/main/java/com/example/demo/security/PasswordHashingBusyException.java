@@ -0,0 +1,16 @@
+package com.example.demo.security;
+
+/**
+ * Thrown when the password hashing pool and its queue are full. Controllers
+ * answer it with 503 and a Retry-After header.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Too many login or registration requests, try again later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {return retryAfterSeconds;}
+}
@@ -0,0 +1,121 @@
+package com.example.demo.security;
+
+import com.example.demo.model.User;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Stateless access tokens: base64url(userId|expiresAt|username) + "." +
+ * base64url(HMAC-SHA256 of that payload). Checking a token is one HMAC with
+ * the in-memory key, no database lookup and no BCrypt.
+ *
+ * The key comes from security.token.secret (base64, at least 32 bytes). Without
+ * it a random key is generated at startup, which is fine for a single instance
+ * but logs everyone out on a restart.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final String SEPARATOR = "|";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Value("${security.token.secret:}")
+    private String secret = "";
+
+    @Value("${security.token.ttl:1h}")
+    private Duration ttl = Duration.ofHours(1);
+
+    private Clock clock = Clock.systemUTC();
+
+    private SecretKeySpec key;
+
+    // Mac is niet thread-safe; een instantie per thread scheelt een provider lookup per request
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("security.token.secret is not set, using a random key; tokens won't survive a restart");
+            keyBytes = new byte[MIN_KEY_BYTES];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret);
+            if (keyBytes.length < MIN_KEY_BYTES) {
+                throw new IllegalStateException("security.token.secret must be at least " + MIN_KEY_BYTES + " bytes");
+            }
+        }
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    public IssuedToken issue(User user) {
+        Instant expiresAt = clock.instant().plus(ttl).truncatedTo(ChronoUnit.SECONDS);
+        String payload = user.getId() + SEPARATOR + expiresAt.getEpochSecond() + SEPARATOR + user.getUsername();
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return new IssuedToken(encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload)), expiresAt);
+    }
+
+    // Leeg bij een ongeldige handtekening, een kapot formaat of een verlopen token
+    public Optional<TokenPrincipal> verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return Optional.empty();
+        }
+        String encodedPayload = token.substring(0, dot);
+        try {
+            if (!MessageDigest.isEqual(sign(encodedPayload), DECODER.decode(token.substring(dot + 1)))) {
+                return Optional.empty();
+            }
+            String[] parts = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 3);
+            if (parts.length != 3 || clock.instant().getEpochSecond() >= Long.parseLong(parts[1])) {
+                return Optional.empty();
+            }
+            return Optional.of(new TokenPrincipal(Long.parseLong(parts[0]), parts[2]));
+        } catch (IllegalArgumentException e) {
+            // Geen geldige base64 of geen getal (NumberFormatException is een IllegalArgumentException)
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    public record IssuedToken(String token, Instant expiresAt) {
+    }
+
+    public record TokenPrincipal(Long userId, String username) {
+    }
+}
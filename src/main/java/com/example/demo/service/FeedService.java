@@ -0,0 +1,355 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FeedItemDTO;
+import com.example.demo.event.FollowChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.model.User;
+import com.example.demo.repository.FeedRepository;
+import com.example.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * "What did the people I follow rate recently", served from memory.
+ *
+ * Normal accounts use fan-out-on-write: every rating is pushed into a bounded
+ * ring buffer (inbox) of each follower whose feed is in memory. Accounts with
+ * at least feed.celebrity-followers followers would turn one rating into a
+ * huge fan-out, so they only keep their own outbox and readers merge those in
+ * at read time (fan-out-on-read) with a k-way merge. Which followees are
+ * celebrities is decided when an inbox is built.
+ *
+ * A loaded inbox subscribes to its normal followees, so a rating reaches the
+ * inboxes in memory without a query. The fan-out runs on a single background
+ * thread, after the rating's transaction, and keeps the order of the events.
+ *
+ * Inboxes and outboxes live in size-bounded Caffeine caches. A feed that
+ * isn't in memory is built with one query the first time it's read, so
+ * inactive users cost nothing. A feed covers the latest feed.buffer-size
+ * items from normal accounts plus the latest feed.buffer-size items of every
+ * followed celebrity.
+ */
+@Service
+public class FeedService {
+
+    private static final Comparator<FeedItemDTO> NEWEST_FIRST = Comparator
+            .comparing(FeedItemDTO::getOccurredAt)
+            .thenComparing(FeedItemDTO::getUserId)
+            .thenComparing(FeedItemDTO::getMovieId)
+            .reversed();
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${feed.buffer-size:500}")
+    private int bufferSize = 500;
+
+    @Value("${feed.max-cached-users:100000}")
+    private long maxCachedUsers = 100_000;
+
+    @Value("${feed.celebrity-followers:10000}")
+    private long celebrityFollowers = 10_000;
+
+    @Value("${feed.expire-after-access:30m}")
+    private Duration expireAfterAccess = Duration.ofMinutes(30);
+
+    private Cache<Long, Inbox> inboxes;
+    private Cache<Long, FeedBuffer> outboxes;
+
+    // Per gevolgd (normaal) account de inboxes in het geheugen die zijn ratings krijgen
+    private final ConcurrentHashMap<Long, Set<Inbox>> subscribers = new ConcurrentHashMap<>();
+
+    private Executor fanOutExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (fanOutExecutor == null) {
+            fanOutExecutor = newFanOutExecutor();
+        }
+        inboxes = Caffeine.newBuilder()
+                .maximumSize(maxCachedUsers)
+                .expireAfterAccess(expireAfterAccess)
+                .removalListener((Long userId, Inbox inbox, RemovalCause cause) -> unsubscribe(inbox))
+                .build();
+        outboxes = Caffeine.newBuilder()
+                .maximumSize(maxCachedUsers)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    public CursorPage<FeedItemDTO> getFeed(Long userId, String before, int limit) {
+        FeedItemDTO cursor = before == null || before.isBlank() ? null : decodeCursor(before);
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        Inbox inbox = inboxes.get(userId, this::loadInbox);
+        List<List<FeedItemDTO>> sources = new ArrayList<>(1 + inbox.celebrityFollowees().size());
+        sources.add(inbox.buffer().snapshot());
+        for (Long celebrityId : inbox.celebrityFollowees()) {
+            sources.add(outboxes.get(celebrityId, this::loadOutbox).snapshot());
+        }
+
+        // Fetch one extra item so we know whether there is a next page
+        List<FeedItemDTO> items = merge(sources, cursor, pageSize + 1);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            FeedItemDTO last = items.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(last.getOccurredAt(), last.getUserId(), last.getMovieId());
+        }
+
+        fillMissingUserNames(items);
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOutExecutor instanceof ExecutorService executor) {
+            executor.shutdown();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (inboxes.estimatedSize() == 0 && outboxes.estimatedSize() == 0) {
+            return;
+        }
+
+        FeedItemDTO item = event.isDelete() ? null : new FeedItemDTO(event.getUserId(), event.getUserName(),
+                event.getMovieId(), event.getNewRating(), event.getComment(), event.getOccurredAt());
+        fanOutExecutor.execute(() -> fanOut(event.getUserId(), event.getMovieId(), item));
+    }
+
+    // Alleen feeds die in het geheugen staan; de rest wordt bij de eerste read uit de database opgebouwd
+    private void fanOut(Long userId, Long movieId, FeedItemDTO item) {
+        FeedBuffer outbox = outboxes.getIfPresent(userId);
+        if (outbox != null) {
+            outbox.apply(userId, movieId, item);
+        }
+        for (Inbox inbox : subscribers.getOrDefault(userId, Set.of())) {
+            inbox.buffer().apply(userId, movieId, item);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFollowChanged(FollowChangedEvent event) {
+        // Wie gevolgd wordt bepaalt de inhoud van de inbox, dus die wordt opnieuw opgebouwd
+        inboxes.invalidate(event.getUserId());
+    }
+
+    private Inbox loadInbox(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        FeedBuffer buffer = new FeedBuffer(bufferSize);
+        buffer.addAllNewestFirst(feedRepository.findRecentFromFollowees(userId, celebrityFollowers, bufferSize));
+        Inbox inbox = new Inbox(buffer, List.copyOf(feedRepository.findFolloweeIds(userId, celebrityFollowers)),
+                List.copyOf(feedRepository.findCelebrityFollowees(userId, celebrityFollowers)));
+        for (Long followeeId : inbox.followees()) {
+            subscribers.compute(followeeId, (id, inboxesOfFollowee) -> {
+                Set<Inbox> subscribed = inboxesOfFollowee != null ? inboxesOfFollowee : ConcurrentHashMap.newKeySet();
+                subscribed.add(inbox);
+                return subscribed;
+            });
+        }
+        return inbox;
+    }
+
+    // Na eviction of invalidation; een opnieuw geladen inbox van dezelfde user is een ander object en blijft staan
+    private void unsubscribe(Inbox inbox) {
+        if (inbox == null) {
+            return;
+        }
+        for (Long followeeId : inbox.followees()) {
+            subscribers.computeIfPresent(followeeId, (id, subscribed) -> {
+                subscribed.remove(inbox);
+                return subscribed.isEmpty() ? null : subscribed;
+            });
+        }
+    }
+
+    // Bij een piek wacht de request thread op een vrije plek in plaats van dat de wachtrij onbegrensd groeit.
+    // Niet zelf uitvoeren (CallerRunsPolicy): dan haalt dat event de events in die nog in de wachtrij staan
+    private static ExecutorService newFanOutExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(10_000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "feed-fan-out");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        return;
+                    }
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+    }
+
+    private FeedBuffer loadOutbox(Long userId) {
+        FeedBuffer buffer = new FeedBuffer(bufferSize);
+        buffer.addAllNewestFirst(feedRepository.findRecentByUser(userId, bufferSize));
+        return buffer;
+    }
+
+    // k-way merge van lijsten die elk al nieuwste-eerst gesorteerd zijn
+    private static List<FeedItemDTO> merge(List<List<FeedItemDTO>> sources, FeedItemDTO before, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                (a, b) -> NEWEST_FIRST.compare(sources.get(a[0]).get(a[1]), sources.get(b[0]).get(b[1])));
+        for (int s = 0; s < sources.size(); s++) {
+            int start = before == null ? 0 : firstOlderThan(sources.get(s), before);
+            if (start < sources.get(s).size()) {
+                heads.add(new int[] {s, start});
+            }
+        }
+
+        List<FeedItemDTO> merged = new ArrayList<>(limit);
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<FeedItemDTO> source = sources.get(head[0]);
+            merged.add(source.get(head[1]));
+            if (head[1] + 1 < source.size()) {
+                heads.add(new int[] {head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+
+    // Binary search naar het eerste item dat na de cursor komt
+    private static int firstOlderThan(List<FeedItemDTO> items, FeedItemDTO before) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (NEWEST_FIRST.compare(items.get(mid), before) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Bulk ingestion publiceert events zonder username; die worden hier in een query aangevuld
+    private void fillMissingUserNames(List<FeedItemDTO> items) {
+        Set<Long> missing = new HashSet<>();
+        for (FeedItemDTO item : items) {
+            if (item.getUserName() == null) {
+                missing.add(item.getUserId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<Long, String> names = userRepository.findAllById(missing).stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+        for (FeedItemDTO item : items) {
+            if (item.getUserName() == null) {
+                item.setUserName(names.get(item.getUserId()));
+            }
+        }
+    }
+
+    private static FeedItemDTO decodeCursor(String cursor) {
+        String[] parts = CursorPage.decodeCursor(cursor, 3);
+        try {
+            return new FeedItemDTO(Long.parseLong(parts[1]), null, Long.parseLong(parts[2]), null, null,
+                    LocalDateTime.parse(parts[0]));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // Identity, niet de inhoud: twee inboxes van dezelfde user zijn verschillende abonnementen
+    private static final class Inbox {
+        private final FeedBuffer buffer;
+        private final List<Long> followees;
+        private final List<Long> celebrityFollowees;
+
+        Inbox(FeedBuffer buffer, List<Long> followees, List<Long> celebrityFollowees) {
+            this.buffer = buffer;
+            this.followees = followees;
+            this.celebrityFollowees = celebrityFollowees;
+        }
+
+        FeedBuffer buffer() {return buffer;}
+        List<Long> followees() {return followees;}
+        List<Long> celebrityFollowees() {return celebrityFollowees;}
+    }
+
+    /**
+     * Bounded ring buffer (ArrayDeque) holding at most one item per
+     * (user, movie): a re-rating replaces the earlier item. When full the
+     * oldest item is dropped.
+     */
+    private static final class FeedBuffer {
+        private final int capacity;
+        private final ArrayDeque<FeedItemDTO> items;
+
+        FeedBuffer(int capacity) {
+            this.capacity = capacity;
+            this.items = new ArrayDeque<>(capacity);
+        }
+
+        synchronized void addAllNewestFirst(List<FeedItemDTO> newestFirst) {
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                add(newestFirst.get(i));
+            }
+        }
+
+        // item == null betekent dat de rating verwijderd is
+        synchronized void apply(Long userId, Long movieId, FeedItemDTO item) {
+            items.removeIf(existing -> existing.getUserId().equals(userId) && existing.getMovieId().equals(movieId));
+            if (item != null) {
+                add(item);
+            }
+        }
+
+        private void add(FeedItemDTO item) {
+            if (items.size() == capacity) {
+                items.pollFirst();
+            }
+            items.addLast(item);
+        }
+
+        synchronized List<FeedItemDTO> snapshot() {
+            List<FeedItemDTO> copy = new ArrayList<>(items);
+            copy.sort(NEWEST_FIRST);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.UserSuggestionDTO;
+import com.example.demo.event.FollowChangedEvent;
+import com.example.demo.model.User;
+import com.example.demo.repository.FollowRepository;
+import com.example.demo.repository.RatingRepository;
+import com.example.demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory snapshot of user_follows for friend-of-friend suggestions.
+ *
+ * The snapshot is a CSR (compressed sparse row) graph: a sorted long[] of
+ * user ids, an int[] of offsets and one int[] with the followed users of
+ * every user stored back to back. A user's followees are one contiguous
+ * slice, so a two-hop walk is plain array reads into a small counter that is
+ * sized by the fan-out of the walk, not by the size of the graph.
+ *
+ * The snapshot is rebuilt in the background. Follows and unfollows since the
+ * last rebuild are kept in a small delta overlay that is consulted before
+ * the snapshot, so suggestions see them right away.
+ */
+@Service
+public class FollowGraphService {
+
+    public static final int MAX_LIMIT = 50;
+
+    // Alleen de kandidaten met de meeste gedeelde follows krijgen de (database) taste vergelijking
+    private static final int TASTE_CANDIDATES = 200;
+
+    // Ratings lopen van 1 tot 5
+    private static final double MAX_RATING_DIFF = 4.0;
+
+    private static final int EXCLUDED = -1;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private volatile State state = new State(Snapshot.EMPTY, null, new Delta());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${follow-graph.rebuild-interval-ms:600000}",
+               initialDelayString = "${follow-graph.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        // Nieuwe wijzigingen gaan in een verse delta; de oude blijft zichtbaar tot de nieuwe snapshot er is.
+        // Alles in de oude delta is al gecommit voor het laden begint, dus zit in de nieuwe snapshot.
+        State before = state;
+        Delta fresh = new Delta();
+        state = new State(before.snapshot(), before.current(), fresh);
+
+        SnapshotBuilder builder = new SnapshotBuilder();
+        followRepository.streamEdges(builder::add);
+        state = new State(builder.build(), null, fresh);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFollowChanged(FollowChangedEvent event) {
+        state.current().put(event.getUserId(), event.getFollowedUserId(), event.isFollowed());
+    }
+
+    public List<UserSuggestionDTO> getSuggestions(Long userId, int limit) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        int size = limit <= 0 ? 10 : Math.min(limit, MAX_LIMIT);
+
+        Map<Long, Integer> mutuals = countSecondHop(state, userId, TASTE_CANDIDATES);
+        if (mutuals.isEmpty()) {
+            return List.of();
+        }
+
+        // Taste overlap: gedeelde films, gewogen naar hoe dicht de ratings bij elkaar liggen
+        Map<Long, long[]> taste = new HashMap<>();
+        for (Object[] row : ratingRepository.findTasteOverlap(userId, mutuals.keySet())) {
+            taste.put((Long) row[0], new long[] {((Number) row[1]).longValue(), ((Number) row[2]).longValue()});
+        }
+
+        List<UserSuggestionDTO> suggestions = new ArrayList<>(mutuals.size());
+        Map<Long, String> names = userRepository.findAllById(mutuals.keySet()).stream()
+                .collect(Collectors.toMap(User::getId, User::getUsername));
+        for (Map.Entry<Long, Integer> candidate : mutuals.entrySet()) {
+            String username = names.get(candidate.getKey());
+            if (username == null) {
+                continue;
+            }
+            long[] overlap = taste.getOrDefault(candidate.getKey(), new long[2]);
+            double score = candidate.getValue() * (1 + tasteOverlap(overlap[0], overlap[1]));
+            suggestions.add(new UserSuggestionDTO(candidate.getKey(), username, candidate.getValue(), overlap[0], score));
+        }
+
+        suggestions.sort(Comparator.comparingDouble(UserSuggestionDTO::getScore).reversed()
+                .thenComparing(UserSuggestionDTO::getId));
+        return suggestions.size() > size ? suggestions.subList(0, size) : suggestions;
+    }
+
+    // Gemiddelde overeenstemming (0..1) vermenigvuldigd met shared / (shared + 5), zodat 1 gedeelde film weinig zegt
+    static double tasteOverlap(long shared, long diffSum) {
+        if (shared == 0) {
+            return 0;
+        }
+        double agreement = 1 - (diffSum / (double) shared) / MAX_RATING_DIFF;
+        return agreement * shared / (shared + 5.0);
+    }
+
+    public Map<String, Object> getStats() {
+        State current = state;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", current.snapshot().ids.length);
+        stats.put("edges", current.snapshot().targets.length);
+        stats.put("pendingChanges", current.current().size() + (current.frozen() == null ? 0 : current.frozen().size()));
+        return stats;
+    }
+
+    /**
+     * Counts for every user two hops away from userId (and not followed yet)
+     * through how many of userId's followees they are reached, and returns
+     * the best maxCandidates of them.
+     */
+    private Map<Long, Integer> countSecondHop(State current, long userId, int maxCandidates) {
+        LongList firstHop = new LongList();
+        forEachFollowee(current, userId, firstHop::add);
+
+        // Hooguit een teller per bezochte edge; alleen een schatting voor de begingrootte, de tabel groeit zelf
+        long fanOut = 1 + firstHop.size;
+        for (int i = 0; i < firstHop.size; i++) {
+            fanOut += degree(current, firstHop.values[i]);
+        }
+        HitCounter hits = new HitCounter(fanOut);
+        hits.exclude(userId);
+        for (int i = 0; i < firstHop.size; i++) {
+            hits.exclude(firstHop.values[i]);
+        }
+        for (int i = 0; i < firstHop.size; i++) {
+            forEachFollowee(current, firstHop.values[i], hits::hit);
+        }
+
+        // Top kandidaten met een begrensde heap
+        PriorityQueue<long[]> best = new PriorityQueue<>(Comparator.comparingLong((long[] c) -> c[1]));
+        for (int slot = 0; slot < hits.keys.length; slot++) {
+            if (hits.keys[slot] != HitCounter.FREE && hits.counts[slot] > 0) {
+                offer(best, hits.keys[slot], hits.counts[slot], maxCandidates);
+            }
+        }
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (long[] candidate : best) {
+            result.put(candidate[0], (int) candidate[1]);
+        }
+        return result;
+    }
+
+    // Bovengrens voor het aantal followees: de slice in de snapshot plus de wijzigingen in de delta's
+    private static int degree(State current, long userId) {
+        Snapshot snapshot = current.snapshot();
+        int source = snapshot.indexOf(userId);
+        int degree = source >= 0 ? snapshot.offsets[source + 1] - snapshot.offsets[source] : 0;
+        Map<Long, Boolean> recent = current.current().changesOf(userId);
+        Map<Long, Boolean> frozen = current.frozen() == null ? null : current.frozen().changesOf(userId);
+        return degree + (recent == null ? 0 : recent.size()) + (frozen == null ? 0 : frozen.size());
+    }
+
+    private static void offer(PriorityQueue<long[]> best, long userId, long hits, int max) {
+        if (best.size() < max) {
+            best.add(new long[] {userId, hits});
+        } else if (best.peek()[1] < hits) {
+            best.poll();
+            best.add(new long[] {userId, hits});
+        }
+    }
+
+    private interface FolloweeVisitor {
+        void visit(long followee);
+    }
+
+    private static void forEachFollowee(State current, long userId, FolloweeVisitor visitor) {
+        Snapshot snapshot = current.snapshot();
+        Map<Long, Boolean> recent = current.current().changesOf(userId);
+        Map<Long, Boolean> frozen = current.frozen() == null ? null : current.frozen().changesOf(userId);
+
+        int source = snapshot.indexOf(userId);
+        if (source >= 0) {
+            for (int e = snapshot.offsets[source]; e < snapshot.offsets[source + 1]; e++) {
+                int target = snapshot.targets[e];
+                long followee = snapshot.ids[target];
+                if (override(recent, frozen, followee) != Boolean.FALSE) {
+                    visitor.visit(followee);
+                }
+            }
+        }
+
+        // Nieuwe follows sinds de laatste rebuild
+        if (recent != null) {
+            for (Map.Entry<Long, Boolean> change : recent.entrySet()) {
+                if (change.getValue() && !snapshot.hasEdge(source, change.getKey())) {
+                    visitor.visit(change.getKey());
+                }
+            }
+        }
+        if (frozen != null) {
+            for (Map.Entry<Long, Boolean> change : frozen.entrySet()) {
+                if (change.getValue() && (recent == null || !recent.containsKey(change.getKey()))
+                        && !snapshot.hasEdge(source, change.getKey())) {
+                    visitor.visit(change.getKey());
+                }
+            }
+        }
+    }
+
+    private static Boolean override(Map<Long, Boolean> recent, Map<Long, Boolean> frozen, long followee) {
+        Boolean change = recent == null ? null : recent.get(followee);
+        if (change == null && frozen != null) {
+            change = frozen.get(followee);
+        }
+        return change;
+    }
+
+    private record State(Snapshot snapshot, Delta frozen, Delta current) {
+    }
+
+    // Follows (true) en unfollows (false) sinds de laatste snapshot, per volger; de laatste wijziging wint
+    private static final class Delta {
+        private final ConcurrentHashMap<Long, Map<Long, Boolean>> changes = new ConcurrentHashMap<>();
+
+        void put(long userId, long followedUserId, boolean follows) {
+            changes.computeIfAbsent(userId, id -> new ConcurrentHashMap<>()).put(followedUserId, follows);
+        }
+
+        Map<Long, Boolean> changesOf(long userId) {
+            return changes.get(userId);
+        }
+
+        int size() {
+            return changes.values().stream().mapToInt(Map::size).sum();
+        }
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new long[0], new int[] {0}, new int[0]);
+
+        final long[] ids;
+        final int[] offsets;
+        final int[] targets;
+
+        Snapshot(long[] ids, int[] offsets, int[] targets) {
+            this.ids = ids;
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        int indexOf(long userId) {
+            int index = Arrays.binarySearch(ids, userId);
+            return index >= 0 ? index : -1;
+        }
+
+        // De targets per gebruiker zijn oplopend gesorteerd, dus binary search binnen de slice
+        boolean hasEdge(int source, long followee) {
+            int target = indexOf(followee);
+            if (source < 0 || target < 0) {
+                return false;
+            }
+            return Arrays.binarySearch(targets, offsets[source], offsets[source + 1], target) >= 0;
+        }
+    }
+
+    /**
+     * Builds the CSR arrays from edges sorted on (user_id, followed_user_id),
+     * which is how FollowRepository.streamEdges returns them.
+     */
+    private static final class SnapshotBuilder {
+        private final LongList sources = new LongList();
+        private final LongList followees = new LongList();
+
+        void add(long userId, long followedUserId) {
+            sources.add(userId);
+            followees.add(followedUserId);
+        }
+
+        Snapshot build() {
+            int edges = sources.size;
+
+            // Alle ids die in een van beide kolommen voorkomen, gesorteerd en uniek
+            long[] all = new long[edges * 2];
+            System.arraycopy(sources.values, 0, all, 0, edges);
+            System.arraycopy(followees.values, 0, all, edges, edges);
+            Arrays.sort(all);
+            int unique = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i == 0 || all[i] != all[i - 1]) {
+                    all[unique++] = all[i];
+                }
+            }
+            long[] ids = Arrays.copyOf(all, unique);
+
+            int[] offsets = new int[unique + 1];
+            int[] targets = new int[edges];
+            int source = 0;
+            for (int e = 0; e < edges; e++) {
+                // Sources komen gesorteerd binnen, dus de index schuift alleen vooruit
+                while (ids[source] != sources.values[e]) {
+                    offsets[++source] = e;
+                }
+                targets[e] = Arrays.binarySearch(ids, followees.values[e]);
+            }
+            while (source < unique) {
+                offsets[++source] = edges;
+            }
+            return new Snapshot(ids, offsets, targets);
+        }
+    }
+
+    /**
+     * Hits per user id for one walk: open addressing with linear probing on
+     * two parallel arrays, so counting allocates nothing per candidate. Sized
+     * up front from the fan-out, but never beyond MAX_INITIAL_CAPACITY: the
+     * fan-out counts edges, not distinct users, and a walk through a few
+     * celebrities would otherwise allocate hundreds of MB per request.
+     */
+    private static final class HitCounter {
+        static final long FREE = Long.MIN_VALUE;
+
+        // 8192 slots, 96 KB; groter alleen als er echt zoveel verschillende kandidaten zijn
+        private static final int MAX_INITIAL_CAPACITY = 1 << 13;
+        // Niet meer dan 2^30 slots; een walk van die omvang zou een graaf met miljarden edges zijn
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        long[] keys;
+        int[] counts;
+        private int size;
+
+        HitCounter(long expected) {
+            int capacity = 16;
+            while (capacity < expected * 2 && capacity < MAX_INITIAL_CAPACITY) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        void exclude(long userId) {
+            counts[slotOf(userId)] = EXCLUDED;
+        }
+
+        void hit(long userId) {
+            int slot = slotOf(userId);
+            if (counts[slot] != EXCLUDED) {
+                counts[slot]++;
+            }
+        }
+
+        // Slot van userId; een nieuwe key krijgt een leeg slot met teller 0
+        private int slotOf(long userId) {
+            int mask = keys.length - 1;
+            int slot = mix(userId) & mask;
+            while (keys[slot] != FREE) {
+                if (keys[slot] == userId) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size * 2 >= keys.length && keys.length < MAX_CAPACITY) {
+                grow();
+                return slotOf(userId);
+            }
+            keys[slot] = userId;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            allocate(oldKeys.length * 2);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (keys[slot] != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            counts = new int[capacity];
+        }
+
+        // Opeenvolgende ids moeten niet in opeenvolgende slots clusteren
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class LongList {
+        long[] values = new long[16];
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -1,41 +1,66 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FollowCountsDTO;
+import com.example.demo.dto.UserSummaryDTO;
+import com.example.demo.event.FollowChangedEvent;
 import com.example.demo.model.User;
+import com.example.demo.repository.FollowRepository;
+import com.example.demo.repository.UserSearchRepository;
 import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class FollowService {
+
+    private static final String FOLLOWED_SECTION = "f";
+    private static final String OTHERS_SECTION = "o";
     
     @Autowired
     private UserRepository userRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private UserSearchRepository userSearchRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
+    // Idempotent: een bestaande follow is geen fout, er wordt alleen niets toegevoegd
+    @Transactional
     public User followUser(Long userId, Long followedUserId) {
-        // Check if user exists
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
+        // Beide users gelockt tegen een gelijktijdige delete, anders kan de follow na de tombstone
+        // committen en lopen de tellers uit de pas met wat de purge opruimt
+        Set<Long> live = followRepository.lockLiveUsers(userId, followedUserId);
+        if (!live.contains(userId)) {
             throw new IllegalArgumentException("User not found");
         }
-        
-        // Check if user to follow exists
-        Optional<User> followedUserOpt = userRepository.findById(followedUserId);
-        if (followedUserOpt.isEmpty()) {
+        if (!live.contains(followedUserId)) {
             throw new IllegalArgumentException("User to follow not found");
         }
-        
-        User user = userOpt.get();
-        User followedUser = followedUserOpt.get();
-        
-        // Add to following list
-        user.getFollowing().add(followedUser);
-        
-        return userRepository.save(user);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        if (followRepository.follow(userId, followedUserId)) {
+            followRepository.adjustFollowCounts(userId, followedUserId, 1);
+            eventPublisher.publishEvent(FollowChangedEvent.followed(userId, followedUserId));
+        }
+        return user;
     }
 
+    // Idempotent: unfollowen van iemand die je niet volgt is geen fout
+    @Transactional
     public User unfollowUser(Long userId, Long followedUserId) {
         // Check if user exists
         Optional<User> userOpt = userRepository.findById(userId);
@@ -44,32 +69,99 @@ public class FollowService {
         }
         
         // Check if user to unfollow exists
-        Optional<User> followedUserOpt = userRepository.findById(followedUserId);
-        if (followedUserOpt.isEmpty()) {
+        if (!userRepository.existsById(followedUserId)) {
             throw new IllegalArgumentException("User to unfollow not found");
         }
         
-        User user = userOpt.get();
-        User followedUser = followedUserOpt.get();
-        
-        // Remove from following list
-        user.getFollowing().remove(followedUser);
-        
-        return userRepository.save(user);
+        if (followRepository.unfollow(userId, followedUserId)) {
+            followRepository.adjustFollowCounts(userId, followedUserId, -1);
+            eventPublisher.publishEvent(FollowChangedEvent.unfollowed(userId, followedUserId));
+        }
+        return userOpt.get();
     }
 
     public List<User> getFollowing(Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        
-        if (userOpt.isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             throw new IllegalArgumentException("User not found");
         }
         
-        User user = userOpt.get();
-        return user.getFollowing();
+        // Query op de join tabel in plaats van de collectie op de entity te initialiseren
+        return userRepository.findFollowing(userId);
+    }
+
+    public CursorPage<UserSummaryDTO> getFollowers(Long userId, String after, int limit) {
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        long afterId = after == null || after.isBlank() ? 0L : CursorPage.decodeIdCursor(after);
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        // Fetch one extra row so we know whether there is a next page
+        List<UserSummaryDTO> followers = followRepository.findFollowers(userId, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (followers.size() > pageSize) {
+            followers = followers.subList(0, pageSize);
+            nextCursor = CursorPage.encodeCursor(followers.get(pageSize - 1).getId());
+        }
+        return new CursorPage<>(followers, nextCursor);
     }
 
-    public List<User> searchUsers(String username) {
-        return userRepository.findByUsernameContainingIgnoreCase(username);
+    public FollowCountsDTO getFollowCounts(Long userId) {
+        return userRepository.findFollowCounts(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    }
+
+    /**
+     * Case-insensitive username search. When userId is given, the accounts
+     * that user follows come first; both sections are sorted by username.
+     * The cursor records the section and the (username, id) key of the last
+     * result so the next page seeks on the index.
+     */
+    public CursorPage<UserSummaryDTO> searchUsers(String query, Long userId, String after, int limit) {
+        String term = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search term is required");
+        }
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        boolean followedSection = userId != null;
+        String afterName = "";
+        long afterId = 0L;
+        if (after != null && !after.isBlank()) {
+            String[] parts = CursorPage.decodeCursor(after, 3);
+            if (!parts[0].equals(FOLLOWED_SECTION) && !parts[0].equals(OTHERS_SECTION)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            followedSection = followedSection && parts[0].equals(FOLLOWED_SECTION);
+            try {
+                afterId = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            afterName = parts[2];
+        }
+
+        // Fetch one extra row so we know whether there is a next page
+        List<UserSummaryDTO> users = new ArrayList<>(pageSize + 1);
+        int followedCount = 0;
+        if (followedSection) {
+            users.addAll(userSearchRepository.findFollowedMatching(userId, term, afterName, afterId, pageSize + 1));
+            followedCount = users.size();
+            afterName = "";
+            afterId = 0L;
+        }
+        if (users.size() <= pageSize) {
+            users.addAll(userSearchRepository.findMatching(term, userId, afterName, afterId, pageSize + 1 - users.size()));
+        }
+
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            UserSummaryDTO last = users.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(pageSize <= followedCount ? FOLLOWED_SECTION : OTHERS_SECTION,
+                    last.getId(), last.getUsername().toLowerCase(Locale.ROOT));
+        }
+        return new CursorPage<>(users, nextCursor);
     }
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LeaderboardEntryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory top rated chart. Movies are ranked by a Bayesian average,
+ * (C * m + sum) / (C + n), where m is the mean of all ratings and C the
+ * number of "virtual" votes at that mean every movie starts with. A movie with
+ * a single 5-star vote therefore stays close to the global mean.
+ *
+ * The chart is loaded from the denormalized movie aggregates at startup and
+ * patched on every rating write, so reads never touch the database. The prior
+ * mean only moves on the periodic re-rank, which keeps single updates O(log n).
+ *
+ * Events that arrive while a load runs only mark their movie; those movies
+ * are read again after the snapshot, until a round finds no new ones, so a
+ * write that raced with the load is counted once. The load is repeated
+ * every leaderboard.reconcile-interval-ms to repair any remaining drift.
+ * Movie names come from the load and from MovieChangedEvent, so the rating
+ * listener never queries the database.
+ */
+@Service
+public class LeaderboardService {
+
+    public static final int MAX_LIMIT = 100;
+
+    // Daarna de laatste ronde onder de write lock, zodat een drukke film de load niet eeuwig verlengt
+    private static final int MAX_CATCH_UP_ROUNDS = 3;
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::movieId);
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Value("${leaderboard.min-votes:10}")
+    private double minVotes = 10;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private volatile ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private volatile double priorMean;
+    // Naam van elke film, ook zonder ratings, voor de eerste rating van een film
+    private final ConcurrentHashMap<Long, String> names = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // Films met een event sinds het begin van de lopende load, null als er geen loopt; al vanaf de start,
+    // want Tomcat neemt voor ApplicationReadyEvent al requests aan
+    private Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    // Updates share the read lock (per-movie atomicity comes from the map), re-ranking takes the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.reconcile-interval-ms:3600000}",
+               initialDelayString = "${leaderboard.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        if (loaded) {
+            reload();
+        }
+    }
+
+    // De huidige chart blijft intussen serveren en events verwerken
+    private synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            if (pending == null) {
+                pending = ConcurrentHashMap.newKeySet();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        for (Object[] row : movieRepository.findAllNames()) {
+            names.putIfAbsent((Long) row[0], (String) row[1]);
+        }
+        Map<Long, Entry> fresh = new HashMap<>();
+        for (Object[] row : movieRepository.findRatedMovieAggregates()) {
+            Long movieId = (Long) row[0];
+            fresh.put(movieId, new Entry(movieId, (String) row[1], (Long) row[2], (Long) row[3], 0));
+        }
+
+        for (int round = 1; ; round++) {
+            Set<Long> dirty;
+            lock.writeLock().lock();
+            try {
+                if (pending.isEmpty() || round == MAX_CATCH_UP_ROUNDS) {
+                    reread(fresh, pending);
+                    entries.clear();
+                    entries.putAll(fresh);
+                    rerankLocked();
+                    pending = null;
+                    loaded = true;
+                    return;
+                }
+                dirty = pending;
+                pending = ConcurrentHashMap.newKeySet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            reread(fresh, dirty);
+        }
+    }
+
+    // Gelezen na de commit van hun events, dus die writes tellen precies een keer
+    private void reread(Map<Long, Entry> fresh, Set<Long> movieIds) {
+        List<Long> ids = new ArrayList<>(movieIds);
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+            chunk.forEach(fresh::remove);
+            for (Object[] row : movieRepository.findRatingAggregates(chunk)) {
+                Long movieId = (Long) row[0];
+                names.put(movieId, (String) row[1]);
+                if ((Long) row[2] > 0) {
+                    fresh.put(movieId, new Entry(movieId, (String) row[1], (Long) row[2], (Long) row[3], 0));
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${leaderboard.rerank-interval-ms:300000}",
+               initialDelayString = "${leaderboard.rerank-interval-ms:300000}")
+    public void rerank() {
+        lock.writeLock().lock();
+        try {
+            rerankLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rerankLocked() {
+        long totalCount = 0;
+        long totalSum = 0;
+        for (Entry entry : entries.values()) {
+            totalCount += entry.count();
+            totalSum += entry.sum();
+        }
+        priorMean = totalCount == 0 ? 0 : (double) totalSum / totalCount;
+
+        ConcurrentSkipListSet<Entry> rebuilt = new ConcurrentSkipListSet<>(RANKING);
+        entries.replaceAll((id, entry) -> entry.withScore(score(entry.count(), entry.sum())));
+        rebuilt.addAll(entries.values());
+        ranking = rebuilt;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.countDelta() == 0 && event.sumDelta() == 0) {
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> loading = pending;
+            if (loading != null) {
+                loading.add(event.getMovieId());
+            }
+            if (!loaded) {
+                return;
+            }
+            entries.compute(event.getMovieId(), (movieId, current) -> {
+                long count = (current == null ? 0 : current.count()) + event.countDelta();
+                long sum = (current == null ? 0 : current.sum()) + event.sumDelta();
+                if (current != null) {
+                    ranking.remove(current);
+                }
+                if (count <= 0) {
+                    return null;
+                }
+                String name = current == null ? names.get(movieId) : current.name();
+                Entry updated = new Entry(movieId, name, count, sum, score(count, sum));
+                ranking.add(updated);
+                return updated;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        lock.readLock().lock();
+        try {
+            Set<Long> loading = pending;
+            if (loading != null) {
+                loading.add(event.getMovieId());
+            }
+            if (event.getType() == MovieChangedEvent.Type.DELETED) {
+                names.remove(event.getMovieId());
+                Entry removed = entries.remove(event.getMovieId());
+                if (removed != null) {
+                    ranking.remove(removed);
+                }
+            } else {
+                names.put(event.getMovieId(), event.getMovie().getName());
+                // Ook de ranking houdt Entries vast; zonder wissel daar blijft de oude naam in de top staan
+                entries.computeIfPresent(event.getMovieId(), (movieId, current) -> {
+                    Entry renamed = new Entry(movieId, event.getMovie().getName(),
+                            current.count(), current.sum(), current.score());
+                    ranking.remove(current);
+                    ranking.add(renamed);
+                    return renamed;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<LeaderboardEntryDTO> getTopRated(int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<LeaderboardEntryDTO> top = new ArrayList<>(size);
+        Set<Long> seen = new HashSet<>();
+
+        // A concurrent update can briefly expose the old and new entry of a movie, hence the dedupe
+        for (Entry entry : ranking) {
+            if (top.size() == size) {
+                break;
+            }
+            if (seen.add(entry.movieId())) {
+                top.add(new LeaderboardEntryDTO(top.size() + 1, entry.movieId(), entry.name(), entry.count(),
+                        (double) entry.sum() / entry.count(), entry.score()));
+            }
+        }
+        return top;
+    }
+
+    private double score(long count, long sum) {
+        return (minVotes * priorMean + sum) / (minVotes + count);
+    }
+
+    private record Entry(long movieId, String name, long count, long sum, double score) {
+        Entry withScore(double newScore) {
+            return new Entry(movieId, name, count, sum, newScore);
+        }
+    }
+}
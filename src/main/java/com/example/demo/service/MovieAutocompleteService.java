@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.MovieSuggestionDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Search-as-you-type over movie titles, answered from memory.
+ *
+ * Every word of a normalized title (lower case, accents and punctuation
+ * stripped) is a key in a sorted map, so all words starting with a prefix are
+ * one contiguous range. That gives trie-like prefix lookups in O(log n + k)
+ * while staying safe for concurrent updates from MovieService.
+ */
+@Service
+public class MovieAutocompleteService {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 25;
+
+    private static final Comparator<Ranked> BEST_FIRST = Comparator
+            .comparingInt(Ranked::rank)
+            .thenComparingInt((Ranked r) -> r.entry().title().length())
+            .thenComparing(r -> r.entry().title());
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private final ConcurrentSkipListMap<String, Set<Long>> wordIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (MovieSuggestionDTO movie : movieRepository.findAllSuggestions()) {
+            put(movie);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.getType() == MovieChangedEvent.Type.DELETED) {
+            remove(event.getMovieId());
+        } else {
+            Movie movie = event.getMovie();
+            put(new MovieSuggestionDTO(movie.getId(), movie.getName(), movie.getReleaseYear(), movie.getPosterUrl()));
+        }
+    }
+
+    public List<MovieSuggestionDTO> suggest(String query, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty()) {
+            return List.of();
+        }
+        int size = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+
+        // The last word is still being typed, earlier words must prefix some word of the title
+        String[] queryWords = normalizedQuery.split(" ");
+        String prefix = queryWords[queryWords.length - 1];
+
+        // Every candidate is ranked, so a title that starts with the query is never cut off by a cap;
+        // the heap keeps only the best 'size', the worst on top
+        Set<Long> seen = new HashSet<>();
+        PriorityQueue<Ranked> best = new PriorityQueue<>(size + 1, BEST_FIRST.reversed());
+        NavigableMap<String, Set<Long>> range = wordIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+        for (Set<Long> ids : range.values()) {
+            for (Long id : ids) {
+                if (!seen.add(id)) {
+                    continue;
+                }
+                Entry entry = entries.get(id);
+                if (entry != null && entry.matchesAll(queryWords)) {
+                    best.add(new Ranked(entry, entry.rank(normalizedQuery)));
+                    if (best.size() > size) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<Ranked> ranked = new ArrayList<>(best);
+        ranked.sort(BEST_FIRST);
+        List<MovieSuggestionDTO> suggestions = new ArrayList<>(ranked.size());
+        for (Ranked match : ranked) {
+            suggestions.add(match.entry().suggestion());
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(MovieSuggestionDTO movie) {
+        remove(movie.getId());
+        String title = normalize(movie.getName());
+        String[] words = title.isEmpty() ? new String[0] : title.split(" ");
+        entries.put(movie.getId(), new Entry(movie, title, words));
+        for (String word : words) {
+            wordIndex.computeIfAbsent(word, w -> ConcurrentHashMap.newKeySet()).add(movie.getId());
+        }
+    }
+
+    private synchronized void remove(Long movieId) {
+        Entry old = entries.remove(movieId);
+        if (old == null) {
+            return;
+        }
+        for (String word : old.words()) {
+            wordIndex.computeIfPresent(word, (w, ids) -> {
+                ids.remove(movieId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        // Letters en cijfers van elk schrift; \p{Alnum} is zonder UNICODE_CHARACTER_CLASS alleen ASCII
+        return stripped.toLowerCase().replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private record Ranked(Entry entry, int rank) {}
+
+    private record Entry(MovieSuggestionDTO suggestion, String title, String[] words) {
+
+        boolean matchesAll(String[] queryWords) {
+            for (String queryWord : queryWords) {
+                boolean found = false;
+                for (String word : words) {
+                    if (word.startsWith(queryWord)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 0: title starts with the query, 1: first word matches, 2: a later word matches
+        int rank(String normalizedQuery) {
+            if (title.startsWith(normalizedQuery)) {
+                return 0;
+            }
+            return words.length > 0 && words[0].startsWith(normalizedQuery.split(" ")[0]) ? 1 : 2;
+        }
+    }
+}
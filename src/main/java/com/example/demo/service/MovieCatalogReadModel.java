@@ -0,0 +1,430 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.MovieFilterCriteria;
+import com.example.demo.dto.MovieFilterResult;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional read model holding the whole movie catalog in columnar arrays, so
+ * the catalog GETs in MovieService are answered without Hibernate.
+ *
+ * Every column is an array indexed by position, positions are sorted by movie
+ * id. Years and durations are primitive ints, genres are dictionary encoded
+ * as one BitSet per genre, and repeated strings share one instance. The
+ * catalog is rarely written, so a change rebuilds an immutable snapshot and
+ * swaps it in (copy-on-write). Only the rating totals change often; they live
+ * in atomic arrays that are patched in place.
+ *
+ * Enabled with movies.read-model.enabled. Until the startup load has finished
+ * (or when disabled) isServing() is false and MovieService uses the database.
+ */
+@Service
+public class MovieCatalogReadModel {
+
+    // Geen duur bekend (kolom is nullable)
+    private static final int NO_DURATION = Integer.MIN_VALUE;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Value("${movies.read-model.enabled:false}")
+    private boolean enabled;
+
+    private volatile Snapshot snapshot;
+
+    // Rating updates share the read lock (the arrays are atomic), snapshot swaps take the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        Map<Long, List<String>> genresByMovie = new HashMap<>();
+        for (Object[] row : movieRepository.findAllGenres()) {
+            genresByMovie.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (Object[] row : movieRepository.findCatalogColumns()) {
+            Long id = (Long) row[0];
+            rows.add(new Row(id, (String) row[1], (Integer) row[2], (Integer) row[3], (String) row[4],
+                    (String) row[5], genresByMovie.getOrDefault(id, List.of()), (Long) row[6], (Long) row[7]));
+        }
+
+        lock.writeLock().lock();
+        try {
+            snapshot = Snapshot.build(rows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isServing() {
+        return enabled && snapshot != null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            List<Row> rows = current.toRows();
+            int index = current.indexOf(event.getMovieId());
+            if (event.getType() == MovieChangedEvent.Type.DELETED) {
+                if (index >= 0) {
+                    rows.remove(index);
+                }
+            } else {
+                Movie movie = event.getMovie();
+                List<String> genres = movie.getGenres() == null ? List.of() : new ArrayList<>(movie.getGenres());
+                // De totalen van een bestaande film komen uit de read model zelf, niet uit de (mogelijk oude) entity
+                long count = index >= 0 ? current.counts.get(index) : 0;
+                long sum = index >= 0 ? current.sums.get(index) : 0;
+                Row row = new Row(movie.getId(), movie.getName(), movie.getReleaseYear(), movie.getDurationMinutes(),
+                        movie.getDescription(), movie.getPosterUrl(), genres, count, sum);
+                if (index >= 0) {
+                    rows.set(index, row);
+                } else {
+                    rows.add(-index - 1, row);
+                }
+            }
+            snapshot = Snapshot.build(rows);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (snapshot == null || (event.countDelta() == 0 && event.sumDelta() == 0)) {
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            Snapshot current = snapshot;
+            int index = current.indexOf(event.getMovieId());
+            if (index >= 0) {
+                current.counts.addAndGet(index, event.countDelta());
+                current.sums.addAndGet(index, event.sumDelta());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<MovieSummaryDTO> findSummariesAfter(long afterId, int limit) {
+        Snapshot current = snapshot;
+        int start = current.firstAfter(afterId);
+        int end = Math.min(current.size(), start + limit);
+        List<MovieSummaryDTO> movies = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            movies.add(current.summary(i));
+        }
+        return movies;
+    }
+
+    public List<Movie> findByReleaseYear(int year) {
+        Snapshot current = snapshot;
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (current.years[i] == year) {
+                movies.add(current.movie(i));
+            }
+        }
+        return movies;
+    }
+
+    public List<Movie> findByGenre(String genre) {
+        Snapshot current = snapshot;
+        BitSet matches = current.anyGenre(List.of(genre));
+        List<Movie> movies = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            movies.add(current.movie(i));
+        }
+        return movies;
+    }
+
+    public MovieFilterResult filterMovies(MovieFilterCriteria criteria, long afterId, int limit) {
+        Snapshot current = snapshot;
+        int size = current.size();
+        BitSet matches = new BitSet(size);
+        matches.set(0, size);
+
+        if (criteria.getGenres() != null && !criteria.getGenres().isEmpty()) {
+            matches.and(criteria.matchAllGenres()
+                    ? current.allGenres(criteria.getGenres())
+                    : current.anyGenre(criteria.getGenres()));
+        }
+
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            if (!current.matchesScalars(i, criteria)) {
+                matches.clear(i);
+            }
+        }
+
+        List<MovieSummaryDTO> movies = new ArrayList<>();
+        for (int i = matches.nextSetBit(current.firstAfter(afterId)); i >= 0 && movies.size() < limit;
+             i = matches.nextSetBit(i + 1)) {
+            movies.add(current.summary(i));
+        }
+
+        Map<String, Long> genreCounts = new TreeMap<>();
+        for (int g = 0; g < current.genreNames.length; g++) {
+            BitSet inGenre = (BitSet) current.genreBits[g].clone();
+            inGenre.and(matches);
+            if (!inGenre.isEmpty()) {
+                genreCounts.put(current.genreNames[g], (long) inGenre.cardinality());
+            }
+        }
+
+        Map<Integer, Long> decadeCounts = new TreeMap<>();
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            decadeCounts.merge((current.years[i] / 10) * 10, 1L, Long::sum);
+        }
+
+        return new MovieFilterResult(movies, matches.cardinality(), genreCounts, decadeCounts);
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("serving", isServing());
+        if (current != null) {
+            long bytes = current.estimatedHeapBytes();
+            stats.put("movies", current.size());
+            stats.put("genres", current.genreNames.length);
+            stats.put("estimatedHeapBytes", bytes);
+            stats.put("estimatedBytesPer100kMovies", current.size() == 0 ? 0 : bytes * 100_000 / current.size());
+        }
+        return stats;
+    }
+
+    private record Row(Long id, String name, Integer releaseYear, Integer durationMinutes, String description,
+                       String posterUrl, List<String> genres, long ratingCount, long ratingSum) {
+    }
+
+    private static final class Snapshot {
+        final long[] ids;
+        final int[] years;
+        final int[] durations;
+        final String[] names;
+        final String[] descriptions;
+        final String[] posterUrls;
+        final AtomicLongArray counts;
+        final AtomicLongArray sums;
+
+        // Genre dictionary: code -> name and code -> movies (positions) with that genre
+        final String[] genreNames;
+        final BitSet[] genreBits;
+        final Map<String, int[]> genreCodesByLowerName;
+
+        private Snapshot(int size, int genreCount) {
+            ids = new long[size];
+            years = new int[size];
+            durations = new int[size];
+            names = new String[size];
+            descriptions = new String[size];
+            posterUrls = new String[size];
+            counts = new AtomicLongArray(size);
+            sums = new AtomicLongArray(size);
+            genreNames = new String[genreCount];
+            genreBits = new BitSet[genreCount];
+            genreCodesByLowerName = new HashMap<>();
+        }
+
+        static Snapshot build(List<Row> rows) {
+            Map<String, String> strings = new HashMap<>();
+            Map<String, Integer> genreCodes = new LinkedHashMap<>();
+            for (Row row : rows) {
+                for (String genre : row.genres()) {
+                    genreCodes.putIfAbsent(genre, genreCodes.size());
+                }
+            }
+
+            Snapshot snapshot = new Snapshot(rows.size(), genreCodes.size());
+            for (Map.Entry<String, Integer> genre : genreCodes.entrySet()) {
+                int code = genre.getValue();
+                snapshot.genreNames[code] = intern(strings, genre.getKey());
+                snapshot.genreBits[code] = new BitSet(rows.size());
+                snapshot.genreCodesByLowerName.merge(genre.getKey().toLowerCase(), new int[] {code}, (a, b) -> {
+                    int[] merged = Arrays.copyOf(a, a.length + 1);
+                    merged[a.length] = b[0];
+                    return merged;
+                });
+            }
+
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = rows.get(i);
+                snapshot.ids[i] = row.id();
+                snapshot.years[i] = row.releaseYear();
+                snapshot.durations[i] = row.durationMinutes() == null ? NO_DURATION : row.durationMinutes();
+                snapshot.names[i] = intern(strings, row.name());
+                snapshot.descriptions[i] = row.description();
+                snapshot.posterUrls[i] = intern(strings, row.posterUrl());
+                snapshot.counts.set(i, row.ratingCount());
+                snapshot.sums.set(i, row.ratingSum());
+                for (String genre : row.genres()) {
+                    snapshot.genreBits[genreCodes.get(genre)].set(i);
+                }
+            }
+            return snapshot;
+        }
+
+        private static String intern(Map<String, String> strings, String value) {
+            return value == null ? null : strings.computeIfAbsent(value, v -> v);
+        }
+
+        List<Row> toRows() {
+            List<Row> rows = new ArrayList<>(size() + 1);
+            for (int i = 0; i < size(); i++) {
+                rows.add(new Row(ids[i], names[i], years[i], duration(i), descriptions[i], posterUrls[i],
+                        genresOf(i), counts.get(i), sums.get(i)));
+            }
+            return rows;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        int firstAfter(long afterId) {
+            int index = Arrays.binarySearch(ids, afterId);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        Integer duration(int i) {
+            return durations[i] == NO_DURATION ? null : durations[i];
+        }
+
+        List<String> genresOf(int i) {
+            List<String> genres = new ArrayList<>(2);
+            for (int g = 0; g < genreNames.length; g++) {
+                if (genreBits[g].get(i)) {
+                    genres.add(genreNames[g]);
+                }
+            }
+            return genres;
+        }
+
+        BitSet anyGenre(List<String> genres) {
+            BitSet result = new BitSet(size());
+            for (String genre : genres) {
+                for (int code : genreCodesByLowerName.getOrDefault(genre.toLowerCase(), new int[0])) {
+                    result.or(genreBits[code]);
+                }
+            }
+            return result;
+        }
+
+        BitSet allGenres(List<String> genres) {
+            BitSet result = new BitSet(size());
+            result.set(0, size());
+            for (String genre : genres) {
+                result.and(anyGenre(List.of(genre)));
+            }
+            return result;
+        }
+
+        boolean matchesScalars(int i, MovieFilterCriteria criteria) {
+            if (criteria.getMinYear() != null && years[i] < criteria.getMinYear()) {
+                return false;
+            }
+            if (criteria.getMaxYear() != null && years[i] > criteria.getMaxYear()) {
+                return false;
+            }
+            if ((criteria.getMinDuration() != null || criteria.getMaxDuration() != null) && durations[i] == NO_DURATION) {
+                return false;
+            }
+            if (criteria.getMinDuration() != null && durations[i] < criteria.getMinDuration()) {
+                return false;
+            }
+            if (criteria.getMaxDuration() != null && durations[i] > criteria.getMaxDuration()) {
+                return false;
+            }
+            if (criteria.getMinRating() != null) {
+                long count = counts.get(i);
+                return count > 0 && sums.get(i) >= criteria.getMinRating() * count;
+            }
+            return true;
+        }
+
+        MovieSummaryDTO summary(int i) {
+            MovieSummaryDTO summary = new MovieSummaryDTO(ids[i], names[i], years[i], duration(i), posterUrls[i],
+                    counts.get(i), sums.get(i));
+            summary.setGenres(genresOf(i));
+            return summary;
+        }
+
+        Movie movie(int i) {
+            Movie movie = new Movie(names[i], years[i], descriptions[i], duration(i), genresOf(i), posterUrls[i]);
+            movie.setId(ids[i]);
+            movie.setRatingCount(counts.get(i));
+            movie.setRatingSum(sums.get(i));
+            return movie;
+        }
+
+        /**
+         * Rough shallow size with compressed oops: 16 byte array headers, 4
+         * byte references, and 40 bytes plus one byte per (Latin-1) character
+         * for every distinct String.
+         */
+        long estimatedHeapBytes() {
+            long n = size();
+            long bytes = 6 * 16L                 // array headers
+                    + n * 8 * 3                  // ids, counts, sums
+                    + n * 4 * 2                  // years, durations
+                    + n * 4 * 3;                 // name, description and poster references
+            for (BitSet bits : genreBits) {
+                bytes += 32 + (n + 7) / 8;
+            }
+
+            Map<String, Boolean> seen = new IdentityHashMap<>();
+            for (int i = 0; i < n; i++) {
+                bytes += stringBytes(seen, names[i]) + stringBytes(seen, descriptions[i])
+                        + stringBytes(seen, posterUrls[i]);
+            }
+            return bytes;
+        }
+
+        private static long stringBytes(Map<String, Boolean> seen, String value) {
+            if (value == null || seen.put(value, Boolean.TRUE) != null) {
+                return 0;
+            }
+            return 40L + value.length();
+        }
+    }
+}
@@ -1,19 +1,49 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.MovieFilterCriteria;
+import com.example.demo.dto.MovieFilterResult;
+import com.example.demo.dto.MovieSearchResultDTO;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
 import com.example.demo.model.Movie;
 import com.example.demo.repository.MovieRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class MovieService {
-    
+
     @Autowired
     private MovieRepository movieRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MovieCatalogReadModel catalogReadModel;
+
+    @Autowired
+    private CacheManager cacheManager;
     
+    @CacheEvict(cacheNames = CacheConfig.MOVIES_BY_GENRE, allEntries = true)
     public Movie addMovie(Movie movie) {
         // Check if movie with same name already exists
         Optional<Movie> existingMovie = movieRepository.findByNameIgnoreCase(movie.getName());
@@ -21,29 +51,128 @@ public class MovieService {
             throw new IllegalArgumentException("A movie with this name already exists");
         }
         
-        return movieRepository.save(movie);
+        Movie savedMovie = movieRepository.save(movie);
+        eventPublisher.publishEvent(MovieChangedEvent.saved(savedMovie));
+        return savedMovie;
+    }
+
+    public CursorPage<MovieSummaryDTO> getMoviePage(String after, int limit) {
+        long afterId = after == null || after.isBlank() ? 0L : CursorPage.decodeIdCursor(after);
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        // Fetch one extra row so we know whether there is a next page
+        boolean fromReadModel = catalogReadModel.isServing();
+        List<MovieSummaryDTO> movies = new ArrayList<>(fromReadModel
+                ? catalogReadModel.findSummariesAfter(afterId, pageSize + 1)
+                : movieRepository.findSummariesAfter(afterId, Limit.of(pageSize + 1)));
+        String nextCursor = null;
+        if (movies.size() > pageSize) {
+            movies = movies.subList(0, pageSize);
+            nextCursor = CursorPage.encodeCursor(movies.get(pageSize - 1).getId());
+        }
+
+        if (!fromReadModel) {
+            attachGenres(movies);
+        }
+        return new CursorPage<>(movies, nextCursor);
+    }
+
+    public MovieFilterResult filterMovies(MovieFilterCriteria criteria, String after, int limit) {
+        validate(criteria);
+        long afterId = after == null || after.isBlank() ? 0L : CursorPage.decodeIdCursor(after);
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        boolean fromReadModel = catalogReadModel.isServing();
+        MovieFilterResult result = fromReadModel
+                ? catalogReadModel.filterMovies(criteria, afterId, pageSize + 1)
+                : movieRepository.filterMovies(criteria, afterId, pageSize + 1);
+        List<MovieSummaryDTO> movies = result.getMovies();
+        if (movies.size() > pageSize) {
+            movies = new ArrayList<>(movies.subList(0, pageSize));
+            result.setMovies(movies);
+            result.setNextCursor(CursorPage.encodeCursor(movies.get(pageSize - 1).getId()));
+        }
+
+        if (!fromReadModel) {
+            attachGenres(movies);
+        }
+        return result;
     }
 
-    public List<Movie> getAllMovies() {
-        return movieRepository.findAll();
+    private void validate(MovieFilterCriteria criteria) {
+        if (criteria.getMinYear() != null && criteria.getMaxYear() != null
+                && criteria.getMinYear() > criteria.getMaxYear()) {
+            throw new IllegalArgumentException("minYear must not be greater than maxYear");
+        }
+        if (criteria.getMinDuration() != null && criteria.getMaxDuration() != null
+                && criteria.getMinDuration() > criteria.getMaxDuration()) {
+            throw new IllegalArgumentException("minDuration must not be greater than maxDuration");
+        }
+        if (criteria.getMinRating() != null && (criteria.getMinRating() < 1 || criteria.getMinRating() > 5)) {
+            throw new IllegalArgumentException("minRating must be between 1 and 5");
+        }
+        String mode = criteria.getGenreMode();
+        if (mode != null && !mode.equalsIgnoreCase("any") && !mode.equalsIgnoreCase("all")) {
+            throw new IllegalArgumentException("genreMode must be 'any' or 'all'");
+        }
+    }
+
+    private void attachGenres(List<MovieSummaryDTO> movies) {
+        if (movies.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = movies.stream().map(MovieSummaryDTO::getId).toList();
+        Map<Long, List<String>> genresByMovie = new HashMap<>();
+        for (Object[] row : movieRepository.findGenresByMovieIds(ids)) {
+            genresByMovie.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        for (MovieSummaryDTO movie : movies) {
+            movie.setGenres(genresByMovie.getOrDefault(movie.getId(), List.of()));
+        }
     }
 
+    @Cacheable(cacheNames = CacheConfig.MOVIES, key = "#id", unless = "#result == null")
     public Optional<Movie> getMovieById(Long id) {
-        return movieRepository.findById(id);
+        return movieRepository.findWithGenresById(id);
     }
 
-    public List<Movie> searchMoviesByName(String name) {
-        return movieRepository.findByNameContainingIgnoreCase(name);
+    // Rating totalen zitten in de gecachte film; na de commit van een rating moet die film uit de cache
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evictRatedMovie(RatingChangedEvent event) {
+        Cache movies = cacheManager.getCache(CacheConfig.MOVIES);
+        if (movies != null) {
+            movies.evict(event.getMovieId());
+        }
+    }
+
+    public List<MovieSearchResultDTO> searchMovies(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return movieRepository.searchMovies(query, CursorPage.clampPageSize(limit));
     }
 
     public List<Movie> getMoviesByYear(Integer year) {
+        if (catalogReadModel.isServing()) {
+            return catalogReadModel.findByReleaseYear(year);
+        }
         return movieRepository.findByReleaseYear(year);
     }
 
+    @Cacheable(cacheNames = CacheConfig.MOVIES_BY_GENRE, key = "#genre.toLowerCase()")
     public List<Movie> getMoviesByGenre(String genre) {
+        if (catalogReadModel.isServing()) {
+            return catalogReadModel.findByGenre(genre);
+        }
         return movieRepository.findByGenre(genre);
     }
 
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.MOVIES, key = "#id"),
+        @CacheEvict(cacheNames = CacheConfig.MOVIES_BY_GENRE, allEntries = true)
+    })
     public Movie updateMovie(Long id, Movie updateRequest) {
         Optional<Movie> movieOpt = movieRepository.findById(id);
         
@@ -82,17 +211,23 @@ public class MovieService {
             existingMovie.setPosterUrl(updateRequest.getPosterUrl());
         }
         
-        return movieRepository.save(existingMovie);
+        Movie savedMovie = movieRepository.save(existingMovie);
+        eventPublisher.publishEvent(MovieChangedEvent.saved(savedMovie));
+        return savedMovie;
     }
 
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.MOVIES, key = "#id"),
+        @CacheEvict(cacheNames = CacheConfig.MOVIES_BY_GENRE, allEntries = true)
+    })
+    @Transactional
     public boolean deleteMovie(Long id) {
-        Optional<Movie> movieOpt = movieRepository.findById(id);
-        
-        if (movieOpt.isEmpty()) {
+        // Alleen de tombstone zetten; de ratings ruimt PurgeService in batches op
+        if (movieRepository.lockForDelete(id).isEmpty() || movieRepository.markDeleted(id) == 0) {
             return false;
         }
         
-        movieRepository.deleteById(id);
+        eventPublisher.publishEvent(MovieChangedEvent.deleted(id));
         return true;
     }
 }
\ No newline at end of file
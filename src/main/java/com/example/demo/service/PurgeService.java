@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PurgeStatusDTO;
+import com.example.demo.dto.PurgeStatusDTO.State;
+import com.example.demo.event.FollowChangedEvent;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.PurgeRepository;
+import com.example.demo.repository.PurgeRepository.RatingRow;
+import com.example.demo.repository.PurgeRepository.Table;
+import com.example.demo.repository.PurgeRepository.Tombstone;
+import com.example.demo.repository.RatingBatchRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Background removal of soft-deleted users and movies.
+ *
+ * Deleting a user or movie only sets deleted_at, which hides the row from
+ * every read path right away. This purger then removes what hangs off it
+ * (ratings, follows) in batches of purge.batch-size, each batch in its own
+ * short transaction, keeps the movie rating aggregates and follow counts in
+ * step, publishes the usual change events and finally deletes the row.
+ * Progress of running and recently finished purges is kept in memory.
+ */
+@Service
+public class PurgeService {
+
+    public static final String USER = "user";
+    public static final String MOVIE = "movie";
+
+    private static final Logger log = LoggerFactory.getLogger(PurgeService.class);
+
+    // Tombstones per run; wat overblijft pakt de volgende run op
+    private static final int TOMBSTONES_PER_RUN = 100;
+
+    @Autowired
+    private PurgeRepository purgeRepository;
+
+    @Autowired
+    private RatingBatchRepository ratingBatchRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${purge.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${purge.batch-size:1000}")
+    private int batchSize = 1000;
+
+    private final Cache<String, PurgeStatusDTO> statuses = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(24))
+            .build();
+
+    @Scheduled(fixedDelayString = "${purge.interval-ms:10000}", initialDelayString = "${purge.interval-ms:10000}")
+    public void purgeOnSchedule() {
+        if (enabled) {
+            purgePending();
+        }
+    }
+
+    // Aantal volledig opgeruimde rijen
+    public synchronized int purgePending() {
+        int purged = 0;
+        for (Tombstone tombstone : purgeRepository.findTombstones(Table.MOVIES, TOMBSTONES_PER_RUN)) {
+            purged += purge(MOVIE, tombstone) ? 1 : 0;
+        }
+        for (Tombstone tombstone : purgeRepository.findTombstones(Table.USERS, TOMBSTONES_PER_RUN)) {
+            purged += purge(USER, tombstone) ? 1 : 0;
+        }
+        return purged;
+    }
+
+    public Optional<PurgeStatusDTO> getStatus(String type, Long id) {
+        Table table = table(type);
+        PurgeStatusDTO status = statuses.getIfPresent(key(type, id));
+        if (status != null) {
+            return Optional.of(status);
+        }
+        return purgeRepository.findTombstone(table, id)
+                .map(tombstone -> pending(type, tombstone));
+    }
+
+    // Lopende en recent afgeronde purges, nieuwste tombstone eerst
+    public List<PurgeStatusDTO> getRecentStatuses() {
+        List<PurgeStatusDTO> recent = new ArrayList<>(statuses.asMap().values());
+        recent.sort(Comparator.comparing(PurgeStatusDTO::getDeletedAt).reversed());
+        return recent;
+    }
+
+    public Map<String, Long> getPendingCounts() {
+        return Map.of(USER, purgeRepository.countTombstones(Table.USERS),
+                MOVIE, purgeRepository.countTombstones(Table.MOVIES));
+    }
+
+    private boolean purge(String type, Tombstone tombstone) {
+        Progress progress = new Progress(type, tombstone);
+        publish(progress);
+        try {
+            if (USER.equals(type)) {
+                purgeFollows(progress);
+                purgeUserRatings(progress);
+            } else {
+                purgeMovieRatings(progress);
+            }
+            Table table = table(type);
+            transactionTemplate.executeWithoutResult(status -> {
+                purgeRepository.deleteTombstone(table, tombstone.id());
+                if (MOVIE.equals(type)) {
+                    // Nog een keer: een rating event dat vlak voor de tombstone committe kan de film na de
+                    // eerste delete weer in een read model hebben gezet
+                    eventPublisher.publishEvent(MovieChangedEvent.deleted(tombstone.id()));
+                }
+            });
+            progress.state = State.DONE;
+            return true;
+        } catch (DataAccessException e) {
+            // Wat al gecommit is blijft weg; de volgende run gaat verder met de rest
+            log.warn("Purge of {} {} failed, retrying on the next run", type, tombstone.id(), e);
+            progress.state = State.FAILED;
+            return false;
+        } finally {
+            progress.finishedAt = LocalDateTime.now();
+            publish(progress);
+        }
+    }
+
+    // Eerst de follows: zonder volgers hoeft FeedService de rating events daarna niet meer uit te delen
+    private void purgeFollows(Progress progress) {
+        long userId = progress.tombstone.id();
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<Long> followedIds = purgeRepository.findFollowedIds(userId, batchSize);
+                purgeRepository.deleteFollowing(userId, followedIds);
+                followedIds.forEach(followedId ->
+                        eventPublisher.publishEvent(FollowChangedEvent.unfollowed(userId, followedId)));
+                return followedIds.size();
+            });
+            progress.followsDeleted += deleted;
+            publish(progress);
+        } while (deleted == batchSize);
+
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<Long> followerIds = purgeRepository.findFollowerIds(userId, batchSize);
+                purgeRepository.deleteFollowers(userId, followerIds);
+                followerIds.forEach(followerId ->
+                        eventPublisher.publishEvent(FollowChangedEvent.unfollowed(followerId, userId)));
+                return followerIds.size();
+            });
+            progress.followsDeleted += deleted;
+            publish(progress);
+        } while (deleted == batchSize);
+    }
+
+    // Elke batch haalt ook de rating totalen van de geraakte films omlaag, net als een gewone delete
+    private void purgeUserRatings(Progress progress) {
+        long userId = progress.tombstone.id();
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<RatingRow> ratings = purgeRepository.findRatingsByUser(userId, batchSize);
+                // Gesorteerd op movie id, zodat gelijktijdige writers de film rijen in dezelfde volgorde locken
+                Map<Long, long[]> deltas = new TreeMap<>();
+                List<Long> ratingIds = new ArrayList<>(ratings.size());
+                for (RatingRow rating : ratings) {
+                    long[] delta = deltas.computeIfAbsent(rating.movieId(), id -> new long[2]);
+                    delta[0]--;
+                    delta[1] -= rating.rating();
+                    ratingIds.add(rating.id());
+                }
+                purgeRepository.deleteRatings(ratingIds);
+                ratingBatchRepository.adjustRatingAggregates(deltas);
+                for (RatingRow rating : ratings) {
+                    eventPublisher.publishEvent(
+                            RatingChangedEvent.deleted(rating.id(), userId, rating.movieId(), rating.rating()));
+                }
+                return ratings.size();
+            });
+            progress.ratingsDeleted += deleted;
+            publish(progress);
+        } while (deleted == batchSize);
+    }
+
+    // De film verdwijnt zelf, dus geen totalen of events per rating; read models laten hem vallen op MovieChangedEvent
+    private void purgeMovieRatings(Progress progress) {
+        long movieId = progress.tombstone.id();
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<Long> ratingIds = purgeRepository.findRatingIdsByMovie(movieId, batchSize);
+                purgeRepository.deleteRatings(ratingIds);
+                return ratingIds.size();
+            });
+            progress.ratingsDeleted += deleted;
+            publish(progress);
+        } while (deleted == batchSize);
+    }
+
+    private void publish(Progress progress) {
+        statuses.put(key(progress.type, progress.tombstone.id()), new PurgeStatusDTO(progress.type,
+                progress.tombstone.id(), progress.state, progress.ratingsDeleted, progress.followsDeleted,
+                progress.tombstone.deletedAt(), progress.startedAt, progress.finishedAt));
+    }
+
+    private static PurgeStatusDTO pending(String type, Tombstone tombstone) {
+        return new PurgeStatusDTO(type, tombstone.id(), State.PENDING, 0, 0, tombstone.deletedAt(), null, null);
+    }
+
+    private static Table table(String type) {
+        if (USER.equals(type)) {
+            return Table.USERS;
+        }
+        if (MOVIE.equals(type)) {
+            return Table.MOVIES;
+        }
+        throw new IllegalArgumentException("Unknown purge type: " + type);
+    }
+
+    private static String key(String type, long id) {
+        return type + ":" + id;
+    }
+
+    // Alleen door de purger thread aangepast; lezers zien de kopie in statuses
+    private static final class Progress {
+        private final String type;
+        private final Tombstone tombstone;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private State state = State.RUNNING;
+        private long ratingsDeleted;
+        private long followsDeleted;
+        private LocalDateTime finishedAt;
+
+        Progress(String type, Tombstone tombstone) {
+            this.type = type;
+            this.tombstone = tombstone;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BatchItemResult;
+import com.example.demo.dto.BatchItemResult.Status;
+import com.example.demo.dto.RatingBatchResult;
+import com.example.demo.dto.RatingRequest;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.RatingBatchRepository;
+import com.example.demo.repository.RatingBatchRepository.RatingKey;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk ingestion of ratings, e.g. for clients syncing offline ratings.
+ * Items are validated one by one and written in chunks, each chunk in its
+ * own transaction, so a huge upload never holds one long transaction open.
+ */
+@Service
+public class RatingBatchService {
+
+    // Alleen een paar dat telkens tussen lock en insert weer verdwijnt laat een ronde opnieuw lopen
+    private static final int MAX_WRITE_ROUNDS = 3;
+
+    @Autowired
+    private RatingBatchRepository ratingBatchRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ratings.batch.chunk-size:500}")
+    private int chunkSize;
+
+    // De controller weigert grotere batches (413), voor JSON en NDJSON gelijk
+    @Value("${ratings.batch.max-items:10000}")
+    private int maxItems;
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    // A null element stands for an item the caller could not parse
+    public RatingBatchResult addRatings(Iterator<RatingRequest> requests) {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<PendingItem> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        while (requests.hasNext()) {
+            RatingRequest request = requests.next();
+            String problem = validate(request);
+            if (problem != null) {
+                results.add(new BatchItemResult(index, Status.INVALID, problem));
+            } else {
+                chunk.add(new PendingItem(index, request));
+            }
+            index++;
+
+            if (chunk.size() == chunkSize) {
+                results.addAll(writeChunk(chunk));
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(writeChunk(chunk));
+        }
+
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        return new RatingBatchResult(results);
+    }
+
+    private String validate(RatingRequest request) {
+        if (request == null) {
+            return "Malformed item";
+        }
+
+        Set<ConstraintViolation<RatingRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private List<BatchItemResult> writeChunk(List<PendingItem> chunk) {
+        try {
+            return transactionTemplate.execute(status -> writeChunkInTransaction(chunk));
+        } catch (DataAccessException e) {
+            // E.g. pairs that kept changing concurrently; the whole chunk was rolled back
+            List<BatchItemResult> failed = new ArrayList<>(chunk.size());
+            for (PendingItem item : chunk) {
+                failed.add(new BatchItemResult(item.index(), Status.FAILED, "Chunk could not be written"));
+            }
+            return failed;
+        }
+    }
+
+    private List<BatchItemResult> writeChunkInTransaction(List<PendingItem> chunk) {
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> movieIds = new HashSet<>();
+        for (PendingItem item : chunk) {
+            userIds.add(item.request().getUserId());
+            movieIds.add(item.request().getMovieId());
+        }
+        // A user or movie deleted before this point is reported as not found, a delete after it waits for the commit
+        Set<Long> knownUsers = ratingBatchRepository.lockLiveUsers(userIds);
+        Set<Long> knownMovies = ratingBatchRepository.lockLiveMovies(movieIds);
+
+        // Last item wins when the same (user, movie) pair appears more than once in a chunk
+        Map<RatingKey, PendingItem> latest = new LinkedHashMap<>();
+        for (PendingItem item : chunk) {
+            RatingRequest request = item.request();
+            if (!knownUsers.contains(request.getUserId())) {
+                results.add(new BatchItemResult(item.index(), Status.USER_NOT_FOUND, "User not found"));
+            } else if (!knownMovies.contains(request.getMovieId())) {
+                results.add(new BatchItemResult(item.index(), Status.MOVIE_NOT_FOUND, "Movie not found"));
+            } else {
+                PendingItem replaced = latest.put(new RatingKey(request.getUserId(), request.getMovieId()), item);
+                if (replaced != null) {
+                    results.add(new BatchItemResult(replaced.index(), Status.SUPERSEDED,
+                            "Overwritten by a later item for the same user and movie"));
+                }
+            }
+        }
+        if (latest.isEmpty()) {
+            return results;
+        }
+
+        // Rondes: bestaande paren vergrendelen en updaten, de rest invoegen; wat een gelijktijdige
+        // transactie intussen aanmaakte komt in de volgende ronde als update terug
+        Map<RatingKey, Integer> previous = new HashMap<>();
+        Set<RatingKey> remaining = new LinkedHashSet<>(latest.keySet());
+        for (int round = 1; !remaining.isEmpty(); round++) {
+            if (round > MAX_WRITE_ROUNDS) {
+                throw new ConcurrencyFailureException("Ratings of this chunk kept changing concurrently");
+            }
+
+            Map<RatingKey, Integer> locked = ratingBatchRepository.lockCurrentValues(remaining);
+            List<RatingRequest> updates = new ArrayList<>();
+            List<RatingRequest> inserts = new ArrayList<>();
+            for (RatingKey key : remaining) {
+                if (locked.containsKey(key)) {
+                    updates.add(latest.get(key).request());
+                } else {
+                    inserts.add(latest.get(key).request());
+                }
+            }
+            previous.putAll(locked);
+            ratingBatchRepository.updateRatings(updates);
+
+            Set<RatingKey> inserted = ratingBatchRepository.insertMissingRatings(inserts);
+            remaining = new LinkedHashSet<>();
+            for (RatingRequest request : inserts) {
+                RatingKey key = new RatingKey(request.getUserId(), request.getMovieId());
+                if (!inserted.contains(key)) {
+                    remaining.add(key);
+                }
+            }
+        }
+
+        // Gesorteerd op movie id, zodat gelijktijdige chunks de movies rijen in dezelfde volgorde vergrendelen
+        Map<Long, long[]> deltas = new TreeMap<>();
+        for (Map.Entry<RatingKey, PendingItem> entry : latest.entrySet()) {
+            RatingRequest request = entry.getValue().request();
+            Integer old = previous.get(entry.getKey());
+            long[] delta = deltas.computeIfAbsent(request.getMovieId(), id -> new long[2]);
+            if (old == null) {
+                delta[0] += 1;
+                delta[1] += request.getRating();
+            } else {
+                delta[1] += request.getRating() - old;
+            }
+            results.add(new BatchItemResult(entry.getValue().index(), Status.SAVED, null));
+        }
+        ratingBatchRepository.adjustRatingAggregates(deltas);
+
+        // Delivered to the listeners once this chunk's transaction commits
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<RatingKey, PendingItem> entry : latest.entrySet()) {
+            RatingRequest request = entry.getValue().request();
+            eventPublisher.publishEvent(new RatingChangedEvent(null, request.getUserId(), null, request.getMovieId(),
+                    previous.get(entry.getKey()), request.getRating(), request.getComment(), now));
+        }
+        return results;
+    }
+
+    private record PendingItem(int index, RatingRequest request) {}
+
+}
@@ -0,0 +1,337 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RatingSummaryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.MovieRatingsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The 1-5 star distribution of every rated movie, in memory, so rating
+ * summaries (count, mean, median, histogram) need no database access.
+ *
+ * Ratings are 1-5 (entity validation and the V1 CHECK), so a movie is five
+ * counters. Movie ids are the keys of an open addressing table (linear
+ * probing, long[] keys) and the counters sit in one flat int[] with stride 5,
+ * so there is no object per movie. Loaded with one GROUP BY at startup and
+ * kept up to date from RatingChangedEvent, which covers single writes
+ * (old -> new value on an update), deletes, bulk ingestion and purges.
+ *
+ * A write that commits while the GROUP BY runs may or may not be in its
+ * result, so events that arrive during a load only mark their movie; those
+ * movies are read again once the snapshot is in, and the new table takes
+ * over when a round finds no new ones. The reload runs periodically as well
+ * (ratings.histogram.reconcile-interval-ms), which also repairs an event
+ * whose listener ran just after the switch for a write the load had seen.
+ *
+ * Enabled with ratings.histogram.enabled; until the load has finished (or
+ * when disabled) isServing() is false and RatingService queries the database.
+ */
+@Service
+public class RatingHistogramStore {
+
+    public static final int STARS = 5;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Onder de 0.5 blijven de probe ketens bij linear probing kort
+    private static final double MAX_LOAD = 0.5;
+    // Movie ids komen uit een IDENTITY kolom en zijn nooit 0
+    private static final long EMPTY = 0L;
+    // Daarna de laatste ronde onder de write lock, anders blijft een drukke film de load eeuwig verlengen
+    private static final int MAX_CATCH_UP_ROUNDS = 3;
+
+    @Autowired
+    private MovieRatingsRepository movieRatingsRepository;
+
+    @Value("${ratings.histogram.enabled:false}")
+    private boolean enabled;
+
+    private Table table = new Table();
+    private volatile boolean loaded;
+    // Films met een event sinds het begin van de lopende load; null als er geen load loopt. Al gevuld vanaf
+    // de start, want requests die voor ApplicationReadyEvent binnenkomen schrijven ook al ratings
+    private Set<Long> pending = new HashSet<>();
+
+    // Lezers delen de read lock; elke mutatie (ook een enkele rating) neemt kort de write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ratings.histogram.reconcile-interval-ms:3600000}",
+               initialDelayString = "${ratings.histogram.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        if (enabled && loaded) {
+            reload();
+        }
+    }
+
+    // Bouwt een nieuwe tabel naast de huidige, die intussen gewoon blijft serveren en events verwerken
+    private synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            if (pending == null) {
+                pending = new HashSet<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Table fresh = new Table();
+        movieRatingsRepository.forEachRatingCount(fresh::add);
+        for (int round = 1; ; round++) {
+            Set<Long> dirty;
+            lock.writeLock().lock();
+            try {
+                if (pending.isEmpty() || round == MAX_CATCH_UP_ROUNDS) {
+                    reread(fresh, pending);
+                    table = fresh;
+                    pending = null;
+                    loaded = true;
+                    return;
+                }
+                dirty = pending;
+                pending = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            reread(fresh, dirty);
+        }
+    }
+
+    // Na de commit van hun events gelezen, dus die writes zitten er precies een keer in
+    private void reread(Table fresh, Set<Long> movieIds) {
+        if (movieIds.isEmpty()) {
+            return;
+        }
+        for (Long movieId : movieIds) {
+            fresh.remove(movieId);
+        }
+        movieRatingsRepository.forEachRatingCount(movieIds, fresh::add);
+    }
+
+    public boolean isServing() {
+        return enabled && loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (!enabled || event.getMovieId() == null) {
+            return;
+        }
+        Integer oldRating = event.getOldRating();
+        Integer newRating = event.getNewRating();
+        if (oldRating != null && oldRating.equals(newRating)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(event.getMovieId());
+            }
+            if (loaded) {
+                table.apply(event.getMovieId(), oldRating, newRating);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (!enabled || event.getType() != MovieChangedEvent.Type.DELETED) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(event.getMovieId());
+            }
+            table.remove(event.getMovieId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Kopie van de vijf tellers (index 0 is 1 ster); nullen voor een film zonder ratings
+    public int[] getHistogram(Long movieId) {
+        int[] histogram = new int[STARS];
+        lock.readLock().lock();
+        try {
+            table.copyInto(movieId, histogram);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return histogram;
+    }
+
+    public RatingSummaryDTO getSummary(Long movieId) {
+        return summarize(getHistogram(movieId));
+    }
+
+    static RatingSummaryDTO summarize(int[] histogram) {
+        long total = 0;
+        long sum = 0;
+        long[] perStar = new long[STARS];
+        for (int star = 1; star <= STARS; star++) {
+            perStar[star - 1] = histogram[star - 1];
+            total += histogram[star - 1];
+            sum += (long) star * histogram[star - 1];
+        }
+        return new RatingSummaryDTO(total, sum, perStar);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return table.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isStar(Integer rating) {
+        return rating != null && rating >= 1 && rating <= STARS;
+    }
+
+    private static int hash(long movieId, int mask) {
+        // fmix64 uit MurmurHash3: opeenvolgende ids vallen anders in opeenvolgende slots
+        long h = movieId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /**
+     * The open addressing table itself. Only used under the store's lock,
+     * or by the load before it is swapped in.
+     */
+    private static final class Table {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] counts = new int[INITIAL_CAPACITY * STARS];
+        private int size;
+
+        void add(long movieId, int rating, long count) {
+            if (isStar(rating)) {
+                counts[slotFor(movieId) * STARS + rating - 1] += (int) count;
+            }
+        }
+
+        void apply(long movieId, Integer oldRating, Integer newRating) {
+            // Een delete voor een film die we niet kennen hoeft geen lege entry aan te maken
+            int slot = isStar(newRating) ? slotFor(movieId) : find(movieId);
+            if (slot < 0) {
+                return;
+            }
+            int base = slot * STARS;
+            if (isStar(oldRating) && counts[base + oldRating - 1] > 0) {
+                counts[base + oldRating - 1]--;
+            }
+            if (isStar(newRating)) {
+                counts[base + newRating - 1]++;
+            }
+        }
+
+        void copyInto(long movieId, int[] histogram) {
+            int slot = find(movieId);
+            if (slot >= 0) {
+                System.arraycopy(counts, slot * STARS, histogram, 0, STARS);
+            }
+        }
+
+        void remove(long movieId) {
+            int slot = find(movieId);
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+        }
+
+        private int find(long movieId) {
+            int mask = keys.length - 1;
+            for (int slot = hash(movieId, mask); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == movieId) {
+                    return slot;
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        // Slot van de film, zo nodig aangemaakt; alleen onder de write lock
+        private int slotFor(long movieId) {
+            int slot = find(movieId);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (size + 1 > keys.length * MAX_LOAD) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            slot = hash(movieId, mask);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = movieId;
+            size++;
+            return slot;
+        }
+
+        // Backward shift deletion: schuift de rest van de probe keten op, zodat er geen tombstones nodig zijn
+        private void removeSlot(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                int home = hash(keys[next], mask);
+                // next mag naar hole als zijn home niet cyclisch tussen hole (exclusief) en next ligt
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    System.arraycopy(counts, next * STARS, counts, hole * STARS, STARS);
+                    hole = next;
+                }
+            }
+            keys[hole] = EMPTY;
+            for (int i = 0; i < STARS; i++) {
+                counts[hole * STARS + i] = 0;
+            }
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[capacity];
+            counts = new int[capacity * STARS];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = hash(oldKeys[i], mask);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    System.arraycopy(oldCounts, i * STARS, counts, slot * STARS, STARS);
+                }
+            }
+        }
+    }
+}
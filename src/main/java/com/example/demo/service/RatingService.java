@@ -1,84 +1,224 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FollowingRatingDTO;
 import com.example.demo.dto.RatingDTO;
-import com.example.demo.model.Movie;
+import com.example.demo.dto.RatingSummaryDTO;
+import com.example.demo.dto.RatingWriteResult;
+import com.example.demo.dto.UserRatingDTO;
+import com.example.demo.event.RatingChangedEvent;
 import com.example.demo.model.Rating;
-import com.example.demo.model.User;
+import com.example.demo.repository.MovieRatingsRepository;
 import com.example.demo.repository.MovieRepository;
 import com.example.demo.repository.RatingRepository;
 import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class RatingService {
+
+    // Eén pagina films
+    public static final int MAX_FOLLOWING_RATING_MOVIES = CursorPage.MAX_PAGE_SIZE;
     
     @Autowired
     private RatingRepository ratingRepository;
     
+    @Autowired
+    private MovieRepository movieRepository;
+
     @Autowired
     private UserRepository userRepository;
-    
+
     @Autowired
-    private MovieRepository movieRepository;
+    private MovieRatingsRepository movieRatingsRepository;
+
+    @Autowired
+    private RatingHistogramStore ratingHistogramStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     // Business logic methods komen hier
-    public Rating addOrUpdateRating(Long userId, Long movieId, Integer ratingValue, String comment) {
-        // Check if user exists
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            throw new IllegalArgumentException("User not found");
+    @Transactional
+    public RatingDTO addOrUpdateRating(Long userId, Long movieId, Integer ratingValue, String comment) {
+        // Only for a live user and movie; both stay locked against a concurrent delete until the commit
+        RatingWriteResult result = ratingRepository.upsertRating(userId, movieId, ratingValue, comment)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        userRepository.existsById(userId) ? "Movie not found" : "User not found"));
+
+        if (result.isInsert()) {
+            movieRepository.adjustRatingAggregates(movieId, 1, ratingValue);
+        } else {
+            movieRepository.adjustRatingAggregates(movieId, 0, ratingValue - result.getPreviousRating());
         }
-        
-        // Check if movie exists
-        Optional<Movie> movieOpt = movieRepository.findById(movieId);
-        if (movieOpt.isEmpty()) {
-            throw new IllegalArgumentException("Movie not found");
+
+        eventPublisher.publishEvent(RatingChangedEvent.written(result.getRating(), result.getPreviousRating()));
+        return result.getRating();
+    }
+
+    /**
+     * One page of a movie's ratings, sorted "newest", "highest" or "lowest".
+     * The cursor holds the sort order and the key of the last rating, so the
+     * next page is an index seek no matter how many ratings the movie has.
+     */
+    public CursorPage<RatingDTO> getRatingsByMovie(Long movieId, String sort, String after, int limit) {
+        MovieRatingsRepository.Sort order = parseSort(sort);
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        Integer afterRating = null;
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (after != null && !after.isBlank()) {
+            String[] parts = CursorPage.decodeCursor(after, 4);
+            if (!parts[0].equals(order.name())) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            try {
+                afterRating = Integer.parseInt(parts[1]);
+                afterCreatedAt = LocalDateTime.parse(parts[2]);
+                afterId = Long.parseLong(parts[3]);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
         }
-        
-        User user = userOpt.get();
-        Movie movie = movieOpt.get();
-        
-        // Check if rating already exists
-        Optional<Rating> existingRatingOpt = ratingRepository.findByUserIdAndMovieId(userId, movieId);
-        
-        Rating rating;
-        if (existingRatingOpt.isPresent()) {
-            // Update existing rating
-            rating = existingRatingOpt.get();
-            rating.setRating(ratingValue);
-            rating.setComment(comment);
-        } else {
-            // Create new rating
-            rating = new Rating(user, movie, ratingValue, comment);
+
+        if (!movieRepository.existsById(movieId)) {
+            return new CursorPage<>(List.of(), null);
         }
-        
-        return ratingRepository.save(rating);
+
+        // Fetch one extra row so we know whether there is a next page
+        List<RatingDTO> ratings = movieRatingsRepository.findPage(
+                movieId, order, afterRating, afterCreatedAt, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (ratings.size() > pageSize) {
+            ratings = ratings.subList(0, pageSize);
+            RatingDTO last = ratings.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(order.name(), last.getRating(), last.getCreatedAt(), last.getId());
+        }
+        return new CursorPage<>(ratings, nextCursor);
     }
 
-    public List<RatingDTO> getRatingsByMovie(Long movieId) {
-        return ratingRepository.findRatingDTOsByMovieId(movieId);
+    // Uit het geheugen als de histogram store draait; anders de query, los van de pagina's gecached
+    // (een paar seconden achterlopen is voor een histogram geen probleem)
+    @Cacheable(cacheNames = CacheConfig.RATING_SUMMARIES, key = "#movieId", sync = true,
+               condition = "!@ratingHistogramStore.isServing()")
+    public RatingSummaryDTO getRatingSummary(Long movieId) {
+        if (ratingHistogramStore.isServing()) {
+            return ratingHistogramStore.getSummary(movieId);
+        }
+        if (!movieRepository.existsById(movieId)) {
+            return RatingSummaryDTO.empty();
+        }
+        return movieRatingsRepository.findSummary(movieId);
     }
 
-    public Double getAverageRatingForMovie(Long movieId) {
-        return ratingRepository.getAverageRatingForMovie(movieId);
+    private static MovieRatingsRepository.Sort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return MovieRatingsRepository.Sort.NEWEST;
+        }
+        try {
+            return MovieRatingsRepository.Sort.valueOf(sort.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Sort must be newest, highest or lowest");
+        }
     }
 
-    public Long getTotalRatingsForMovie(Long movieId) {
-        return ratingRepository.countByMovieId(movieId);
+    public FollowingRatingDTO getFollowingRating(Long userId, Long movieId) {
+        return getFollowingRatings(userId, List.of(movieId)).get(0);
     }
 
-    public List<Rating> getRatingsByUser(Long userId) {
-        return ratingRepository.findByUserId(userId);
+    // Eén join over user_follows en ratings voor de hele pagina, in plaats van een query per gevolgde gebruiker
+    public List<FollowingRatingDTO> getFollowingRatings(Long userId, Collection<Long> movieIds) {
+        Collection<Long> ids = new LinkedHashSet<>(movieIds);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        if (ids.size() > MAX_FOLLOWING_RATING_MOVIES) {
+            throw new IllegalArgumentException("At most " + MAX_FOLLOWING_RATING_MOVIES + " movie ids are allowed");
+        }
+
+        Map<Long, Object[]> totals = new HashMap<>();
+        for (Object[] row : ratingRepository.findFollowingRatingTotals(userId, ids)) {
+            totals.put(((Number) row[0]).longValue(), row);
+        }
+
+        List<FollowingRatingDTO> result = new ArrayList<>(ids.size());
+        for (Long movieId : ids) {
+            Object[] row = totals.get(movieId);
+            result.add(row == null
+                    ? new FollowingRatingDTO(movieId, 0, 0)
+                    : new FollowingRatingDTO(movieId, ((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+        }
+        return result;
+    }
+
+    /**
+     * One page of a user's ratings, most recently changed first, with the
+     * movie's name and poster: one query per page instead of a Rating entity
+     * (with its user and movie) per element. The cursor is (updated_at, id)
+     * of the last rating; a rating changed while paging moves to the front,
+     * it is never shown twice on later pages.
+     */
+    public CursorPage<UserRatingDTO> getRatingsByUser(Long userId, String before, int limit) {
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        LocalDateTime beforeUpdatedAt = null;
+        Long beforeId = null;
+        if (before != null && !before.isBlank()) {
+            String[] parts = CursorPage.decodeCursor(before, 2);
+            try {
+                beforeUpdatedAt = LocalDateTime.parse(parts[0]);
+                beforeId = Long.parseLong(parts[1]);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // existsById volgt @SQLRestriction: een verwijderde (tombstoned) user krijgt meteen een lege pagina,
+        // ook al staan diens ratings er tot de purge nog
+        if (!userRepository.existsById(userId)) {
+            return new CursorPage<>(List.of(), null);
+        }
+
+        // Fetch one extra row so we know whether there is a next page
+        List<UserRatingDTO> ratings = beforeId == null
+                ? ratingRepository.findHistory(userId, Limit.of(pageSize + 1))
+                : ratingRepository.findHistoryBefore(userId, beforeUpdatedAt, beforeId, Limit.of(pageSize + 1));
+        String nextCursor = null;
+        if (ratings.size() > pageSize) {
+            ratings = ratings.subList(0, pageSize);
+            UserRatingDTO last = ratings.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(last.getUpdatedAt(), last.getId());
+        }
+        return new CursorPage<>(ratings, nextCursor);
     }
 
     public Optional<Rating> getRatingByUserAndMovie(Long userId, Long movieId) {
         return ratingRepository.findByUserIdAndMovieId(userId, movieId);
     }   
 
+    public Optional<Long> getRatingUserId(Long id) {
+        return ratingRepository.findUserIdById(id);
+    }
+
+    @Transactional
     public boolean deleteRating(Long id) {
         Optional<Rating> ratingOpt = ratingRepository.findById(id);
         
@@ -86,7 +226,11 @@ public class RatingService {
             return false;
         }
         
+        Rating rating = ratingOpt.get();
+        movieRepository.adjustRatingAggregates(rating.getMovie().getId(), -1, -rating.getRating());
         ratingRepository.deleteById(id);
+        eventPublisher.publishEvent(RatingChangedEvent.deleted(
+                id, rating.getUser().getId(), rating.getMovie().getId(), rating.getRating()));
         return true;
     }
 }
\ No newline at end of file
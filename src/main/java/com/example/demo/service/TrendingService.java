@@ -0,0 +1,366 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LeaderboardEntryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.MovieRatingsRepository;
+import com.example.demo.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Trending now": the movies with the most rating activity in the last hour,
+ * 24 hours or 7 days, weighted by their average within that window. Served
+ * from memory, reads never touch the database.
+ *
+ * Every window is a ring of time buckets (1h: 12 x 5 minutes, 24h: 24 x 1
+ * hour, 7d: 28 x 6 hours) with the count and sum of the ratings written per
+ * movie in that period. A bucket knows its epoch (time / bucket width). The
+ * first write of a new period swaps a fresh bucket into the slot with a CAS,
+ * and readers skip buckets whose epoch has left the window, so buckets expire
+ * without locks or a cleanup job. The window slides per bucket: "24h" covers
+ * the current partial hour plus the 23 before it.
+ *
+ * A write counts at its updated_at (created_at for a new rating) and is fed
+ * from RatingChangedEvent; deleting a rating does not undo past activity.
+ * At startup the last 7 days are backfilled from ratings.updated_at, which
+ * only holds the latest write of each rating.
+ *
+ * Whether a write that commits around the backfill query is in its result
+ * can't be told from the event (bulk ingestion has no rating id), so events
+ * that arrive before or during the backfill only mark their movie. Those
+ * movies are read again once the backfill is in, until a round finds no new
+ * ones, and only then do events count directly. The backfill is repeated
+ * every trending.reconcile-interval-ms. Movie names come from the load and
+ * MovieChangedEvent, the listeners never query the database.
+ *
+ * Enabled with trending.enabled; until the backfill has finished isServing()
+ * is false.
+ */
+@Service
+public class TrendingService {
+
+    public static final int MAX_LIMIT = 100;
+
+    // Daarna de laatste ronde onder de write lock, zodat een drukke film de backfill niet eeuwig verlengt
+    private static final int MAX_CATCH_UP_ROUNDS = 3;
+
+    public enum Window {
+        HOUR("1h", Duration.ofMinutes(5), 12),
+        DAY("24h", Duration.ofHours(1), 24),
+        WEEK("7d", Duration.ofHours(6), 28);
+
+        private final String label;
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(String label, Duration bucket, int buckets) {
+            this.label = label;
+            this.bucketMillis = bucket.toMillis();
+            this.buckets = buckets;
+        }
+
+        public String getLabel() {return label;}
+
+        public Duration length() {
+            return Duration.ofMillis(bucketMillis * buckets);
+        }
+
+        public static Window parse(String value) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(value)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Window must be 1h, 24h or 7d");
+        }
+    }
+
+    private static final Comparator<LeaderboardEntryDTO> RANKING = Comparator
+            .comparingDouble(LeaderboardEntryDTO::getScore)
+            .thenComparing(LeaderboardEntryDTO::getMovieId, Comparator.reverseOrder());
+
+    @Autowired
+    private MovieRatingsRepository movieRatingsRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Value("${trending.enabled:false}")
+    private boolean enabled;
+
+    // Virtuele stemmen op het gemiddelde van het venster, zoals bij de leaderboard
+    @Value("${trending.min-votes:5}")
+    private double minVotes = 5;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private volatile Map<Window, AtomicReferenceArray<Bucket>> rings = newRings();
+    private final ConcurrentHashMap<Long, String> names = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // Films met een event sinds het begin van de lopende backfill, null als er geen loopt; al vanaf de start,
+    // want Tomcat neemt voor ApplicationReadyEvent al requests aan
+    private Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    // Events delen de read lock (de buckets zijn lock-free), het wisselen van de rings neemt de write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trending.reconcile-interval-ms:3600000}",
+               initialDelayString = "${trending.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        if (enabled && loaded) {
+            reload();
+        }
+    }
+
+    // Nieuwe rings naast de huidige, die intussen blijven serveren en events tellen
+    private synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            if (pending == null) {
+                pending = ConcurrentHashMap.newKeySet();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        for (Object[] row : movieRepository.findAllNames()) {
+            names.putIfAbsent((Long) row[0], (String) row[1]);
+        }
+        LocalDateTime since = LocalDateTime.now(clock).minus(Window.WEEK.length());
+        Map<Window, AtomicReferenceArray<Bucket>> fresh = newRings();
+        movieRatingsRepository.forEachRatingWrittenSince(since,
+                (movieId, rating, writtenAt) -> record(fresh, movieId, rating, writtenAt));
+
+        for (int round = 1; ; round++) {
+            Set<Long> dirty;
+            lock.writeLock().lock();
+            try {
+                if (pending.isEmpty() || round == MAX_CATCH_UP_ROUNDS) {
+                    reread(fresh, since, pending);
+                    rings = fresh;
+                    pending = null;
+                    loaded = true;
+                    return;
+                }
+                dirty = pending;
+                pending = ConcurrentHashMap.newKeySet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            reread(fresh, since, dirty);
+        }
+    }
+
+    // Na de commit van hun events gelezen, dus die writes tellen precies een keer
+    private void reread(Map<Window, AtomicReferenceArray<Bucket>> fresh, LocalDateTime since, Set<Long> movieIds) {
+        if (movieIds.isEmpty()) {
+            return;
+        }
+        for (Long movieId : movieIds) {
+            removeMovie(fresh, movieId);
+        }
+        movieRatingsRepository.forEachRatingWrittenSince(since, movieIds,
+                (movieId, rating, writtenAt) -> record(fresh, movieId, rating, writtenAt));
+    }
+
+    public boolean isServing() {
+        return enabled && loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (!enabled || event.getMovieId() == null || event.getNewRating() == null) {
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> loading = pending;
+            if (loading != null) {
+                loading.add(event.getMovieId());
+            }
+            if (loaded) {
+                record(rings, event.getMovieId(), event.getNewRating(),
+                        event.getOccurredAt() != null ? event.getOccurredAt() : LocalDateTime.now(clock));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() != MovieChangedEvent.Type.DELETED) {
+            names.put(event.getMovieId(), event.getMovie().getName());
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> loading = pending;
+            if (loading != null) {
+                loading.add(event.getMovieId());
+            }
+            names.remove(event.getMovieId());
+            removeMovie(rings, event.getMovieId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The top movies of the window, ranked by count x Bayesian average: the
+     * activity decides, a low average pulls a movie down. averageRating is
+     * the plain mean of the ratings written in the window.
+     */
+    public List<LeaderboardEntryDTO> getTrending(Window window, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        long current = clock.millis() / window.bucketMillis;
+
+        Map<Long, long[]> totals = new HashMap<>();
+        long windowCount = 0;
+        long windowSum = 0;
+        AtomicReferenceArray<Bucket> ring = rings.get(window);
+        for (int slot = 0; slot < ring.length(); slot++) {
+            Bucket bucket = ring.get(slot);
+            if (bucket == null || bucket.epoch <= current - window.buckets || bucket.epoch > current) {
+                continue;
+            }
+            for (Map.Entry<Long, Counter> entry : bucket.counters.entrySet()) {
+                long count = entry.getValue().count.get();
+                long sum = entry.getValue().sum.get();
+                long[] total = totals.computeIfAbsent(entry.getKey(), movieId -> new long[2]);
+                total[0] += count;
+                total[1] += sum;
+                windowCount += count;
+                windowSum += sum;
+            }
+        }
+
+        double priorMean = windowCount == 0 ? 0 : (double) windowSum / windowCount;
+        // Min-heap van de beste 'size' films; de zwakste valt er als eerste uit
+        PriorityQueue<LeaderboardEntryDTO> top = new PriorityQueue<>(size + 1, RANKING);
+        for (Map.Entry<Long, long[]> entry : totals.entrySet()) {
+            long count = entry.getValue()[0];
+            String name = names.get(entry.getKey());
+            if (count <= 0 || name == null) {
+                continue;
+            }
+            long sum = entry.getValue()[1];
+            double score = count * (minVotes * priorMean + sum) / (minVotes + count);
+            top.add(new LeaderboardEntryDTO(0, entry.getKey(), name, count, (double) sum / count, score));
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+
+        List<LeaderboardEntryDTO> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING.reversed());
+        for (int i = 0; i < ranked.size(); i++) {
+            ranked.get(i).setRank(i + 1);
+        }
+        return ranked;
+    }
+
+    private void record(Map<Window, AtomicReferenceArray<Bucket>> target, long movieId, int rating,
+                        LocalDateTime writtenAt) {
+        long now = clock.millis();
+        // Een klok die voorloopt (database vs. JVM) telt als nu
+        long time = Math.min(writtenAt.atZone(clock.getZone()).toInstant().toEpochMilli(), now);
+        for (Window window : Window.values()) {
+            add(target.get(window), window, time / window.bucketMillis, now / window.bucketMillis, movieId, rating);
+        }
+    }
+
+    private static void removeMovie(Map<Window, AtomicReferenceArray<Bucket>> target, Long movieId) {
+        for (AtomicReferenceArray<Bucket> ring : target.values()) {
+            for (int slot = 0; slot < ring.length(); slot++) {
+                Bucket bucket = ring.get(slot);
+                if (bucket != null) {
+                    bucket.counters.remove(movieId);
+                }
+            }
+        }
+    }
+
+    private static Map<Window, AtomicReferenceArray<Bucket>> newRings() {
+        Map<Window, AtomicReferenceArray<Bucket>> created = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            created.put(window, new AtomicReferenceArray<>(window.buckets));
+        }
+        return created;
+    }
+
+    private static void add(AtomicReferenceArray<Bucket> ring, Window window, long epoch, long current,
+                            long movieId, int rating) {
+        if (epoch <= current - window.buckets) {
+            return;
+        }
+        int slot = Math.floorMod(epoch, window.buckets);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch == epoch) {
+                bucket.add(movieId, rating);
+                return;
+            }
+            if (bucket != null && bucket.epoch > epoch) {
+                // Het slot is al voor een nieuwere periode hergebruikt: deze write is verlopen
+                return;
+            }
+            // Verlopen of leeg slot: wie de CAS wint zet de nieuwe bucket neer, de rest probeert opnieuw
+            ring.compareAndSet(slot, bucket, new Bucket(epoch));
+        }
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+
+        void add(long movieId, int rating) {
+            Counter counter = counters.computeIfAbsent(movieId, id -> new Counter());
+            counter.count.incrementAndGet();
+            counter.sum.addAndGet(rating);
+        }
+    }
+
+    private static final class Counter {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.demo.service;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -17,19 +28,30 @@ public class UserService {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UsernameAvailabilityService usernameAvailabilityService;
     
     // Hier komen alle business logic methods
     public User registerUser(User user) {
-        // Business logic: check if username exists
-        if (userRepository.existsByUsername(user.getUsername())) {
+        // Alleen bij een "misschien bezet" van het Bloom filter vooraf checken, dat scheelt een BCrypt ronde
+        if (usernameAvailabilityService.mightBeTaken(user.getUsername())
+                && userRepository.existsByUsername(user.getUsername())) {
             throw new IllegalArgumentException("Username is already taken");
         }
         
         // Business logic: encode password
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         
-        // Save user
-        return userRepository.save(user);
+        // De unique constraint beslist; ook bij twee gelijktijdige registraties met dezelfde naam
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Username is already taken");
+        }
+        usernameAvailabilityService.onUsernameAdded(saved.getUsername());
+        return saved;
     }
 
     public User loginUser(String username, String password) {
@@ -48,38 +70,73 @@ public class UserService {
         return user;
     }
 
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public CursorPage<UserSummaryDTO> getUserPage(String after, int limit) {
+        long afterId = after == null || after.isBlank() ? 0L : CursorPage.decodeIdCursor(after);
+        int pageSize = CursorPage.clampPageSize(limit);
+
+        // Fetch one extra row so we know whether there is a next page
+        List<UserSummaryDTO> users = userRepository.findSummariesAfter(afterId, Limit.of(pageSize + 1));
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            nextCursor = CursorPage.encodeCursor(users.get(pageSize - 1).getId());
+        }
+        return new CursorPage<>(users, nextCursor);
+    }
+
+    // Alle gebruikers een voor een; de driver haalt ze per fetch size op, dus het geheugen blijft constant
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserSummaryDTO> consumer) {
+        try (Stream<UserSummaryDTO> users = userRepository.streamAllSummaries()) {
+            users.forEach(consumer);
+        }
     }
 
-    public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+    // Gecached als summary, niet als entity: de password hash hoort niet in een cache
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#id", unless = "#result == null")
+    public Optional<UserSummaryDTO> getUserById(Long id) {
+        return userRepository.findSummaryById(id);
     }
 
-    public Optional<User> getUserByUsername(String username) {
-        return userRepository.findByUsername(username);
+    @Cacheable(cacheNames = CacheConfig.USERS_BY_USERNAME, key = "#username", unless = "#result == null")
+    public Optional<UserSummaryDTO> getUserByUsername(String username) {
+        return userRepository.findSummaryByUsername(username);
     }
 
+    // De username van het id is hier niet bekend, dus die cache gaat helemaal leeg (zeldzame operatie)
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id"),
+        @CacheEvict(cacheNames = CacheConfig.USERS_BY_USERNAME, allEntries = true)
+    })
+    @Transactional
     public boolean deleteUserById(Long id) {
-        Optional<User> user = userRepository.findById(id);
-        
-        if (user.isPresent()) {
-            userRepository.deleteById(id);
-            return true;
+        // Alleen de tombstone zetten; ratings en follows ruimt PurgeService in batches op
+        if (userRepository.lockForDelete(id).isEmpty() || userRepository.markDeleted(id) == 0) {
+            return false;
         }
-        return false;
+        usernameAvailabilityService.onUsernameRemoved();
+        return true;
     }
 
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.USERS, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.USERS_BY_USERNAME, key = "#username")
+    })
+    @Transactional
     public boolean deleteUserByUsername(String username) {
-        Optional<User> user = userRepository.findByUsername(username);
-        
-        if (user.isPresent()) {
-            userRepository.delete(user.get());
-            return true;
+        if (userRepository.lockForDeleteByUsername(username).isEmpty()
+                || userRepository.markDeletedByUsername(username) == 0) {
+            return false;
         }
-        return false;
+        usernameAvailabilityService.onUsernameRemoved();
+        return true;
     }
 
+    // Ook de oude username moet weg, die kennen we pas na het laden
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.USERS, key = "#id"),
+        @CacheEvict(cacheNames = CacheConfig.USERS_BY_USERNAME, allEntries = true)
+    })
     public User updateUser(Long id, User updateRequest) {
         Optional<User> userOpt = userRepository.findById(id);
         
@@ -97,14 +154,22 @@ public class UserService {
         }
         
         // Update fields
-        if (updateRequest.getUsername() != null && !updateRequest.getUsername().trim().isEmpty()) {
+        boolean renamed = false;
+        if (updateRequest.getUsername() != null && !updateRequest.getUsername().trim().isEmpty()
+                && !updateRequest.getUsername().equals(existingUser.getUsername())) {
             existingUser.setUsername(updateRequest.getUsername());
+            renamed = true;
         }
         
         if (updateRequest.getPassword() != null && !updateRequest.getPassword().trim().isEmpty()) {
             existingUser.setPassword(passwordEncoder.encode(updateRequest.getPassword()));
         }
         
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        if (renamed) {
+            usernameAvailabilityService.onUsernameAdded(saved.getUsername());
+            usernameAvailabilityService.onUsernameRemoved();
+        }
+        return saved;
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserSearchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers "is this username free?" from a Bloom filter over all usernames.
+ * A Bloom filter never misses a name it has seen, so "not in the filter" means
+ * the name is free without asking the database; only a "maybe" (a taken name
+ * or the occasional false positive) costs an existsByUsername query.
+ *
+ * Bits can't be removed, so deleted and renamed-away names stay "maybe" until
+ * the next rebuild; that only costs a query, never a wrong answer. The filter
+ * is rebuilt when names were removed or it grew past the size it was built
+ * for. Disabled with users.bloom-filter.enabled=false, then every check goes
+ * to the database.
+ */
+@Service
+public class UsernameAvailabilityService {
+
+    // Ruimte voor groei tot de volgende rebuild
+    private static final int GROWTH_FACTOR = 2;
+    private static final long MIN_EXPECTED_NAMES = 10_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchRepository userSearchRepository;
+
+    @Value("${users.bloom-filter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${users.bloom-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    private volatile BloomFilter filter;
+
+    // Tijdens een rebuild gaan nieuwe namen ook in het filter dat gebouwd wordt
+    private volatile BloomFilter building;
+
+    // Adds delen de read lock; de wissel naar het nieuwe filter wacht tot lopende adds klaar zijn, zodat
+    // een add nooit het oude filter ziet en daarna een building die al null is
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong removedSinceBuild = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${users.bloom-filter.rebuild-check-interval-ms:3600000}",
+               initialDelayString = "${users.bloom-filter.rebuild-check-interval-ms:3600000}")
+    public void rebuildIfStale() {
+        BloomFilter current = filter;
+        if (current != null && (removedSinceBuild.get() > 0 || current.isOverCapacity())) {
+            rebuild();
+        }
+    }
+
+    public synchronized void rebuild() {
+        removedSinceBuild.set(0);
+        BloomFilter next = new BloomFilter(Math.max(userRepository.count() * GROWTH_FACTOR, MIN_EXPECTED_NAMES),
+                falsePositiveRate);
+        building = next;
+        userSearchRepository.forEachUsername(next::add);
+
+        swapLock.writeLock().lock();
+        try {
+            filter = next;
+            building = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isAvailable(String username) {
+        return !mightBeTaken(username) || !userRepository.existsByUsername(username);
+    }
+
+    // false betekent zeker vrij; true moet de database (of de unique constraint) beslissen
+    public boolean mightBeTaken(String username) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(username);
+    }
+
+    public void onUsernameAdded(String username) {
+        swapLock.readLock().lock();
+        try {
+            BloomFilter current = filter;
+            if (current != null) {
+                current.add(username);
+            }
+            BloomFilter next = building;
+            if (next != null) {
+                next.add(username);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public void onUsernameRemoved() {
+        removedSinceBuild.incrementAndGet();
+    }
+
+    /**
+     * Bits in an AtomicLongArray so adds from concurrent registrations don't
+     * need a lock. Positions come from double hashing one 64-bit hash.
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+        private final long expectedNames;
+        private final AtomicLong added = new AtomicLong();
+
+        BloomFilter(long expectedNames, double falsePositiveRate) {
+            // m = -n ln(p) / ln(2)^2 en k = m/n ln(2)
+            long bits = (long) Math.ceil(-expectedNames * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+            this.bitCount = (long) words.length() * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedNames * Math.log(2)));
+            this.expectedNames = expectedNames;
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(hash + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+            }
+            added.incrementAndGet();
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Long.remainderUnsigned(hash + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isOverCapacity() {
+            return added.get() > expectedNames;
+        }
+
+        // FNV-1a over de chars, daarna gemixt zodat ook de lage bits goed verdeeld zijn
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        // Murmur3 fmix64
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Keyset pagination of a movie's ratings (MovieRatingsRepository), one index per sort order
+-- Newest first: seek on (created_at, id)
+CREATE INDEX idx_ratings_movie_created ON ratings(movie_id, created_at, id);
+
+-- Highest/lowest first; also makes the summary (count, sum, histogram) an index-only scan
+CREATE INDEX idx_ratings_movie_rating ON ratings(movie_id, rating, created_at, id);
+
+-- Both new indexes start with movie_id, so this one is redundant
+DROP INDEX idx_ratings_movie_id;
@@ -0,0 +1,8 @@
+-- A user's rating history, most recently changed first, keyset paginated on (updated_at, id).
+-- updated_at was only set on an update; from now on an insert sets it as well,
+-- so the history has a single non-null sort key
+UPDATE ratings SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE ratings ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE ratings ALTER COLUMN updated_at SET NOT NULL;
+
+CREATE INDEX idx_ratings_user_updated ON ratings(user_id, updated_at, id);
@@ -0,0 +1,9 @@
+-- V7 added (user_id, movie_id) INCLUDE (rating) next to the UNIQUE(user_id, movie_id) index from V1:
+-- two indexes on the same key, both written on every rating upsert. Put the INCLUDE on the unique
+-- constraint instead, so one index enforces uniqueness, serves ON CONFLICT (user_id, movie_id) and
+-- still answers the "people you follow rated this" join with an index-only scan.
+ALTER TABLE ratings
+    DROP CONSTRAINT ratings_user_id_movie_id_key,
+    ADD CONSTRAINT ratings_user_id_movie_id_key UNIQUE (user_id, movie_id) INCLUDE (rating);
+
+DROP INDEX idx_ratings_user_movie_rating;
@@ -0,0 +1,14 @@
+-- Denormalized rating aggregates so movie responses don't have to scan ratings
+ALTER TABLE movies ADD COLUMN rating_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE movies ADD COLUMN rating_sum BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill from the existing ratings
+UPDATE movies m
+SET rating_count = agg.rating_count,
+    rating_sum = agg.rating_sum
+FROM (
+    SELECT movie_id, COUNT(*) AS rating_count, SUM(rating) AS rating_sum
+    FROM ratings
+    GROUP BY movie_id
+) agg
+WHERE agg.movie_id = m.id;
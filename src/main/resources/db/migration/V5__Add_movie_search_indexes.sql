@@ -0,0 +1,14 @@
+-- Full-text en trigram zoeken op films
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Titel weegt zwaarder (A) dan de beschrijving (B) bij het ranken
+ALTER TABLE movies ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX idx_movies_search_vector ON movies USING GIN (search_vector);
+
+-- Typo-tolerant matchen op titel (word_similarity via de <% operator)
+CREATE INDEX idx_movies_name_trgm ON movies USING GIN (lower(name) gin_trgm_ops);
@@ -0,0 +1,24 @@
+-- Reverse lookup "who follows this user"; the primary key only covers (user_id, followed_user_id)
+CREATE INDEX idx_user_follows_followed ON user_follows(followed_user_id, user_id);
+
+-- Follow counts kept up to date by FollowService, so profiles don't have to count user_follows
+ALTER TABLE users ADD COLUMN followers_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN following_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE users u
+SET following_count = agg.following_count
+FROM (
+    SELECT user_id, COUNT(*) AS following_count
+    FROM user_follows
+    GROUP BY user_id
+) agg
+WHERE agg.user_id = u.id;
+
+UPDATE users u
+SET followers_count = agg.followers_count
+FROM (
+    SELECT followed_user_id, COUNT(*) AS followers_count
+    FROM user_follows
+    GROUP BY followed_user_id
+) agg
+WHERE agg.followed_user_id = u.id;
@@ -0,0 +1,6 @@
+-- "People you follow rated this": user_follows joined to ratings on (user_id, movie_id).
+-- With the rating in the index Postgres answers it with an index-only scan.
+CREATE INDEX idx_ratings_user_movie_rating ON ratings(user_id, movie_id) INCLUDE (rating);
+
+-- Covered by the index above
+DROP INDEX idx_ratings_user_id;
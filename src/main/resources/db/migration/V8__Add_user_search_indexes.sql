@@ -0,0 +1,7 @@
+-- Gebruikers zoeken (pg_trgm is aangemaakt in V5)
+-- Substring zoeken vanaf 3 tekens: trigram index
+CREATE INDEX idx_users_username_trgm ON users USING GIN ((lower(username) COLLATE "C") gin_trgm_ops);
+
+-- Kortere termen zoeken op prefix. Met de "C" collation kan dezelfde index zowel de LIKE 'ab%'
+-- range als de ORDER BY + keyset seek bedienen, zodat een pagina na LIMIT rijen stopt.
+CREATE INDEX idx_users_username_lower ON users ((lower(username) COLLATE "C"), id);
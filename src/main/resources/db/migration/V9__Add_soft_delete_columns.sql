@@ -0,0 +1,7 @@
+-- Soft delete: a DELETE only sets the tombstone, PurgeService removes the row and its ratings/follows later in batches
+ALTER TABLE users ADD COLUMN deleted_at TIMESTAMP;
+ALTER TABLE movies ADD COLUMN deleted_at TIMESTAMP;
+
+-- Small partial indexes so the purger finds pending tombstones without scanning the tables
+CREATE INDEX idx_users_deleted_at ON users(deleted_at, id) WHERE deleted_at IS NOT NULL;
+CREATE INDEX idx_movies_deleted_at ON movies(deleted_at, id) WHERE deleted_at IS NOT NULL;
@@ -0,0 +1,24 @@
+package com.example.demo.integration;
+
+import com.example.demo.security.TokenService.TokenPrincipal;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.test.context.TestSecurityContextHolder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.List;
+
+// Voor tests met addFilters = false: zet de principal die TokenAuthenticationFilter anders uit de token haalt.
+// TestSecurityContextHolder wordt na elke test weer leeggemaakt
+final class ActingUser {
+
+    private ActingUser() {
+    }
+
+    static RequestPostProcessor actingAs(Long userId) {
+        return request -> {
+            TestSecurityContextHolder.setAuthentication(new UsernamePasswordAuthenticationToken(
+                    new TokenPrincipal(userId, "user" + userId), null, List.of()));
+            return request;
+        };
+    }
+}
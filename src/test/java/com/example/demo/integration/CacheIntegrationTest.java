@@ -0,0 +1,89 @@
+package com.example.demo.integration;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.UserSummaryDTO;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.MovieService;
+import com.example.demo.service.UserService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.cache.type=caffeine")
+@Transactional
+class CacheIntegrationTest {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void getMovieById_CachedUntilUpdatedOrRated() {
+        Movie movie = movieRepository.save(new Movie("Cached Movie", 2001, null, 100, new ArrayList<>(List.of("Drama")), null));
+
+        Movie first = movieService.getMovieById(movie.getId()).orElseThrow();
+        Movie second = movieService.getMovieById(movie.getId()).orElseThrow();
+        assertSame(first, second);
+        assertEquals(List.of("Drama"), second.getGenres());
+        assertEquals(1, stats(CacheConfig.MOVIES).hitCount());
+
+        Movie update = new Movie();
+        update.setDescription("Now with a description");
+        movieService.updateMovie(movie.getId(), update);
+        assertNull(cacheManager.getCache(CacheConfig.MOVIES).get(movie.getId()));
+
+        movieService.getMovieById(movie.getId());
+        // Delivered after commit in production, invoked directly here because the test rolls back
+        movieService.evictRatedMovie(RatingChangedEvent.deleted(1L, 1L, movie.getId(), 4));
+        assertNull(cacheManager.getCache(CacheConfig.MOVIES).get(movie.getId()));
+    }
+
+    @Test
+    void getUserByUsername_EvictedOnUpdate_AndMissesAreNotCached() {
+        assertTrue(userService.getUserByUsername("cacheduser").isEmpty());
+        User user = userRepository.save(new User("cacheduser", "password123"));
+        assertTrue(userService.getUserByUsername("cacheduser").isPresent());
+        // Alleen de summary staat in de cache, nooit de entity met de password hash
+        assertInstanceOf(UserSummaryDTO.class,
+                cacheManager.getCache(CacheConfig.USERS_BY_USERNAME).get("cacheduser").get());
+
+        User update = new User();
+        update.setUsername("renameduser");
+        userService.updateUser(user.getId(), update);
+
+        assertNull(cacheManager.getCache(CacheConfig.USERS_BY_USERNAME).get("cacheduser"));
+        assertTrue(userService.getUserByUsername("renameduser").isPresent());
+    }
+
+    private CacheStats stats(String cacheName) {
+        return ((CaffeineCache) cacheManager.getCache(cacheName)).getNativeCache().stats();
+    }
+}
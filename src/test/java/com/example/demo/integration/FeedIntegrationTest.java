@@ -0,0 +1,69 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.example.demo.integration.ActingUser.actingAs;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@Transactional
+class FeedIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Test
+    void getFeed_ShowsRatingsOfFollowedUsers() throws Exception {
+        User reader = userRepository.save(new User("feedreader", "password123"));
+        User friend = userRepository.save(new User("feedfriend", "password123"));
+        User stranger = userRepository.save(new User("feedstranger", "password123"));
+        Movie movie = movieRepository.save(new Movie("Feed Movie", 2020, null, 100, List.of(), null));
+
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", reader.getId(), friend.getId()))
+                .andExpect(status().isCreated());
+        rate(friend, movie, 4);
+        rate(stranger, movie, 1);
+
+        mockMvc.perform(get("/api/feed/{userId}", reader.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].userName").value("feedfriend"))
+                .andExpect(jsonPath("$.items[0].movieId").value(movie.getId()))
+                .andExpect(jsonPath("$.items[0].rating").value(4))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        mockMvc.perform(get("/api/feed/{userId}", 999999L))
+                .andExpect(status().isNotFound());
+    }
+
+    private void rate(User user, Movie movie, int rating) throws Exception {
+        mockMvc.perform(post("/api/ratings")
+                        .with(actingAs(user.getId()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":" + user.getId() + ",\"movieId\":" + movie.getId() + ",\"rating\":" + rating + "}"))
+                .andExpect(status().isOk());
+    }
+}
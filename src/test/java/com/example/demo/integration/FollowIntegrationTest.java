@@ -0,0 +1,156 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.FollowGraphService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@Transactional
+class FollowIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    private User follower;
+    private User followed;
+
+    @BeforeEach
+    void setUp() {
+        follower = userRepository.save(new User("follower", "password123"));
+        followed = userRepository.save(new User("followed", "password123"));
+    }
+
+    @Test
+    void followUser_IsIdempotent() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.user.username").value("follower"));
+        }
+
+        assertEquals(1, countFollows());
+        mockMvc.perform(get("/api/follows/{userId}/following", follower.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.following[*].username", contains("followed")));
+    }
+
+    @Test
+    void unfollowUser_IsIdempotent() throws Exception {
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()))
+                .andExpect(status().isCreated());
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(delete("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(0, countFollows());
+        mockMvc.perform(delete("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), 999999L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("User to unfollow not found"));
+    }
+
+    @Test
+    void getFollowers_PaginatesAndCountsFollow() throws Exception {
+        User third = userRepository.save(new User("thirduser", "password123"));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", third.getId(), followed.getId()));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", third.getId(), followed.getId()));
+
+        MvcResult firstPage = mockMvc.perform(get("/api/follows/{userId}/followers", followed.getId()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.followers[*].username", contains("follower")))
+                .andExpect(jsonPath("$.followers[0].password").doesNotExist())
+                .andReturn();
+        String cursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/follows/{userId}/followers", followed.getId()).param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.followers[*].username", contains("thirduser")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        mockMvc.perform(get("/api/follows/{userId}/counts", followed.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.followersCount").value(2))
+                .andExpect(jsonPath("$.followingCount").value(0));
+        mockMvc.perform(get("/api/follows/{userId}/counts", third.getId()))
+                .andExpect(jsonPath("$.followingCount").value(1));
+
+        mockMvc.perform(delete("/api/follows/{userId}/follow/{followedUserId}", third.getId(), followed.getId()));
+        mockMvc.perform(get("/api/follows/{userId}/counts", followed.getId()))
+                .andExpect(jsonPath("$.followersCount").value(1));
+    }
+
+    @Test
+    void getSuggestions_ReturnsFriendsOfFriends() throws Exception {
+        User third = userRepository.save(new User("thirduser", "password123"));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", followed.getId(), third.getId()));
+        followGraphService.rebuild();
+
+        mockMvc.perform(get("/api/follows/{userId}/suggestions", follower.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.suggestions[*].username", contains("thirduser")))
+                .andExpect(jsonPath("$.suggestions[0].mutualFollows").value(1));
+
+        mockMvc.perform(get("/api/follows/{userId}/suggestions", 999999L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void searchUsers_ListsFollowedAccountsFirstAndPaginates() throws Exception {
+        userRepository.save(new User("afollow_x", "password123"));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()));
+
+        MvcResult first = mockMvc.perform(get("/api/follows/search")
+                        .param("username", "FOLLOW").param("userId", follower.getId().toString()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[*].username", contains("followed", "afollow_x")))
+                .andExpect(jsonPath("$.users[0].password").doesNotExist())
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/follows/search")
+                        .param("username", "follow").param("userId", follower.getId().toString())
+                        .param("limit", "2").param("after", cursor))
+                .andExpect(jsonPath("$.users[*].username", contains("follower")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        // Een "_" is een letterlijk teken, geen LIKE wildcard
+        mockMvc.perform(get("/api/follows/search").param("username", "w_x"))
+                .andExpect(jsonPath("$.users[*].username", contains("afollow_x")));
+    }
+
+    private int countFollows() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_follows WHERE user_id = ? AND followed_user_id = ?",
+                Integer.class, follower.getId(), followed.getId());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.repository.RatingRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@Transactional
+class MovieIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @BeforeEach
+    void setUp() {
+        ratingRepository.deleteAll();
+        movieRepository.deleteAll();
+
+        movieRepository.save(new Movie("Alien", 1979, "In space no one can hear you scream.", 117, List.of("Horror", "Sci-Fi"), null));
+        movieRepository.save(new Movie("Heat", 1995, "A group of professional bank robbers.", 170, List.of("Crime"), null));
+        movieRepository.save(new Movie("Inception", 2010, "A thief who steals corporate secrets.", 148, List.of("Sci-Fi", "Action"), null));
+    }
+
+    @Test
+    void getAllMovies_PaginatesWithCursor() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/api/movies").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies", hasSize(2)))
+                .andExpect(jsonPath("$.movies[0].name").value("Alien"))
+                .andExpect(jsonPath("$.movies[0].genres", containsInAnyOrder("Horror", "Sci-Fi")))
+                .andExpect(jsonPath("$.movies[0].description").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn();
+
+        String cursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/movies").param("after", cursor).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies", hasSize(1)))
+                .andExpect(jsonPath("$.movies[0].name").value("Inception"))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+
+    @Test
+    void getAllMovies_InvalidCursor_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/movies").param("after", "%%%"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    @Test
+    void getTopRatedMovies_ServedFromLeaderboard() throws Exception {
+        mockMvc.perform(get("/api/movies/top").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    void searchMovies_RanksTitleMatchesAboveDescriptionMatches() throws Exception {
+        movieRepository.save(new Movie("Space Jam", 1996, "Basketball with cartoons.", 88, List.of("Comedy"), null));
+
+        mockMvc.perform(get("/api/movies/search").param("name", "SPACE").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name").value("Space Jam"))
+                .andExpect(jsonPath("$[1].name").value("Alien"));
+
+        mockMvc.perform(get("/api/movies/search").param("name", "100%"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void filterMovies_CombinesCriteriaAndReturnsFacets() throws Exception {
+        Movie alien = movieRepository.findByNameIgnoreCase("Alien").orElseThrow();
+        movieRepository.adjustRatingAggregates(alien.getId(), 2, 9);
+        movieRepository.flush();
+
+        mockMvc.perform(get("/api/movies/filter").param("genres", "sci-fi").param("minYear", "1970"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies[*].name", contains("Alien", "Inception")))
+                .andExpect(jsonPath("$.totalCount").value(2))
+                .andExpect(jsonPath("$.facets.genres.Sci-Fi").value(2))
+                .andExpect(jsonPath("$.facets.genres.Horror").value(1))
+                .andExpect(jsonPath("$.facets.decades.1970").value(1))
+                .andExpect(jsonPath("$.facets.decades.2010").value(1));
+
+        mockMvc.perform(get("/api/movies/filter")
+                        .param("genres", "Sci-Fi", "Action").param("genreMode", "all").param("maxDuration", "150"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies[*].name", contains("Inception")));
+
+        mockMvc.perform(get("/api/movies/filter").param("minRating", "4.5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies[*].name", contains("Alien")))
+                .andExpect(jsonPath("$.totalCount").value(1));
+    }
+
+    @Test
+    void filterMovies_PaginatesAndRejectsInvalidRanges() throws Exception {
+        movieRepository.flush();
+
+        MvcResult firstPage = mockMvc.perform(get("/api/movies/filter").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies", hasSize(2)))
+                .andExpect(jsonPath("$.totalCount").value(3))
+                .andReturn();
+
+        String cursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/movies/filter").param("after", cursor).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies[*].name", contains("Inception")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        mockMvc.perform(get("/api/movies/filter").param("minYear", "2000").param("maxYear", "1990"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("minYear must not be greater than maxYear"));
+    }
+
+    @Test
+    void getTrending_ValidatesWindowAndNeedsTheEngine() throws Exception {
+        mockMvc.perform(get("/api/movies/trending").param("window", "2h"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Window must be 1h, 24h or 7d"));
+
+        // trending.enabled staat uit in het test profiel
+        mockMvc.perform(get("/api/movies/trending").param("window", "7d"))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.demo.integration;
+
+import com.example.demo.dto.BatchItemResult;
+import com.example.demo.dto.RatingBatchResult;
+import com.example.demo.dto.RatingRequest;
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import com.example.demo.repository.FollowRepository;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.FollowService;
+import com.example.demo.service.MovieService;
+import com.example.demo.service.RatingBatchService;
+import com.example.demo.service.RatingService;
+import com.example.demo.service.UserService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.example.demo.integration.ActingUser.actingAs;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The rating (and follow) write paths against a real PostgreSQL: ON CONFLICT, RETURNING and
+ * the row locks only exist there, the H2 of the other tests takes a fallback.
+ * Not @Transactional, the concurrent writers have to commit and the services
+ * have to open their own transactions.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class PostgresRatingWriteIntegrationTest {
+
+    private static final int WRITERS = 8;
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private RatingBatchService ratingBatchService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private FollowService followService;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.builder().start();
+        }
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) throws IOException {
+        startPostgres();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+    }
+
+    @Test
+    void addOrUpdateRating_ConcurrentFirstRatingsCountOnce() throws Exception {
+        User user = userRepository.save(new User("pgconcurrent", "password123"));
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            movies.add(movieRepository.save(movie("Concurrent " + i)));
+        }
+
+        // Act: per film schrijven WRITERS threads tegelijk de eerste rating van dezelfde user
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        try {
+            for (Movie movie : movies) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> writes = new ArrayList<>();
+                for (int w = 0; w < WRITERS; w++) {
+                    int value = w % 5 + 1;
+                    writes.add(pool.submit(() -> {
+                        start.await();
+                        return ratingService.addOrUpdateRating(user.getId(), movie.getId(), value, null);
+                    }));
+                }
+                start.countDown();
+                for (Future<?> write : writes) {
+                    write.get();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Assert: een rij per film, en de aggregaten zijn precies die rij
+        for (Movie movie : movies) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT m.rating_count, m.rating_sum, " +
+                    "(SELECT COUNT(*) FROM ratings r WHERE r.movie_id = m.id) AS actual_count, " +
+                    "(SELECT SUM(r.rating) FROM ratings r WHERE r.movie_id = m.id) AS actual_sum " +
+                    "FROM movies m WHERE m.id = ?", movie.getId());
+            assertEquals(1L, ((Number) row.get("actual_count")).longValue());
+            assertEquals(1L, ((Number) row.get("rating_count")).longValue(), movie.getName());
+            assertEquals(((Number) row.get("actual_sum")).longValue(), ((Number) row.get("rating_sum")).longValue());
+        }
+    }
+
+    @Test
+    void addRatings_ConcurrentBatchesDeriveDeltasFromTheWrite() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(userRepository.save(new User("pgbatch" + i, "password123")));
+        }
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            movies.add(movieRepository.save(movie("Batch " + i)));
+        }
+
+        // Act: WRITERS batches met dezelfde (user, movie) paren, deels eerste ratings, deels updates
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writes = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int value = w % 5 + 1;
+                writes.add(pool.submit(() -> {
+                    start.await();
+                    List<RatingRequest> batch = new ArrayList<>();
+                    for (User user : users) {
+                        for (Movie movie : movies) {
+                            batch.add(request(user.getId(), movie.getId(), value));
+                        }
+                    }
+                    return ratingBatchService.addRatings(batch.iterator());
+                }));
+            }
+            start.countDown();
+            for (Future<?> write : writes) {
+                RatingBatchResult result = (RatingBatchResult) write.get();
+                assertEquals(result.getTotal(), result.getSaved());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Assert: de aggregaten komen overeen met de rijen die er echt staan
+        for (Movie movie : movies) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT m.rating_count, m.rating_sum, " +
+                    "(SELECT COUNT(*) FROM ratings r WHERE r.movie_id = m.id) AS actual_count, " +
+                    "(SELECT SUM(r.rating) FROM ratings r WHERE r.movie_id = m.id) AS actual_sum " +
+                    "FROM movies m WHERE m.id = ?", movie.getId());
+            assertEquals((long) users.size(), ((Number) row.get("actual_count")).longValue());
+            assertEquals((long) users.size(), ((Number) row.get("rating_count")).longValue(), movie.getName());
+            assertEquals(((Number) row.get("actual_sum")).longValue(), ((Number) row.get("rating_sum")).longValue());
+        }
+    }
+
+    @Test
+    void deleteMovie_WaitsForOpenRatingWriteAndLaterWritesAreRejected() throws Exception {
+        User user = userRepository.save(new User("pgdelete", "password123"));
+        Movie movie = movieRepository.save(movie("Deleted While Rating"));
+
+        // Act: een rating transactie staat open terwijl de film verwijderd wordt
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch written = new CountDownLatch(1);
+            CountDownLatch commit = new CountDownLatch(1);
+            Future<?> rating = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                ratingService.addOrUpdateRating(user.getId(), movie.getId(), 4, null);
+                written.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            written.await();
+            Future<Boolean> delete = pool.submit(() -> movieService.deleteMovie(movie.getId()));
+
+            // Assert: de delete wacht op de commit van de rating
+            assertThrows(TimeoutException.class, () -> delete.get(500, TimeUnit.MILLISECONDS));
+            commit.countDown();
+            rating.get();
+            assertTrue(delete.get());
+        } finally {
+            pool.shutdown();
+        }
+
+        // Na de tombstone schrijft niemand meer een rating voor de film
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> ratingService.addOrUpdateRating(user.getId(), movie.getId(), 2, null));
+        assertEquals("Movie not found", exception.getMessage());
+        RatingBatchResult batch = ratingBatchService.addRatings(
+                List.of(request(user.getId(), movie.getId(), 2)).iterator());
+        assertEquals(BatchItemResult.Status.MOVIE_NOT_FOUND, batch.getResults().get(0).getStatus());
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT m.rating_count, m.rating_sum, (SELECT SUM(r.rating) FROM ratings r WHERE r.movie_id = m.id) " +
+                "AS actual_sum FROM movies m WHERE m.id = ?", movie.getId());
+        assertEquals(1L, ((Number) row.get("rating_count")).longValue());
+        assertEquals(4L, ((Number) row.get("rating_sum")).longValue());
+        assertEquals(4L, ((Number) row.get("actual_sum")).longValue());
+    }
+
+    @Test
+    void deleteRating_AdjustsAggregatesInItsOwnTransaction() throws Exception {
+        User user = userRepository.save(new User("pgdeleterating", "password123"));
+        Movie movie = movieRepository.save(movie("Rating Deleted"));
+        ratingService.addOrUpdateRating(user.getId(), movie.getId(), 3, null);
+        Long otherUser = userRepository.save(new User("pgdeleterating2", "password123")).getId();
+        ratingService.addOrUpdateRating(otherUser, movie.getId(), 5, null);
+        Long ratingId = jdbcTemplate.queryForObject(
+                "SELECT id FROM ratings WHERE user_id = ? AND movie_id = ?", Long.class, user.getId(), movie.getId());
+
+        // Act: zonder test transactie, de controller en service moeten zelf committen
+        mockMvc.perform(delete("/api/ratings/" + ratingId)
+                        .with(actingAs(user.getId())))
+                .andExpect(status().isOk());
+
+        // Assert
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT rating_count, rating_sum FROM movies WHERE id = ?", movie.getId());
+        assertEquals(1L, ((Number) row.get("rating_count")).longValue());
+        assertEquals(5L, ((Number) row.get("rating_sum")).longValue());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ratings WHERE id = ?", Integer.class, ratingId));
+    }
+
+    @Test
+    void deleteUser_WaitsForOpenFollowAndLaterFollowsAreRejected() throws Exception {
+        User follower = userRepository.save(new User("pgfollower", "password123"));
+        User followed = userRepository.save(new User("pgfollowed", "password123"));
+
+        // Act: de gevolgde user wordt verwijderd tussen de check van een follow en diens insert
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch checked = new CountDownLatch(1);
+            CountDownLatch write = new CountDownLatch(1);
+            Future<?> follow = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                assertEquals(2, followRepository.lockLiveUsers(follower.getId(), followed.getId()).size());
+                checked.countDown();
+                try {
+                    write.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                followService.followUser(follower.getId(), followed.getId());
+            }));
+            checked.await();
+            Future<Boolean> delete = pool.submit(() -> userService.deleteUserById(followed.getId()));
+
+            // Assert: de tombstone wacht op de commit van de follow, die de purge dus nog ziet
+            assertThrows(TimeoutException.class, () -> delete.get(500, TimeUnit.MILLISECONDS));
+            write.countDown();
+            follow.get();
+            assertTrue(delete.get());
+        } finally {
+            pool.shutdown();
+        }
+
+        // Na de tombstone volgt niemand de user meer, en de teller telt alleen de ene follow
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> followService.followUser(follower.getId(), followed.getId()));
+        assertEquals("User to follow not found", exception.getMessage());
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT u.following_count, (SELECT COUNT(*) FROM user_follows f WHERE f.user_id = u.id) AS actual " +
+                "FROM users u WHERE u.id = ?", follower.getId());
+        assertEquals(1L, ((Number) row.get("following_count")).longValue());
+        assertEquals(1L, ((Number) row.get("actual")).longValue());
+    }
+
+    private static RatingRequest request(Long userId, Long movieId, int rating) {
+        RatingRequest request = new RatingRequest();
+        request.setUserId(userId);
+        request.setMovieId(movieId);
+        request.setRating(rating);
+        return request;
+    }
+
+    private static Movie movie(String name) {
+        Movie movie = new Movie();
+        movie.setName(name);
+        movie.setReleaseYear(2020);
+        movie.setDurationMinutes(100);
+        return movie;
+    }
+}
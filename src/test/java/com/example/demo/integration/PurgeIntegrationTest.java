@@ -0,0 +1,201 @@
+package com.example.demo.integration;
+
+import com.example.demo.dto.FollowCountsDTO;
+import com.example.demo.dto.RatingSummaryDTO;
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.FollowService;
+import com.example.demo.service.PurgeService;
+import com.example.demo.service.RatingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static com.example.demo.integration.ActingUser.actingAs;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@Transactional
+class PurgeIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private FollowService followService;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private PurgeService purgeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User leaving;
+    private User staying;
+    private Movie movie;
+
+    @BeforeEach
+    void setUp() {
+        leaving = userRepository.save(new User("purgeleaving", "password123"));
+        staying = userRepository.save(new User("purgestaying", "password123"));
+
+        movie = new Movie();
+        movie.setName("Purge Test Movie");
+        movie.setReleaseYear(2020);
+        movie.setDurationMinutes(100);
+        movie = movieRepository.save(movie);
+
+        followService.followUser(leaving.getId(), staying.getId());
+        followService.followUser(staying.getId(), leaving.getId());
+        ratingService.addOrUpdateRating(leaving.getId(), movie.getId(), 5, null);
+        ratingService.addOrUpdateRating(staying.getId(), movie.getId(), 3, null);
+    }
+
+    @Test
+    void deleteUser_IsHiddenAtOnce_PurgeRemovesRatingsAndFollows() throws Exception {
+        mockMvc.perform(delete("/api/auth/users/" + leaving.getId()))
+                .andExpect(status().isOk());
+
+        // Meteen onzichtbaar, maar nog niet opgeruimd
+        mockMvc.perform(get("/api/auth/users/" + leaving.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/follows/{userId}/followers", staying.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.followers.length()").value(0));
+        mockMvc.perform(get("/api/purges/user/" + leaving.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.purge.state").value("PENDING"));
+        assertEquals(2, countRows("ratings", "movie_id", movie.getId()));
+        // De pagina en de samenvatting laten dezelfde ratings zien
+        mockMvc.perform(get("/api/ratings/movie/{movieId}/summary", movie.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRatings").value(1))
+                .andExpect(jsonPath("$.averageRating").value(3.0));
+
+        // Act
+        int purged = purgeService.purgePending();
+
+        // Assert
+        assertEquals(1, purged);
+        assertEquals(0, countRows("users", "id", leaving.getId()));
+        assertEquals(0, countRows("ratings", "user_id", leaving.getId()));
+        assertEquals(0, countRows("user_follows", "user_id", leaving.getId()));
+        assertEquals(0, countRows("user_follows", "followed_user_id", leaving.getId()));
+
+        RatingSummaryDTO summary = movieRepository.findRatingSummary(movie.getId()).orElseThrow();
+        assertEquals(1, summary.getTotalRatings());
+        FollowCountsDTO counts = userRepository.findFollowCounts(staying.getId()).orElseThrow();
+        assertEquals(0, counts.getFollowersCount());
+        assertEquals(0, counts.getFollowingCount());
+
+        mockMvc.perform(get("/api/purges/user/" + leaving.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.purge.state").value("DONE"))
+                .andExpect(jsonPath("$.purge.ratingsDeleted").value(1))
+                .andExpect(jsonPath("$.purge.followsDeleted").value(2));
+    }
+
+    @Test
+    void deleteMovie_IsHiddenAtOnce_PurgeRemovesRatings() throws Exception {
+        mockMvc.perform(delete("/api/movies/" + movie.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/movies/" + movie.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/movies/" + movie.getId()))
+                .andExpect(status().isNotFound());
+
+        // Act
+        purgeService.purgePending();
+
+        // Assert
+        assertEquals(0, countRows("movies", "id", movie.getId()));
+        assertEquals(0, countRows("ratings", "movie_id", movie.getId()));
+        mockMvc.perform(get("/api/purges"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pending.movie").value(0));
+    }
+
+    @Test
+    void addRating_TombstonedUserOrMovie_ReturnsNotFoundAndKeepsTotals() throws Exception {
+        mockMvc.perform(delete("/api/auth/users/" + leaving.getId()))
+                .andExpect(status().isOk());
+        Movie other = new Movie();
+        other.setName("Purge Other Movie");
+        other.setReleaseYear(2021);
+        other.setDurationMinutes(90);
+        other = movieRepository.save(other);
+        mockMvc.perform(delete("/api/movies/" + other.getId()))
+                .andExpect(status().isOk());
+
+        // Act & Assert: de foreign keys zijn er nog, toch wordt er niets geschreven
+        mockMvc.perform(post("/api/ratings")
+                .with(actingAs(leaving.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": 1}",
+                        leaving.getId(), movie.getId())))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("User not found"));
+        mockMvc.perform(post("/api/ratings")
+                .with(actingAs(staying.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": 1}",
+                        staying.getId(), other.getId())))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Movie not found"));
+        mockMvc.perform(post("/api/ratings/batch")
+                .with(actingAs(leaving.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("[{\"userId\": %d, \"movieId\": %d, \"rating\": 1}]",
+                        leaving.getId(), movie.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batch.results[0].status").value("USER_NOT_FOUND"));
+        mockMvc.perform(post("/api/ratings/batch")
+                .with(actingAs(staying.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("[{\"userId\": %d, \"movieId\": %d, \"rating\": 1}]",
+                        staying.getId(), other.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batch.results[0].status").value("MOVIE_NOT_FOUND"));
+
+        RatingSummaryDTO summary = movieRepository.findRatingSummary(movie.getId()).orElseThrow();
+        assertEquals(2, summary.getTotalRatings());
+        assertEquals(4.0, summary.getAverageRating());
+        assertEquals(0, countRows("ratings", "movie_id", other.getId()));
+    }
+
+    @Test
+    void getPurge_UnknownType_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/purges/rating/1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/purges/user/" + staying.getId()))
+                .andExpect(status().isNotFound());
+    }
+
+    private long countRows(String table, String column, Long id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?", Long.class, id);
+    }
+}
@@ -6,6 +6,8 @@ import com.example.demo.model.Rating;
 import com.example.demo.repository.MovieRepository;
 import com.example.demo.repository.RatingRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.RatingBatchService;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,12 +15,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import static com.example.demo.integration.ActingUser.actingAs;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)
@@ -38,6 +43,9 @@ class RatingIntegrationTest {
     @Autowired
     private RatingRepository ratingRepository;
 
+    @Autowired
+    private RatingBatchService ratingBatchService;
+
     private User testUser;
     private Movie testMovie;
 
@@ -70,6 +78,7 @@ class RatingIntegrationTest {
             """, testUser.getId(), testMovie.getId());
 
         mockMvc.perform(post("/api/ratings")
+                .with(actingAs(testUser.getId()))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(addRequest))
                 .andExpect(status().isOk())
@@ -97,6 +106,7 @@ class RatingIntegrationTest {
             """, testUser.getId(), testMovie.getId());
 
         mockMvc.perform(post("/api/ratings")
+                .with(actingAs(testUser.getId()))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(addRequest))
                 .andExpect(status().isOk());
@@ -111,6 +121,7 @@ class RatingIntegrationTest {
             """, testUser.getId(), testMovie.getId());
 
         mockMvc.perform(post("/api/ratings")
+                .with(actingAs(testUser.getId()))
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(updateRequest))
                 .andExpect(status().isOk())
@@ -122,4 +133,261 @@ class RatingIntegrationTest {
                 .andExpect(jsonPath("$.averageRating").value(5.0))  
                 .andExpect(jsonPath("$.ratings[0].comment").value("Updated rating!"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void addRating_UnknownMovieOrUser_ReturnsNotFound() throws Exception {
+        String unknownMovie = String.format("""
+            {
+                "userId": %d,
+                "movieId": %d,
+                "rating": 4
+            }
+            """, testUser.getId(), testMovie.getId() + 1000);
+
+        mockMvc.perform(post("/api/ratings")
+                .with(actingAs(testUser.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(unknownMovie))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Movie not found"));
+
+        String unknownUser = String.format("""
+            {
+                "userId": %d,
+                "movieId": %d,
+                "rating": 4
+            }
+            """, testUser.getId() + 1000, testMovie.getId());
+
+        mockMvc.perform(post("/api/ratings")
+                .with(actingAs(testUser.getId() + 1000))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(unknownUser))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("User not found"));
+    }
+
+    @Test
+    void addRatingsBatch_ReportsPerItemStatus() throws Exception {
+        String batch = String.format("""
+            [
+                {"userId": %1$d, "movieId": %2$d, "rating": 2, "comment": "First take"},
+                {"userId": %1$d, "movieId": %2$d, "rating": 7},
+                {"userId": %1$d, "movieId": %3$d, "rating": 4},
+                {"userId": %1$d, "movieId": %2$d, "rating": 4, "comment": "Second take"}
+            ]
+            """, testUser.getId(), testMovie.getId(), testMovie.getId() + 1000);
+
+        mockMvc.perform(post("/api/ratings/batch")
+                .with(actingAs(testUser.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batch.total").value(4))
+                .andExpect(jsonPath("$.batch.saved").value(2))
+                .andExpect(jsonPath("$.batch.results[0].status").value("SUPERSEDED"))
+                .andExpect(jsonPath("$.batch.results[1].status").value("INVALID"))
+                .andExpect(jsonPath("$.batch.results[2].status").value("MOVIE_NOT_FOUND"))
+                .andExpect(jsonPath("$.batch.results[3].status").value("SAVED"));
+
+        mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRatings").value(1))
+                .andExpect(jsonPath("$.averageRating").value(4.0))
+                .andExpect(jsonPath("$.ratings[0].comment").value("Second take"));
+    }
+
+    @Test
+    void addRatingsBatch_Ndjson_SkipsMalformedLines() throws Exception {
+        String batch = String.format(
+            "{\"userId\": %1$d, \"movieId\": %2$d, \"rating\": 3}\n" +
+            "not json\n" +
+            "\n" +
+            "{\"userId\": %1$d, \"movieId\": %2$d, \"rating\": 5}\n",
+            testUser.getId(), testMovie.getId());
+
+        mockMvc.perform(post("/api/ratings/batch")
+                .with(actingAs(testUser.getId()))
+                .contentType("application/x-ndjson")
+                .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.batch.total").value(3))
+                .andExpect(jsonPath("$.batch.results[1].status").value("INVALID"))
+                .andExpect(jsonPath("$.batch.results[1].message").value("Malformed item"))
+                .andExpect(jsonPath("$.batch.results[2].status").value("SAVED"));
+
+        mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId()))
+                .andExpect(jsonPath("$.totalRatings").value(1))
+                .andExpect(jsonPath("$.averageRating").value(5.0));
+    }
+
+    @Test
+    void addRatingsBatch_Ndjson_RejectsBatchOverTheLimit() throws Exception {
+        int maxItems = ratingBatchService.getMaxItems();
+        ReflectionTestUtils.setField(ratingBatchService, "maxItems", 2);
+        try {
+            String line = String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": 4}\n",
+                    testUser.getId(), testMovie.getId());
+
+            // Net als de JSON array: 413 en er wordt niets geschreven
+            mockMvc.perform(post("/api/ratings/batch")
+                    .with(actingAs(testUser.getId()))
+                    .contentType("application/x-ndjson")
+                    .content(line.repeat(3)))
+                    .andExpect(status().isPayloadTooLarge())
+                    .andExpect(jsonPath("$.message").value("A batch can contain at most 2 ratings"));
+
+            mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId()))
+                    .andExpect(jsonPath("$.totalRatings").value(0));
+        } finally {
+            ReflectionTestUtils.setField(ratingBatchService, "maxItems", maxItems);
+        }
+    }
+
+    @Test
+    void getFollowingRatings_AveragesRatingsOfFollowedUsers() throws Exception {
+        User friend = userRepository.save(new User("friend", "password123"));
+        User other = userRepository.save(new User("stranger", "password123"));
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", testUser.getId(), friend.getId()));
+        for (User rater : new User[] {testUser, friend, other}) {
+            mockMvc.perform(post("/api/ratings")
+                    .with(actingAs(rater.getId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": %d}",
+                            rater.getId(), testMovie.getId(), rater == friend ? 4 : 1)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/ratings/movie/{movieId}/following/{userId}", testMovie.getId(), testUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRatings").value(1))
+                .andExpect(jsonPath("$.averageRating").value(4.0));
+
+        mockMvc.perform(get("/api/ratings/following/{userId}", testUser.getId())
+                .param("movieIds", testMovie.getId() + "," + (testMovie.getId() + 1000)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings[0].totalRatings").value(1))
+                .andExpect(jsonPath("$.ratings[1].totalRatings").value(0))
+                .andExpect(jsonPath("$.ratings[1].averageRating").value(nullValue()));
+    }
+
+    @Test
+    void getRatingsByMovie_PagesBySortWithHistogram() throws Exception {
+        int[] values = {5, 3, 5, 1, 4};
+        for (int i = 0; i < values.length; i++) {
+            User rater = userRepository.save(new User("pager" + i, "password123"));
+            mockMvc.perform(post("/api/ratings")
+                    .with(actingAs(rater.getId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": %d}",
+                            rater.getId(), testMovie.getId(), values[i])))
+                    .andExpect(status().isOk());
+        }
+
+        String firstPage = mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId())
+                .param("sort", "highest")
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings[*].rating", contains(5, 5)))
+                .andExpect(jsonPath("$.totalRatings").value(5))
+                .andExpect(jsonPath("$.averageRating").value(3.6))
+                .andExpect(jsonPath("$.histogram", contains(1, 0, 1, 1, 2)))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        String secondPage = mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId())
+                .param("sort", "highest")
+                .param("limit", "2")
+                .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings[*].rating", contains(4, 3)))
+                .andReturn().getResponse().getContentAsString();
+        cursor = JsonPath.read(secondPage, "$.nextCursor");
+
+        mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId())
+                .param("sort", "highest")
+                .param("limit", "2")
+                .param("after", cursor))
+                .andExpect(jsonPath("$.ratings[*].rating", contains(1)))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        // Een cursor hoort bij zijn sortering
+        mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId())
+                .param("sort", "lowest")
+                .param("after", cursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId())
+                .param("sort", "loudest"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Sort must be newest, highest or lowest"));
+
+        mockMvc.perform(get("/api/ratings/movie/" + testMovie.getId())
+                .param("sort", "lowest")
+                .param("limit", "3"))
+                .andExpect(jsonPath("$.ratings[*].rating", contains(1, 3, 4)));
+    }
+
+    @Test
+    void getRatingsByUser_PagesWithMovieColumns() throws Exception {
+        Movie second = new Movie();
+        second.setName("Second History Movie");
+        second.setReleaseYear(2023);
+        second.setDurationMinutes(95);
+        second.setPosterUrl("https://example.com/second.jpg");
+        second = movieRepository.save(second);
+
+        for (Long movieId : new Long[] {testMovie.getId(), second.getId()}) {
+            mockMvc.perform(post("/api/ratings")
+                    .with(actingAs(testUser.getId()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": 4, \"comment\": \"ok\"}",
+                            testUser.getId(), movieId)))
+                    .andExpect(status().isOk());
+        }
+
+        // Binnen een transactie hebben beide dezelfde updated_at, dan beslist het id
+        String firstPage = mockMvc.perform(get("/api/ratings/user/" + testUser.getId())
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings.length()").value(1))
+                .andExpect(jsonPath("$.ratings[0].movieName").value("Second History Movie"))
+                .andExpect(jsonPath("$.ratings[0].posterUrl").value("https://example.com/second.jpg"))
+                .andExpect(jsonPath("$.ratings[0].comment").value("ok"))
+                .andExpect(jsonPath("$.ratings[0].updatedAt").isNotEmpty())
+                .andExpect(jsonPath("$.ratings[0].user").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        mockMvc.perform(get("/api/ratings/user/" + testUser.getId())
+                .param("limit", "1")
+                .param("before", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings[*].movieId", contains(testMovie.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        mockMvc.perform(get("/api/ratings/user/" + testUser.getId())
+                .param("before", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRatingsByUser_TombstonedUser_ReturnsEmptyPage() throws Exception {
+        mockMvc.perform(post("/api/ratings")
+                .with(actingAs(testUser.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": 4}",
+                        testUser.getId(), testMovie.getId())))
+                .andExpect(status().isOk());
+
+        // De rating staat er tot de purge nog, maar de user is al onzichtbaar
+        userRepository.markDeleted(testUser.getId());
+        assertEquals(1, ratingRepository.count());
+
+        mockMvc.perform(get("/api/ratings/user/" + testUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratings").isEmpty())
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+    }
+}
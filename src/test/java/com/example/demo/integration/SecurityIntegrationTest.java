@@ -0,0 +1,165 @@
+package com.example.demo.integration;
+
+import com.example.demo.model.Movie;
+import com.example.demo.model.User;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.repository.UserRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Met de security filters aan, in tegenstelling tot de andere integration tests
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class SecurityIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void writes_RequireTokenFromLogin() throws Exception {
+        User follower = userRepository.save(new User("tokenuser", passwordEncoder.encode("password123")));
+        User followed = userRepository.save(new User("otheruser", passwordEncoder.encode("password123")));
+
+        mockMvc.perform(get("/api/follows/{userId}/following", follower.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId()))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId())
+                        .header("Authorization", "Bearer garbage.token"))
+                .andExpect(status().isUnauthorized());
+
+        MvcResult login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"tokenuser\", \"password\": \"password123\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expiresAt").exists())
+                .andReturn();
+        String token = JsonPath.read(login.getResponse().getContentAsString(), "$.token");
+
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", follower.getId(), followed.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void writes_OnlyForTheUserOfTheToken() throws Exception {
+        User owner = userRepository.save(new User("owneruser", passwordEncoder.encode("password123")));
+        User victim = userRepository.save(new User("victimuser", passwordEncoder.encode("password123")));
+        Movie movie = new Movie();
+        movie.setName("Security Test Movie");
+        movie.setReleaseYear(2024);
+        movie.setDurationMinutes(100);
+        movie = movieRepository.save(movie);
+        String token = login("owneruser");
+
+        // Act & Assert: een geldige token schrijft niet namens een andere user
+        mockMvc.perform(delete("/api/auth/users/{id}", victim.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/auth/users/username/{username}", victim.getUsername())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/auth/users/{id}", victim.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"hijacked\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", victim.getId(), owner.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/ratings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(rating(victim, movie, 1)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/ratings/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + rating(owner, movie, 5) + "," + rating(victim, movie, 1) + "]"))
+                .andExpect(status().isForbidden());
+
+        MvcResult victimRating = mockMvc.perform(post("/api/ratings")
+                        .header("Authorization", "Bearer " + login("victimuser"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(rating(victim, movie, 4)))
+                .andExpect(status().isOk())
+                .andReturn();
+        Integer ratingId = JsonPath.read(victimRating.getResponse().getContentAsString(), "$.rating.id");
+        mockMvc.perform(delete("/api/ratings/{id}", ratingId)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        // Voor de eigen user mag het wel
+        mockMvc.perform(post("/api/ratings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(rating(owner, movie, 5)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/follows/{userId}/follow/{followedUserId}", owner.getId(), victim.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isCreated());
+        mockMvc.perform(delete("/api/auth/users/{id}", owner.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertTrue(userRepository.findById(victim.getId()).isPresent());
+    }
+
+    @Test
+    void deleteByUsername_FollowsTheUserNotTheUsernameInTheToken() throws Exception {
+        User renamed = userRepository.save(new User("oldname", passwordEncoder.encode("password123")));
+        String token = login("oldname");
+        mockMvc.perform(put("/api/auth/users/{id}", renamed.getId())
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"newname\"}"))
+                .andExpect(status().isOk());
+        userRepository.flush();
+        User successor = userRepository.save(new User("oldname", passwordEncoder.encode("password123")));
+
+        // Act & Assert: de oude naam hoort nu bij een ander account, de nieuwe bij de user van de token
+        mockMvc.perform(delete("/api/auth/users/username/{username}", "oldname")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/auth/users/username/{username}", "newname")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertTrue(userRepository.findById(successor.getId()).isPresent());
+    }
+
+    private String login(String username) throws Exception {
+        MvcResult login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\": \"" + username + "\", \"password\": \"password123\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return JsonPath.read(login.getResponse().getContentAsString(), "$.token");
+    }
+
+    private static String rating(User user, Movie movie, int value) {
+        return String.format("{\"userId\": %d, \"movieId\": %d, \"rating\": %d}", user.getId(), movie.getId(), value);
+    }
+}
@@ -2,6 +2,8 @@ package com.example.demo.integration;
 
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.UserService;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,10 +13,16 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)
@@ -31,6 +39,9 @@ class UserIntegrationTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserService userService;
+
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
@@ -92,6 +103,48 @@ class UserIntegrationTest {
                 .andExpect(jsonPath("$.message").value("Username is already taken"));
     }
 
+    @Test
+    void usernameAvailable_ReflectsRegistrations() throws Exception {
+        mockMvc.perform(get("/api/auth/username-available").param("u", "freshname"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(true));
+
+        mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\": \"freshname\", \"password\": \"password123\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/auth/username-available").param("u", "freshname"))
+                .andExpect(jsonPath("$.available").value(false));
+        mockMvc.perform(get("/api/auth/username-available").param("u", "ab"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllUsers_PaginatesSummariesWithoutPasswords() throws Exception {
+        for (String name : List.of("pageuser1", "pageuser2", "pageuser3")) {
+            userRepository.save(new User(name, "password123"));
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/auth/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[*].username", contains("pageuser1", "pageuser2")))
+                .andExpect(jsonPath("$.users[0].password").doesNotExist())
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/auth/users").param("limit", "2").param("after", cursor))
+                .andExpect(jsonPath("$.users[*].username", contains("pageuser3")))
+                .andExpect(jsonPath("$.nextCursor").value(nullValue()));
+
+        // De NDJSON variant leest dezelfde rijen via een Stream
+        List<String> streamed = new ArrayList<>();
+        userService.forEachUser(user -> streamed.add(user.getUsername()));
+        assertEquals(List.of("pageuser1", "pageuser2", "pageuser3"), streamed);
+        mockMvc.perform(get("/api/auth/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted());
+    }
+
     @Test
     void loginUser_Success() throws Exception {
         User User = new User("loginuser", passwordEncoder.encode("password123"));
@@ -109,7 +162,9 @@ class UserIntegrationTest {
                 .content(loginRequest))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.message").value("Login successful"))
-                .andExpect(jsonPath("$.username").value("loginuser"));
+                .andExpect(jsonPath("$.username").value("loginuser"))
+                .andExpect(jsonPath("$.token").isString())
+                .andExpect(jsonPath("$.expiresAt").exists());
     }
 
     @Test
@@ -166,7 +221,8 @@ class UserIntegrationTest {
         // 2. Verificatie via API: check of user bestaat
         mockMvc.perform(get("/api/auth/users/username/workflowuser"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.username").value("workflowuser"));
+                .andExpect(jsonPath("$.username").value("workflowuser"))
+                .andExpect(jsonPath("$.password").doesNotExist());
 
         // 3. Login test
         String loginRequest = """
@@ -0,0 +1,91 @@
+package com.example.demo.unit;
+
+import com.example.demo.security.BoundedPasswordEncoder;
+import com.example.demo.security.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    // Encoder die blijft hangen tot de test hem loslaat, zodat de pool vol te krijgen is
+    private final PasswordEncoder slowEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            await();
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hashed:" + rawPassword);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.close();
+    }
+
+    @Test
+    void encodeAndMatches_RunOnThePool() {
+        // Arrange
+        release.countDown();
+        encoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 1, meterRegistry);
+
+        // Act
+        String hash = encoder.encode("secret");
+
+        // Assert
+        assertEquals("hashed:secret", hash);
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("other", hash));
+        assertEquals(1, meterRegistry.get("password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hashing").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encode_PoolAndQueueFull_RejectsImmediately() throws Exception {
+        // Arrange: 1 thread bezig, 1 taak in de queue
+        encoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 3, meterRegistry);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        waitUntilQueued(1);
+
+        // Act & Assert
+        PasswordHashingBusyException e = assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("c"));
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("hashed:a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed:b", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private void waitUntilQueued(int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && meterRegistry.get("password.hashing.queue").gauge().value() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, meterRegistry.get("password.hashing.queue").gauge().value());
+    }
+
+    private void await() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FeedItemDTO;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.FeedRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.FeedService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Mock
+    private FeedRepository feedRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private FeedService feedService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(feedService, "celebrityFollowers", 100L);
+        // Fan-out op de test thread, zodat de asserts het resultaat meteen zien
+        ReflectionTestUtils.setField(feedService, "fanOutExecutor", (Executor) Runnable::run);
+        feedService.init();
+
+        // User 1 follows normal user 2 and celebrity 3, both lists newest first like the queries return them
+        lenient().when(userRepository.existsById(1L)).thenReturn(true);
+        lenient().when(feedRepository.findRecentFromFollowees(1L, 100L, 500)).thenReturn(List.of(
+            item(2L, 11L, 2), item(2L, 10L, 4)));
+        lenient().when(feedRepository.findFolloweeIds(1L, 100L)).thenReturn(List.of(2L));
+        lenient().when(feedRepository.findCelebrityFollowees(1L, 100L)).thenReturn(List.of(3L));
+        lenient().when(feedRepository.findRecentByUser(3L, 500)).thenReturn(List.of(
+            item(3L, 20L, 3), item(3L, 21L, 5)));
+    }
+
+    @Test
+    void getFeed_MergesInboxWithCelebrityOutboxes() {
+        // Act
+        CursorPage<FeedItemDTO> page = feedService.getFeed(1L, null, 3);
+
+        // Assert: 2, 3 and 4 minutes ago, the item from 5 minutes ago is left for the next page
+        assertEquals(List.of(11L, 20L, 10L), page.getItems().stream().map(FeedItemDTO::getMovieId).toList());
+        assertNotNull(page.getNextCursor());
+
+        CursorPage<FeedItemDTO> next = feedService.getFeed(1L, page.getNextCursor(), 3);
+        assertEquals(List.of(21L), next.getItems().stream().map(FeedItemDTO::getMovieId).toList());
+        assertNull(next.getNextCursor());
+
+        // Loaded once, served from memory afterwards
+        verify(feedRepository, times(1)).findRecentFromFollowees(1L, 100L, 500);
+    }
+
+    @Test
+    void onRatingChanged_FansOutToLoadedInboxes() {
+        // Arrange
+        feedService.getFeed(1L, null, 10);
+
+        // Act: a new rating and a deleted one
+        feedService.onRatingChanged(new RatingChangedEvent(50L, 2L, "jacco", 12L, null, 5, "Great", NOW));
+        feedService.onRatingChanged(RatingChangedEvent.deleted(51L, 2L, 11L, 2));
+
+        // Assert
+        List<FeedItemDTO> items = feedService.getFeed(1L, null, 10).getItems();
+        assertEquals(List.of(12L, 20L, 10L, 21L), items.stream().map(FeedItemDTO::getMovieId).toList());
+        assertEquals("jacco", items.get(0).getUserName());
+    }
+
+    @Test
+    void onRatingChanged_CelebrityOnlyUpdatesOutbox() {
+        // Arrange
+        feedService.getFeed(1L, null, 10);
+
+        // Act
+        feedService.onRatingChanged(new RatingChangedEvent(60L, 3L, "celeb", 22L, null, 4, null, NOW));
+
+        // Assert: geen query op de write path
+        verify(userRepository, never()).findFollowCounts(any());
+        assertEquals(22L, feedService.getFeed(1L, null, 10).getItems().get(0).getMovieId());
+    }
+
+    @Test
+    void getFeed_UnknownUser_ThrowsException() {
+        when(userRepository.existsById(999L)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            feedService.getFeed(999L, null, 10);
+        });
+
+        assertEquals("User not found", exception.getMessage());
+    }
+
+    private FeedItemDTO item(Long userId, Long movieId, int minutesAgo) {
+        return new FeedItemDTO(userId, "user" + userId, movieId, minutesAgo, null, NOW.minusMinutes(minutesAgo));
+    }
+}
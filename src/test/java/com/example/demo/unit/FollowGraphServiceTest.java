@@ -0,0 +1,147 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.UserSuggestionDTO;
+import com.example.demo.event.FollowChangedEvent;
+import com.example.demo.model.User;
+import com.example.demo.repository.FollowRepository;
+import com.example.demo.repository.RatingRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.FollowGraphService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FollowGraphServiceTest {
+
+    @Mock
+    private FollowRepository followRepository;
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private FollowGraphService followGraphService;
+
+    @BeforeEach
+    void setUp() {
+        // 1 volgt 2 en 3; 2 volgt 4 en 5; 3 volgt 1, 4 en 6
+        long[][] edges = {{1, 2}, {1, 3}, {2, 4}, {2, 5}, {3, 1}, {3, 4}, {3, 6}};
+        doAnswer(invocation -> {
+            FollowRepository.EdgeConsumer consumer = invocation.getArgument(0);
+            for (long[] edge : edges) {
+                consumer.accept(edge[0], edge[1]);
+            }
+            return null;
+        }).when(followRepository).streamEdges(any());
+        followGraphService.rebuild();
+
+        lenient().when(userRepository.existsById(1L)).thenReturn(true);
+        lenient().when(userRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                User user = new User("user" + id, "password123");
+                user.setId(id);
+                users.add(user);
+            }
+            return users;
+        });
+    }
+
+    @Test
+    void getSuggestions_RanksSecondHopByMutualFollows() {
+        // Arrange
+        when(ratingRepository.findTasteOverlap(eq(1L), anyCollection())).thenReturn(List.of());
+
+        // Act
+        List<UserSuggestionDTO> suggestions = followGraphService.getSuggestions(1L, 10);
+
+        // Assert: 4 via 2 en 3, daarna 5 en 6; zichzelf en wie al gevolgd wordt niet
+        assertEquals(List.of(4L, 5L, 6L), suggestions.stream().map(UserSuggestionDTO::getId).toList());
+        assertEquals(2, suggestions.get(0).getMutualFollows());
+        assertEquals("user4", suggestions.get(0).getUsername());
+    }
+
+    @Test
+    void getSuggestions_TasteOverlapBreaksTies() {
+        // Arrange: 6 rated 10 films the same as user 1, 5 deelt geen ratings
+        List<Object[]> overlap = new ArrayList<>();
+        overlap.add(new Object[] {6L, 10L, 0L});
+        when(ratingRepository.findTasteOverlap(eq(1L), anyCollection())).thenReturn(overlap);
+
+        // Act
+        List<UserSuggestionDTO> suggestions = followGraphService.getSuggestions(1L, 2);
+
+        // Assert
+        assertEquals(List.of(4L, 6L), suggestions.stream().map(UserSuggestionDTO::getId).toList());
+        assertEquals(10, suggestions.get(1).getSharedRatings());
+        assertTrue(suggestions.get(1).getScore() > 1.0);
+    }
+
+    @Test
+    void getSuggestions_SeesChangesSinceLastRebuild() {
+        // Arrange: 1 ontvolgt 3 en volgt 7, dat nog niet in de snapshot staat; 7 volgt 8
+        when(ratingRepository.findTasteOverlap(eq(1L), anyCollection())).thenReturn(List.of());
+        followGraphService.onFollowChanged(FollowChangedEvent.unfollowed(1L, 3L));
+        followGraphService.onFollowChanged(FollowChangedEvent.followed(1L, 7L));
+        followGraphService.onFollowChanged(FollowChangedEvent.followed(7L, 8L));
+
+        // Act
+        List<UserSuggestionDTO> suggestions = followGraphService.getSuggestions(1L, 10);
+
+        // Assert: 6 kwam alleen via 3, 8 komt via 7
+        assertEquals(List.of(4L, 5L, 8L), suggestions.stream().map(UserSuggestionDTO::getId).toList());
+        assertEquals(1, suggestions.get(0).getMutualFollows());
+    }
+
+    @Test
+    void getSuggestions_UnknownUser_Throws() {
+        // Arrange
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> followGraphService.getSuggestions(99L, 10));
+        assertEquals("User not found", e.getMessage());
+    }
+
+    @Test
+    void getSuggestions_WalkWithMoreCandidatesThanTheInitialTable() {
+        // Arrange: 1 volgt 2 en 3; 2 volgt 20000 users, 3 alleen de laatste tien daarvan (gesorteerd, zoals streamEdges)
+        doAnswer(invocation -> {
+            FollowRepository.EdgeConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1, 2);
+            consumer.accept(1, 3);
+            for (long id = 100; id < 20_100; id++) {
+                consumer.accept(2, id);
+            }
+            for (long id = 20_090; id < 20_100; id++) {
+                consumer.accept(3, id);
+            }
+            return null;
+        }).when(followRepository).streamEdges(any());
+        followGraphService.rebuild();
+        when(ratingRepository.findTasteOverlap(eq(1L), anyCollection())).thenReturn(List.of());
+
+        // Act
+        List<UserSuggestionDTO> suggestions = followGraphService.getSuggestions(1L, 10);
+
+        // Assert: de tabel groeit mee, de tien gedeelde followees komen bovenaan
+        assertEquals(10, suggestions.size());
+        assertTrue(suggestions.stream().allMatch(s -> s.getId() >= 20_090 && s.getMutualFollows() == 2));
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.demo.unit;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.UserSummaryDTO;
+import com.example.demo.event.FollowChangedEvent;
 import com.example.demo.model.User;
+import com.example.demo.repository.FollowRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserSearchRepository;
 import com.example.demo.service.FollowService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,13 +14,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +32,15 @@ class FollowServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private FollowRepository followRepository;
+
+    @Mock
+    private UserSearchRepository userSearchRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private FollowService followService;
 
@@ -34,7 +51,6 @@ class FollowServiceTest {
     void setUp() {
         user1 = new User("maccoe", "password123");
         user1.setId(1L);
-        user1.setFollowing(new ArrayList<>());
 
         user2 = new User("jacco", "password456");
         user2.setId(2L);
@@ -43,24 +59,39 @@ class FollowServiceTest {
     @Test
     void followUser_Success() throws Exception {
         // Arrange
+        when(followRepository.lockLiveUsers(1L, 2L)).thenReturn(Set.of(1L, 2L));
         when(userRepository.findById(1L)).thenReturn(Optional.of(user1));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user2));
-        when(userRepository.save(any(User.class))).thenReturn(user1);
+        when(followRepository.follow(1L, 2L)).thenReturn(true);
 
         // Act
         User result = followService.followUser(1L, 2L);
 
+        // Assert: een enkele insert, de following collectie wordt niet geladen of opgeslagen
+        assertEquals(user1, result);
+        verify(followRepository).follow(1L, 2L);
+        verify(followRepository).adjustFollowCounts(1L, 2L, 1);
+        verify(eventPublisher).publishEvent(any(FollowChangedEvent.class));
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void followUser_AlreadyFollowing_LeavesCountsAlone() {
+        // Arrange
+        when(followRepository.lockLiveUsers(1L, 2L)).thenReturn(Set.of(1L, 2L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user1));
+        when(followRepository.follow(1L, 2L)).thenReturn(false);
+
+        // Act
+        followService.followUser(1L, 2L);
+
         // Assert
-        assertNotNull(result);
-        assertTrue(result.getFollowing().contains(user2));
-        verify(userRepository).findById(1L);
-        verify(userRepository).findById(2L);
-        verify(userRepository).save(user1);
+        verify(followRepository, never()).adjustFollowCounts(any(), any(), anyLong());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void followUser_UserNotFound() throws Exception {
-        when(userRepository.findById(999L)).thenReturn(Optional.empty());
+        when(followRepository.lockLiveUsers(999L, 2L)).thenReturn(Set.of(2L));
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -68,35 +99,46 @@ class FollowServiceTest {
         });
 
         assertEquals("User not found", exception.getMessage());
-        verify(userRepository).findById(999L);
-        verify(userRepository, never()).findById(2L);
-        verify(userRepository, never()).save(any());
+        verify(followRepository, never()).follow(any(), any());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void unfollowUser_Success() {
         // Arrange
-        user1.getFollowing().add(user2);  // user1 volgt al user2
         when(userRepository.findById(1L)).thenReturn(Optional.of(user1));
-        when(userRepository.findById(2L)).thenReturn(Optional.of(user2));
-        when(userRepository.save(any(User.class))).thenReturn(user1);
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(followRepository.unfollow(1L, 2L)).thenReturn(true);
 
         // Act
         User result = followService.unfollowUser(1L, 2L);
 
         // Assert
-        assertNotNull(result);
-        assertFalse(result.getFollowing().contains(user2));
-        verify(userRepository).findById(1L);
-        verify(userRepository).findById(2L);
-        verify(userRepository).save(user1);
+        assertEquals(user1, result);
+        verify(followRepository).unfollow(1L, 2L);
+        verify(followRepository).adjustFollowCounts(1L, 2L, -1);
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void followUser_FollowedUserNotFound() {
+        // Arrange: ook een tombstoned user komt niet terug uit de lock query
+        when(followRepository.lockLiveUsers(1L, 999L)).thenReturn(Set.of(1L));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            followService.followUser(1L, 999L);
+        });
+
+        assertEquals("User to follow not found", exception.getMessage());
+        verify(followRepository, never()).follow(any(), any());
     }
 
     @Test
     void getFollowing_Success() {
         // Arrange
-        user1.getFollowing().add(user2);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user1));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findFollowing(1L)).thenReturn(List.of(user2));
 
         // Act
         List<User> result = followService.getFollowing(1L);
@@ -105,21 +147,39 @@ class FollowServiceTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertTrue(result.contains(user2));
-        verify(userRepository).findById(1L);
+        verify(userRepository).findFollowing(1L);
     }
 
     @Test
-    void searchUsers_Success() {
+    void searchUsers_FollowedFirstThenOthers() {
         // Arrange
-        List<User> users = List.of(user1, user2);
-        when(userRepository.findByUsernameContainingIgnoreCase("acc")).thenReturn(users);
+        when(userSearchRepository.findFollowedMatching(1L, "acc", "", 0L, 3))
+                .thenReturn(List.of(new UserSummaryDTO(2L, "jacco")));
+        when(userSearchRepository.findMatching("acc", 1L, "", 0L, 2))
+                .thenReturn(List.of(new UserSummaryDTO(5L, "Acca"), new UserSummaryDTO(4L, "accb")));
 
         // Act
-        List<User> result = followService.searchUsers("acc");
+        CursorPage<UserSummaryDTO> result = followService.searchUsers(" ACC ", 1L, null, 2);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(userRepository).findByUsernameContainingIgnoreCase("acc");
+        assertEquals(List.of("jacco", "Acca"), result.getItems().stream().map(UserSummaryDTO::getUsername).toList());
+        assertNotNull(result.getNextCursor());
+
+        // Volgende pagina: verder in de "others" sectie na (acca, 5)
+        when(userSearchRepository.findMatching("acc", 1L, "acca", 5L, 3))
+                .thenReturn(List.of(new UserSummaryDTO(4L, "accb")));
+        CursorPage<UserSummaryDTO> next = followService.searchUsers("acc", 1L, result.getNextCursor(), 2);
+        assertEquals(List.of(4L), next.getItems().stream().map(UserSummaryDTO::getId).toList());
+        assertNull(next.getNextCursor());
+        verify(userSearchRepository, times(1)).findFollowedMatching(any(), any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void searchUsers_BlankTerm_Throws() {
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> followService.searchUsers("  ", null, null, 20));
+        assertEquals("Search term is required", e.getMessage());
+        verifyNoInteractions(userSearchRepository);
     }
-}
\ No newline at end of file
+}
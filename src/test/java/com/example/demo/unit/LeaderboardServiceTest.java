@@ -0,0 +1,134 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.LeaderboardEntryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.service.LeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeaderboardServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @InjectMocks
+    private LeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        // One perfect vote, a well liked classic and a mediocre movie
+        when(movieRepository.findRatedMovieAggregates()).thenReturn(List.of(
+            new Object[] {1L, "One Vote Wonder", 1L, 5L},
+            new Object[] {2L, "Classic", 100L, 450L},
+            new Object[] {3L, "Mediocre", 50L, 150L}));
+        when(movieRepository.findAllNames()).thenReturn(List.of(
+            new Object[] {1L, "One Vote Wonder"}, new Object[] {2L, "Classic"},
+            new Object[] {3L, "Mediocre"}, new Object[] {4L, "Newcomer"}));
+        leaderboardService.load();
+    }
+
+    @Test
+    void getTopRated_SingleVoteDoesNotTopTheChart() {
+        // Act
+        List<LeaderboardEntryDTO> top = leaderboardService.getTopRated(10);
+
+        // Assert
+        assertEquals(List.of(2L, 1L, 3L), top.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(1, top.get(0).getRank());
+        assertEquals(4.5, top.get(0).getAverageRating());
+        verifyNoMoreInteractions(movieRepository);
+    }
+
+    @Test
+    void onRatingChanged_UpdatesRankingIncrementally() {
+        // Act: the mediocre movie gets a burst of 5-star votes
+        for (long userId = 1; userId <= 200; userId++) {
+            leaderboardService.onRatingChanged(new RatingChangedEvent(
+                null, userId, null, 3L, null, 5, null, LocalDateTime.now()));
+        }
+
+        // Assert
+        List<LeaderboardEntryDTO> top = leaderboardService.getTopRated(1);
+        assertEquals(1, top.size());
+        assertEquals(3L, top.get(0).getMovieId());
+        assertEquals(250, top.get(0).getRatingCount());
+    }
+
+    @Test
+    void onRatingChanged_FirstRatingTakesTheNameFromTheLoad() {
+        // Act
+        leaderboardService.onRatingChanged(new RatingChangedEvent(
+            null, 1L, null, 4L, null, 4, null, LocalDateTime.now()));
+        leaderboardService.onRatingChanged(new RatingChangedEvent(
+            null, 1L, null, 4L, 4, 5, null, LocalDateTime.now()));
+
+        // Assert: geen query in de listener
+        LeaderboardEntryDTO newcomer = leaderboardService.getTopRated(10).stream()
+            .filter(e -> e.getMovieId() == 4L).findFirst().orElseThrow();
+        assertEquals("Newcomer", newcomer.getName());
+        assertEquals(5.0, newcomer.getAverageRating());
+        verify(movieRepository, never()).findById(any());
+    }
+
+    @Test
+    void reconcile_MoviesWithEventsDuringTheLoadAreReadAgain() {
+        // Arrange: tijdens de query commit een 5 voor de classic, die de aggregaten al bevatten
+        when(movieRepository.findRatedMovieAggregates()).thenAnswer(invocation -> {
+            leaderboardService.onRatingChanged(new RatingChangedEvent(
+                null, 7L, null, 2L, null, 5, null, LocalDateTime.now()));
+            return List.of(new Object[] {2L, "Classic", 101L, 455L}, new Object[] {3L, "Mediocre", 50L, 150L});
+        });
+        when(movieRepository.findRatingAggregates(List.of(2L)))
+            .thenReturn(List.<Object[]>of(new Object[] {2L, "Classic", 101L, 455L}));
+
+        // Act
+        leaderboardService.reconcile();
+
+        // Assert: de 5 telt een keer, film 1 staat niet meer in de nieuwe snapshot
+        List<LeaderboardEntryDTO> top = leaderboardService.getTopRated(10);
+        assertEquals(List.of(2L, 3L), top.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(101, top.get(0).getRatingCount());
+    }
+
+    @Test
+    void removals_DropMoviesFromTheChart() {
+        // Act
+        leaderboardService.onRatingChanged(RatingChangedEvent.deleted(10L, 1L, 1L, 5));
+        leaderboardService.onMovieChanged(MovieChangedEvent.deleted(2L));
+
+        // Assert
+        assertEquals(List.of(3L), leaderboardService.getTopRated(10).stream()
+            .map(LeaderboardEntryDTO::getMovieId).toList());
+    }
+
+    @Test
+    void onMovieChanged_RenameShowsInTheChart() {
+        // Arrange
+        Movie renamed = new Movie();
+        renamed.setId(2L);
+        renamed.setName("Classic (Remastered)");
+
+        // Act
+        leaderboardService.onMovieChanged(MovieChangedEvent.saved(renamed));
+
+        // Assert
+        List<LeaderboardEntryDTO> top = leaderboardService.getTopRated(10);
+        assertEquals(List.of(2L, 1L, 3L), top.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals("Classic (Remastered)", top.get(0).getName());
+    }
+}
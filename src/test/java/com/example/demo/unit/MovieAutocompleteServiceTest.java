@@ -0,0 +1,115 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.MovieSuggestionDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.service.MovieAutocompleteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovieAutocompleteServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @InjectMocks
+    private MovieAutocompleteService autocompleteService;
+
+    @BeforeEach
+    void setUp() {
+        when(movieRepository.findAllSuggestions()).thenReturn(List.of(
+            new MovieSuggestionDTO(1L, "The Dark Knight", 2008, null),
+            new MovieSuggestionDTO(2L, "The Dark Knight Rises", 2012, null),
+            new MovieSuggestionDTO(3L, "Dark City", 1998, null),
+            new MovieSuggestionDTO(4L, "Amélie", 2001, null)));
+        autocompleteService.load();
+    }
+
+    @Test
+    void suggest_PrefixOfAnyWord() {
+        // Act
+        List<MovieSuggestionDTO> result = autocompleteService.suggest("dar", 10);
+
+        // Assert: title prefix matches first, then shorter titles
+        assertEquals(List.of(3L, 1L, 2L), ids(result));
+    }
+
+    @Test
+    void suggest_MultipleWordsAndAccents() {
+        assertEquals(List.of(2L), ids(autocompleteService.suggest("dark kni ris", 10)));
+        assertEquals(List.of(4L), ids(autocompleteService.suggest("AMEL", 10)));
+        assertEquals(List.of(), ids(autocompleteService.suggest("   ", 10)));
+    }
+
+    @Test
+    void suggest_NonLatinTitles() {
+        // Arrange
+        Movie stalker = new Movie("Сталкер", 1979, null, 161, List.of(), null);
+        stalker.setId(5L);
+        Movie spirited = new Movie("千と千尋の神隠し", 2001, null, 125, List.of(), null);
+        spirited.setId(6L);
+
+        // Act
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(stalker));
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(spirited));
+
+        // Assert
+        assertEquals(List.of(5L), ids(autocompleteService.suggest("стал", 10)));
+        assertEquals(List.of(6L), ids(autocompleteService.suggest("千と", 10)));
+    }
+
+    @Test
+    void suggest_RespectsLimit() {
+        assertEquals(2, autocompleteService.suggest("d", 2).size());
+    }
+
+    @Test
+    void suggest_TitlePrefixBeatsManyLaterWordMatches() {
+        // Arrange: duizenden titels met "the" als later woord, een titel die met de query begint
+        for (long id = 100; id < 2600; id++) {
+            Movie movie = new Movie("Zombie The " + id, 2000, null, 90, List.of(), null);
+            movie.setId(id);
+            autocompleteService.onMovieChanged(MovieChangedEvent.saved(movie));
+        }
+        Movie theodora = new Movie("Theodora", 2000, null, 90, List.of(), null);
+        theodora.setId(5000L);
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(theodora));
+
+        // Act
+        List<Long> result = ids(autocompleteService.suggest("the", 3));
+
+        // Assert
+        assertEquals(List.of(5000L, 1L, 2L), result);
+    }
+
+    @Test
+    void onMovieChanged_KeepsIndexCurrent() {
+        // Arrange
+        Movie renamed = new Movie("Knight and Day", 2010, null, 109, List.of(), null);
+        renamed.setId(3L);
+
+        // Act
+        autocompleteService.onMovieChanged(MovieChangedEvent.saved(renamed));
+        autocompleteService.onMovieChanged(MovieChangedEvent.deleted(1L));
+
+        // Assert
+        assertEquals(List.of(3L, 2L), ids(autocompleteService.suggest("knight", 10)));
+        assertEquals(List.of(2L), ids(autocompleteService.suggest("dark", 10)));
+        assertEquals(3, autocompleteService.size());
+    }
+
+    private List<Long> ids(List<MovieSuggestionDTO> suggestions) {
+        return suggestions.stream().map(MovieSuggestionDTO::getId).toList();
+    }
+}
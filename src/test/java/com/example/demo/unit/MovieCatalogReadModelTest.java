@@ -0,0 +1,119 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.MovieFilterCriteria;
+import com.example.demo.dto.MovieFilterResult;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.service.MovieCatalogReadModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovieCatalogReadModelTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @InjectMocks
+    private MovieCatalogReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(readModel, "enabled", true);
+        when(movieRepository.findCatalogColumns()).thenReturn(List.of(
+            new Object[] {1L, "Alien", 1979, 117, "In space no one can hear you scream.", null, 2L, 9L},
+            new Object[] {2L, "Heat", 1995, 170, null, null, 0L, 0L},
+            new Object[] {3L, "Inception", 2010, null, null, null, 1L, 3L}));
+        when(movieRepository.findAllGenres()).thenReturn(List.of(
+            new Object[] {1L, "Horror"}, new Object[] {1L, "Sci-Fi"},
+            new Object[] {2L, "Crime"},
+            new Object[] {3L, "Sci-Fi"}, new Object[] {3L, "Action"}));
+        readModel.load();
+    }
+
+    @Test
+    void load_ServesYearGenreAndListing() {
+        assertTrue(readModel.isServing());
+
+        List<Movie> byYear = readModel.findByReleaseYear(1979);
+        assertEquals(1, byYear.size());
+        assertEquals("Alien", byYear.get(0).getName());
+        assertEquals(4.5, byYear.get(0).getAverageRating());
+        assertEquals(List.of("Horror", "Sci-Fi"), byYear.get(0).getGenres());
+
+        assertEquals(List.of(1L, 3L), readModel.findByGenre("sci-fi").stream().map(Movie::getId).toList());
+        assertNull(readModel.findByGenre("Sci-Fi").get(1).getDurationMinutes());
+
+        List<MovieSummaryDTO> page = readModel.findSummariesAfter(1L, 5);
+        assertEquals(List.of(2L, 3L), page.stream().map(MovieSummaryDTO::getId).toList());
+    }
+
+    @Test
+    void filterMovies_MatchesDatabaseSemantics() {
+        // Arrange
+        MovieFilterCriteria criteria = new MovieFilterCriteria();
+        criteria.setGenres(List.of("Sci-Fi"));
+        criteria.setMinYear(1970);
+
+        // Act
+        MovieFilterResult result = readModel.filterMovies(criteria, 0L, 10);
+
+        // Assert
+        assertEquals(List.of(1L, 3L), result.getMovies().stream().map(MovieSummaryDTO::getId).toList());
+        assertEquals(2, result.getTotalCount());
+        assertEquals(Map.of("Action", 1L, "Horror", 1L, "Sci-Fi", 2L), result.getGenreCounts());
+        assertEquals(Map.of(1970, 1L, 2010, 1L), result.getDecadeCounts());
+
+        // Unknown duration never matches a duration range
+        criteria.setMaxDuration(200);
+        assertEquals(1, readModel.filterMovies(criteria, 0L, 10).getTotalCount());
+
+        MovieFilterCriteria rated = new MovieFilterCriteria();
+        rated.setMinRating(4.0);
+        assertEquals(List.of(1L), readModel.filterMovies(rated, 0L, 10).getMovies().stream()
+            .map(MovieSummaryDTO::getId).toList());
+    }
+
+    @Test
+    void events_PatchTheSnapshot() {
+        // Arrange
+        Movie dune = new Movie("Dune", 2021, null, 155, List.of("Sci-Fi"), null);
+        dune.setId(4L);
+        Movie heat = new Movie("Heat", 1996, null, 170, List.of("Crime", "Thriller"), null);
+        heat.setId(2L);
+
+        // Act
+        readModel.onMovieChanged(MovieChangedEvent.saved(dune));
+        readModel.onMovieChanged(MovieChangedEvent.saved(heat));
+        readModel.onMovieChanged(MovieChangedEvent.deleted(1L));
+        readModel.onRatingChanged(RatingChangedEvent.deleted(10L, 7L, 3L, 3));
+
+        // Assert
+        assertEquals(List.of(3L, 4L), readModel.findByGenre("Sci-Fi").stream().map(Movie::getId).toList());
+        assertEquals(List.of(2L), readModel.findByGenre("thriller").stream().map(Movie::getId).toList());
+        assertTrue(readModel.findByReleaseYear(1995).isEmpty());
+        assertEquals(0, readModel.findByReleaseYear(2010).get(0).getRatingCount());
+        assertEquals(3, readModel.getStats().get("movies"));
+    }
+
+    @Test
+    void disabled_NeverLoads() {
+        ReflectionTestUtils.setField(readModel, "enabled", false);
+
+        assertFalse(readModel.isServing());
+    }
+}
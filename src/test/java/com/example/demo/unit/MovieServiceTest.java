@@ -0,0 +1,99 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.MovieSummaryDTO;
+import com.example.demo.model.Movie;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.service.MovieCatalogReadModel;
+import com.example.demo.service.MovieService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovieServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private MovieCatalogReadModel catalogReadModel;
+
+    @InjectMocks
+    private MovieService movieService;
+
+    @Test
+    void getMoviePage_FirstPage_ReturnsCursorAndGenres() {
+        // Arrange
+        List<MovieSummaryDTO> rows = List.of(
+            new MovieSummaryDTO(1L, "Inception", 2010, 148, null, 0, 0),
+            new MovieSummaryDTO(2L, "The Matrix", 1999, 136, null, 0, 0),
+            new MovieSummaryDTO(3L, "Heat", 1995, 170, null, 0, 0));
+        when(movieRepository.findSummariesAfter(0L, Limit.of(3))).thenReturn(rows);
+        when(movieRepository.findGenresByMovieIds(List.of(1L, 2L)))
+            .thenReturn(List.of(new Object[] {1L, "Sci-Fi"}, new Object[] {2L, "Action"}, new Object[] {2L, "Sci-Fi"}));
+
+        // Act
+        CursorPage<MovieSummaryDTO> page = movieService.getMoviePage(null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertEquals(List.of("Action", "Sci-Fi"), page.getItems().get(1).getGenres());
+        assertEquals(2L, CursorPage.decodeIdCursor(page.getNextCursor()));
+    }
+
+    @Test
+    void getMoviePage_LastPage_HasNoNextCursor() {
+        // Arrange
+        String cursor = CursorPage.encodeCursor(2L);
+        when(movieRepository.findSummariesAfter(2L, Limit.of(3)))
+            .thenReturn(List.of(new MovieSummaryDTO(3L, "Heat", 1995, 170, null, 0, 0)));
+        when(movieRepository.findGenresByMovieIds(List.of(3L))).thenReturn(List.of());
+
+        // Act
+        CursorPage<MovieSummaryDTO> page = movieService.getMoviePage(cursor, 2);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        assertEquals(List.of(), page.getItems().get(0).getGenres());
+    }
+
+    @Test
+    void getMoviePage_InvalidCursor_ThrowsException() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            movieService.getMoviePage("not-a-cursor!", 20);
+        });
+
+        assertEquals("Invalid cursor", exception.getMessage());
+        verify(movieRepository, never()).findSummariesAfter(any(), any());
+    }
+
+    @Test
+    void getMoviesByYear_ServedFromReadModelWhenLoaded() {
+        // Arrange
+        Movie heat = new Movie("Heat", 1995, null, 170, List.of("Crime"), null);
+        when(catalogReadModel.isServing()).thenReturn(true);
+        when(catalogReadModel.findByReleaseYear(1995)).thenReturn(List.of(heat));
+
+        // Act
+        List<Movie> movies = movieService.getMoviesByYear(1995);
+
+        // Assert
+        assertEquals(List.of(heat), movies);
+        verifyNoInteractions(movieRepository);
+    }
+}
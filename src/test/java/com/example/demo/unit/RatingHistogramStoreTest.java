@@ -0,0 +1,162 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingSummaryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.MovieRatingsRepository;
+import com.example.demo.service.RatingHistogramStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingHistogramStoreTest {
+
+    @Mock
+    private MovieRatingsRepository movieRatingsRepository;
+
+    @InjectMocks
+    private RatingHistogramStore store;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        // Film 1: 2x 1 ster, 1x 4 sterren, 3x 5 sterren; film 2: 1x 3 sterren
+        long[][] rows = {{1, 1, 2}, {1, 4, 1}, {1, 5, 3}, {2, 3, 1}};
+        doAnswer(invocation -> {
+            MovieRatingsRepository.RatingCountConsumer consumer = invocation.getArgument(0);
+            for (long[] row : rows) {
+                consumer.accept(row[0], (int) row[1], row[2]);
+            }
+            return null;
+        }).when(movieRatingsRepository).forEachRatingCount(any());
+        store.load();
+    }
+
+    @Test
+    void load_SummaryFromCounters() {
+        // Act
+        RatingSummaryDTO summary = store.getSummary(1L);
+
+        // Assert: 1,1,4,5,5,5 -> gemiddelde 21/6, mediaan (4 + 5) / 2
+        assertTrue(store.isServing());
+        assertArrayEquals(new long[] {2, 0, 0, 1, 3}, summary.getHistogram());
+        assertEquals(6, summary.getTotalRatings());
+        assertEquals(3.5, summary.getAverageRating());
+        assertEquals(4.5, summary.getMedianRating());
+        assertEquals(3.0, store.getSummary(2L).getMedianRating());
+    }
+
+    @Test
+    void load_MoviesWithEventsDuringTheLoadAreReadAgain() {
+        // Arrange: tijdens de GROUP BY commit een 5 voor film 2, die het resultaat al wel bevat
+        doAnswer(invocation -> {
+            store.onRatingChanged(RatingChangedEvent.written(rating(2L, 5), null));
+            MovieRatingsRepository.RatingCountConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1L, 4, 1);
+            consumer.accept(2L, 3, 1);
+            consumer.accept(2L, 5, 1);
+            return null;
+        }).when(movieRatingsRepository).forEachRatingCount(any());
+        doAnswer(invocation -> {
+            MovieRatingsRepository.RatingCountConsumer consumer = invocation.getArgument(1);
+            consumer.accept(2L, 3, 1);
+            consumer.accept(2L, 5, 1);
+            return null;
+        }).when(movieRatingsRepository).forEachRatingCount(eq(Set.of(2L)), any());
+
+        // Act: de periodieke reload
+        store.reconcile();
+
+        // Assert: de 5 telt een keer, en film 1 heeft de waarden van de nieuwe snapshot
+        assertArrayEquals(new int[] {0, 0, 1, 0, 1}, store.getHistogram(2L));
+        assertArrayEquals(new int[] {0, 0, 0, 1, 0}, store.getHistogram(1L));
+    }
+
+    @Test
+    void load_EventsBeforeTheLoadAreNotLost() {
+        // Arrange: een rating van een request dat voor ApplicationReadyEvent al bediend werd
+        RatingHistogramStore starting = new RatingHistogramStore();
+        ReflectionTestUtils.setField(starting, "enabled", true);
+        ReflectionTestUtils.setField(starting, "movieRatingsRepository", movieRatingsRepository);
+        starting.onRatingChanged(RatingChangedEvent.written(rating(3L, 4), null));
+        doAnswer(invocation -> {
+            MovieRatingsRepository.RatingCountConsumer consumer = invocation.getArgument(1);
+            consumer.accept(3L, 4, 1);
+            return null;
+        }).when(movieRatingsRepository).forEachRatingCount(eq(Set.of(3L)), any());
+
+        // Act
+        assertFalse(starting.isServing());
+        starting.load();
+
+        // Assert
+        assertTrue(starting.isServing());
+        assertArrayEquals(new int[] {0, 0, 0, 1, 0}, starting.getHistogram(3L));
+        assertArrayEquals(new int[] {2, 0, 0, 1, 3}, starting.getHistogram(1L));
+    }
+
+    @Test
+    void onRatingChanged_UpdateMovesOneCounter() {
+        // Act: een 1 wordt een 5, een nieuwe 2, een 4 verwijderd
+        store.onRatingChanged(RatingChangedEvent.written(rating(1L, 5), 1));
+        store.onRatingChanged(RatingChangedEvent.written(rating(1L, 2), null));
+        store.onRatingChanged(RatingChangedEvent.deleted(9L, 1L, 1L, 4));
+
+        // Assert
+        assertArrayEquals(new int[] {1, 1, 0, 0, 4}, store.getHistogram(1L));
+    }
+
+    @Test
+    void onRatingChanged_NewMovieGetsCounters_UnknownDeleteIsIgnored() {
+        // Act
+        store.onRatingChanged(RatingChangedEvent.written(rating(3L, 4), null));
+        store.onRatingChanged(RatingChangedEvent.deleted(9L, 1L, 99L, 4));
+
+        // Assert
+        assertArrayEquals(new int[] {0, 0, 0, 1, 0}, store.getHistogram(3L));
+        assertEquals(3, store.size());
+        RatingSummaryDTO empty = store.getSummary(99L);
+        assertEquals(0, empty.getTotalRatings());
+        assertNull(empty.getAverageRating());
+        assertNull(empty.getMedianRating());
+    }
+
+    @Test
+    void onMovieChanged_DeleteKeepsOtherMoviesReachable() {
+        // Arrange: genoeg films om te resizen en probe ketens te krijgen
+        for (long movieId = 10; movieId < 3000; movieId++) {
+            store.onRatingChanged(RatingChangedEvent.written(rating(movieId, (int) (movieId % 5) + 1), null));
+        }
+
+        // Act
+        for (long movieId = 10; movieId < 3000; movieId += 2) {
+            store.onMovieChanged(MovieChangedEvent.deleted(movieId));
+        }
+
+        // Assert
+        for (long movieId = 10; movieId < 3000; movieId++) {
+            int expected = movieId % 2 == 0 ? 0 : 1;
+            assertEquals(expected, store.getHistogram(movieId)[(int) (movieId % 5)], "movie " + movieId);
+        }
+        assertEquals(2 + 1495, store.size());
+        assertArrayEquals(new int[] {2, 0, 0, 1, 3}, store.getHistogram(1L));
+    }
+
+    private static RatingDTO rating(Long movieId, int value) {
+        return new RatingDTO(1L, 1L, "user", movieId, value, null, LocalDateTime.now(), null);
+    }
+}
@@ -1,9 +1,15 @@
 package com.example.demo.unit;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FollowingRatingDTO;
 import com.example.demo.dto.RatingDTO;
+import com.example.demo.dto.RatingWriteResult;
+import com.example.demo.dto.UserRatingDTO;
+import com.example.demo.event.RatingChangedEvent;
 import com.example.demo.model.Movie;
 import com.example.demo.model.Rating;
 import com.example.demo.model.User;
+import com.example.demo.repository.MovieRatingsRepository;
 import com.example.demo.repository.MovieRepository;
 import com.example.demo.repository.RatingRepository;
 import com.example.demo.repository.UserRepository;
@@ -14,12 +20,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +47,12 @@ class RatingServiceTest {
     @Mock
     private MovieRepository movieRepository;
 
+    @Mock
+    private MovieRatingsRepository movieRatingsRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private RatingService ratingService;
 
@@ -41,6 +60,10 @@ class RatingServiceTest {
     private Movie testMovie;
     private Rating testRating;
 
+    private RatingDTO ratingDTO(int value, String comment) {
+        return new RatingDTO(1L, 1L, "testuser", 1L, value, comment, LocalDateTime.now(), null);
+    }
+
     @BeforeEach
     void setUp() {
         testUser = new User("testuser", "password123");
@@ -60,44 +83,43 @@ class RatingServiceTest {
     @Test
     void addOrUpdateRating_NewRating_Success() throws Exception {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(movieRepository.findById(1L)).thenReturn(Optional.of(testMovie));
-        when(ratingRepository.findByUserIdAndMovieId(1L, 1L)).thenReturn(Optional.empty());
-        when(ratingRepository.save(any(Rating.class))).thenReturn(testRating);
+        when(ratingRepository.upsertRating(1L, 1L, 5, "Amazing movie!"))
+            .thenReturn(Optional.of(new RatingWriteResult(ratingDTO(5, "Amazing movie!"), null)));
 
         // Act
-        Rating result = ratingService.addOrUpdateRating(1L, 1L, 5, "Amazing movie!");
+        RatingDTO result = ratingService.addOrUpdateRating(1L, 1L, 5, "Amazing movie!");
 
         // Assert
         assertNotNull(result);
         assertEquals(5, result.getRating());
         assertEquals("Amazing movie!", result.getComment());
-        verify(userRepository).findById(1L);
-        verify(movieRepository).findById(1L);
-        verify(ratingRepository).findByUserIdAndMovieId(1L, 1L);
-        verify(ratingRepository).save(any(Rating.class));
+        verify(ratingRepository).upsertRating(1L, 1L, 5, "Amazing movie!");
+        verify(movieRepository).adjustRatingAggregates(1L, 1, 5);
+        verify(eventPublisher).publishEvent(any(RatingChangedEvent.class));
+        verify(userRepository, never()).findById(any());
+        verify(movieRepository, never()).findById(any());
     }
 
     @Test
     void addOrUpdateRating_UpdateExistingRating_Success() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(movieRepository.findById(1L)).thenReturn(Optional.of(testMovie));
-        when(ratingRepository.findByUserIdAndMovieId(1L, 1L)).thenReturn(Optional.of(testRating));
-        when(ratingRepository.save(any(Rating.class))).thenReturn(testRating);
+        when(ratingRepository.upsertRating(1L, 1L, 4, "Updated review!"))
+            .thenReturn(Optional.of(new RatingWriteResult(ratingDTO(4, "Updated review!"), 5)));
 
         // Act
-        Rating result = ratingService.addOrUpdateRating(1L, 1L, 4, "Updated review!");
+        RatingDTO result = ratingService.addOrUpdateRating(1L, 1L, 4, "Updated review!");
 
         // Assert
         assertNotNull(result);
-        verify(ratingRepository).save(any(Rating.class));
+        assertEquals(4, result.getRating());
+        verify(movieRepository).adjustRatingAggregates(1L, 0, -1);
     }
 
     @Test
     void addOrUpdateRating_UserNotFound_ThrowsException() {
         // Arrange
-        when(userRepository.findById(999L)).thenReturn(Optional.empty());
+        when(ratingRepository.upsertRating(999L, 1L, 5, "Great!")).thenReturn(Optional.empty());
+        when(userRepository.existsById(999L)).thenReturn(false);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -105,16 +127,15 @@ class RatingServiceTest {
         });
 
         assertEquals("User not found", exception.getMessage());
-        verify(userRepository).findById(999L);
-        verify(movieRepository, never()).findById(any());
-        verify(ratingRepository, never()).save(any());
+        verify(movieRepository, never()).adjustRatingAggregates(any(), anyLong(), anyLong());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void addOrUpdateRating_MovieNotFound_ThrowsException() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(movieRepository.findById(999L)).thenReturn(Optional.empty());
+        when(ratingRepository.upsertRating(1L, 999L, 5, "Great!")).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -122,9 +143,7 @@ class RatingServiceTest {
         });
 
         assertEquals("Movie not found", exception.getMessage());
-        verify(userRepository).findById(1L);
-        verify(movieRepository).findById(999L);
-        verify(ratingRepository, never()).save(any());
+        verify(movieRepository, never()).adjustRatingAggregates(any(), anyLong(), anyLong());
     }  
 
     @Test
@@ -152,6 +171,91 @@ class RatingServiceTest {
         // Assert
         assertTrue(result);
         verify(ratingRepository).findById(1L);
+        verify(movieRepository).adjustRatingAggregates(1L, -1, -5);
         verify(ratingRepository).deleteById(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFollowingRatings_KeepsRequestedOrderAndFillsMissingMovies() {
+        // Arrange
+        List<Object[]> totals = new ArrayList<>();
+        totals.add(new Object[] {2L, 3L, 11L});
+        when(ratingRepository.findFollowingRatingTotals(eq(1L), anyCollection())).thenReturn(totals);
+
+        // Act
+        List<FollowingRatingDTO> result = ratingService.getFollowingRatings(1L, List.of(1L, 2L, 1L));
+
+        // Assert: dubbele ids één keer, films zonder ratings van gevolgde gebruikers met 0
+        assertEquals(List.of(1L, 2L), result.stream().map(FollowingRatingDTO::getMovieId).toList());
+        assertEquals(0, result.get(0).getTotalRatings());
+        assertNull(result.get(0).getAverageRating());
+        assertEquals(3, result.get(1).getTotalRatings());
+        assertEquals(11 / 3.0, result.get(1).getAverageRating(), 0.0001);
+        verify(ratingRepository, times(1)).findFollowingRatingTotals(eq(1L), anyCollection());
+    }
+
+    @Test
+    void getRatingsByMovie_FullPage_ReturnsCursorOfLastRating() {
+        // Arrange: limit 2, de repository levert er 3 (een extra)
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        List<RatingDTO> rows = List.of(
+                new RatingDTO(30L, 3L, "c", 1L, 5, null, createdAt, null),
+                new RatingDTO(20L, 2L, "b", 1L, 4, null, createdAt, null),
+                new RatingDTO(10L, 1L, "a", 1L, 4, null, createdAt, null));
+        when(movieRepository.existsById(1L)).thenReturn(true);
+        when(movieRatingsRepository.findPage(1L, MovieRatingsRepository.Sort.HIGHEST, null, null, null, 3))
+                .thenReturn(rows);
+
+        // Act
+        CursorPage<RatingDTO> page = ratingService.getRatingsByMovie(1L, "highest", null, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertArrayEquals(new String[] {"HIGHEST", "4", createdAt.toString(), "20"},
+                CursorPage.decodeCursor(page.getNextCursor(), 4));
+    }
+
+    @Test
+    void getRatingsByMovie_UnknownSort_Throws() {
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ratingService.getRatingsByMovie(1L, "random", null, 20));
+        assertEquals("Sort must be newest, highest or lowest", e.getMessage());
+        verifyNoInteractions(movieRatingsRepository);
+    }
+
+    @Test
+    void getRatingsByUser_CursorSeeksPastLastRating() {
+        // Arrange
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        List<UserRatingDTO> rows = List.of(
+                new UserRatingDTO(7L, 2L, "Second", null, 3, null, updatedAt, updatedAt),
+                new UserRatingDTO(6L, 1L, "First", null, 4, null, updatedAt, updatedAt));
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(ratingRepository.findHistoryBefore(1L, updatedAt, 8L, Limit.of(2))).thenReturn(rows);
+
+        // Act
+        CursorPage<UserRatingDTO> page = ratingService.getRatingsByUser(
+                1L, CursorPage.encodeCursor(updatedAt, 8L), 1);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals("Second", page.getItems().get(0).getMovieName());
+        assertArrayEquals(new String[] {updatedAt.toString(), "7"}, CursorPage.decodeCursor(page.getNextCursor(), 2));
+        verify(ratingRepository, never()).findHistory(anyLong(), any());
+    }
+
+    @Test
+    void getRatingsByUser_UnknownUser_ReturnsEmptyPage() {
+        // Arrange
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        // Act
+        CursorPage<UserRatingDTO> page = ratingService.getRatingsByUser(99L, null, 20);
+
+        // Assert
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(ratingRepository);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.unit;
+
+import com.example.demo.model.User;
+import com.example.demo.security.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+
+    private TokenService tokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "secret", "c2VjcmV0LWtleS1mb3ItdGVzdHMtb25seS0zMi1ieXRlcw==");
+        ReflectionTestUtils.setField(tokenService, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+        tokenService.init();
+
+        user = new User("pipe|user", "password123");
+        user.setId(7L);
+    }
+
+    @Test
+    void verify_IssuedToken_ReturnsPrincipal() {
+        // Act
+        TokenService.IssuedToken issued = tokenService.issue(user);
+        Optional<TokenService.TokenPrincipal> principal = tokenService.verify(issued.token());
+
+        // Assert
+        assertEquals(NOW.plusSeconds(3600), issued.expiresAt());
+        assertTrue(principal.isPresent());
+        assertEquals(7L, principal.get().userId());
+        assertEquals("pipe|user", principal.get().username());
+    }
+
+    @Test
+    void verify_TamperedOrMalformedToken_ReturnsEmpty() {
+        // Arrange: ander payload met de oude handtekening
+        String token = tokenService.issue(user).token();
+        User other = new User("admin", "password123");
+        other.setId(1L);
+        String forged = tokenService.issue(other).token().split("\\.")[0] + token.substring(token.indexOf('.'));
+
+        // Act & Assert
+        assertTrue(tokenService.verify(forged).isEmpty());
+        assertTrue(tokenService.verify("not-a-token").isEmpty());
+        assertTrue(tokenService.verify("a.b.c").isEmpty());
+        assertTrue(tokenService.verify("!!!.???").isEmpty());
+    }
+
+    @Test
+    void verify_ExpiredToken_ReturnsEmpty() {
+        // Arrange
+        String token = tokenService.issue(user).token();
+        ReflectionTestUtils.setField(tokenService, "clock", Clock.fixed(NOW.plusSeconds(3600), ZoneOffset.UTC));
+
+        // Act & Assert
+        assertTrue(tokenService.verify(token).isEmpty());
+    }
+}
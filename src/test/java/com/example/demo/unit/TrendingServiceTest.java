@@ -0,0 +1,166 @@
+package com.example.demo.unit;
+
+import com.example.demo.dto.LeaderboardEntryDTO;
+import com.example.demo.event.MovieChangedEvent;
+import com.example.demo.event.RatingChangedEvent;
+import com.example.demo.repository.MovieRatingsRepository;
+import com.example.demo.repository.MovieRepository;
+import com.example.demo.service.TrendingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:30:00Z");
+
+    @Mock
+    private MovieRatingsRepository movieRatingsRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @InjectMocks
+    private TrendingService trendingService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(trendingService, "enabled", true);
+        setClock(NOW);
+        // Backfill: film 1 twee keer 5 sterren een half uur geleden, film 2 een 2 gisteren
+        when(movieRepository.findAllNames()).thenReturn(List.of(
+            new Object[] {1L, "Recent Hit"}, new Object[] {2L, "Yesterday"}, new Object[] {3L, "Busy"}));
+        doAnswer(invocation -> {
+            MovieRatingsRepository.WrittenRatingConsumer consumer = invocation.getArgument(1);
+            consumer.accept(1L, 5, at(Duration.ofMinutes(30)));
+            consumer.accept(1L, 5, at(Duration.ofMinutes(35)));
+            consumer.accept(2L, 2, at(Duration.ofHours(20)));
+            return null;
+        }).when(movieRatingsRepository).forEachRatingWrittenSince(any(), any());
+        trendingService.load();
+    }
+
+    @Test
+    void load_BackfillFillsTheWindowsItFallsIn() {
+        // Act
+        List<LeaderboardEntryDTO> hour = trendingService.getTrending(TrendingService.Window.HOUR, 10);
+        List<LeaderboardEntryDTO> day = trendingService.getTrending(TrendingService.Window.DAY, 10);
+
+        // Assert
+        assertTrue(trendingService.isServing());
+        assertEquals(1, hour.size());
+        assertEquals("Recent Hit", hour.get(0).getName());
+        assertEquals(2, hour.get(0).getRatingCount());
+        assertEquals(5.0, hour.get(0).getAverageRating());
+        assertEquals(List.of(1L, 2L), day.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(2, day.get(1).getRank());
+    }
+
+    @Test
+    void onRatingChanged_ActivityOutranksSingleHighRating() {
+        // Act: film 3 krijgt vier keer een 4, dus meer activiteit dan film 1
+        for (int i = 0; i < 4; i++) {
+            trendingService.onRatingChanged(written(3L, 4, at(Duration.ofMinutes(1))));
+        }
+        trendingService.onRatingChanged(RatingChangedEvent.deleted(9L, 1L, 1L, 5));
+
+        // Assert: een delete haalt activiteit niet terug
+        List<LeaderboardEntryDTO> hour = trendingService.getTrending(TrendingService.Window.HOUR, 10);
+        assertEquals(List.of(3L, 1L), hour.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(2, hour.get(1).getRatingCount());
+        assertEquals("Busy", hour.get(0).getName());
+        verify(movieRepository, never()).findById(any());
+    }
+
+    @Test
+    void load_EventsBeforeTheBackfillAreCountedOnce() {
+        // Arrange: een request van voor ApplicationReadyEvent schreef een rating die de backfill ook ziet
+        TrendingService starting = new TrendingService();
+        ReflectionTestUtils.setField(starting, "enabled", true);
+        ReflectionTestUtils.setField(starting, "movieRatingsRepository", movieRatingsRepository);
+        ReflectionTestUtils.setField(starting, "movieRepository", movieRepository);
+        ReflectionTestUtils.setField(starting, "clock", Clock.fixed(NOW, ZoneOffset.UTC));
+        starting.onRatingChanged(written(1L, 3, at(Duration.ofMinutes(10))));
+        doAnswer(invocation -> {
+            MovieRatingsRepository.WrittenRatingConsumer consumer = invocation.getArgument(2);
+            consumer.accept(1L, 5, at(Duration.ofMinutes(30)));
+            consumer.accept(1L, 5, at(Duration.ofMinutes(35)));
+            consumer.accept(1L, 3, at(Duration.ofMinutes(10)));
+            return null;
+        }).when(movieRatingsRepository).forEachRatingWrittenSince(any(), eq(Set.of(1L)), any());
+
+        // Act
+        assertFalse(starting.isServing());
+        starting.load();
+
+        // Assert: drie writes voor film 1, niet vier
+        List<LeaderboardEntryDTO> hour = starting.getTrending(TrendingService.Window.HOUR, 10);
+        assertTrue(starting.isServing());
+        assertEquals(List.of(1L), hour.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(3, hour.get(0).getRatingCount());
+        assertEquals("Recent Hit", hour.get(0).getName());
+    }
+
+    @Test
+    void getTrending_BucketsExpireAsTheClockMoves() {
+        // Act: twee uur later is het uur leeg, de dag nog niet
+        setClock(NOW.plus(Duration.ofHours(2)));
+        trendingService.onRatingChanged(written(2L, 3, at(Duration.ofHours(-2))));
+
+        // Assert
+        List<LeaderboardEntryDTO> hour = trendingService.getTrending(TrendingService.Window.HOUR, 10);
+        assertEquals(List.of(2L), hour.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(1, hour.get(0).getRatingCount());
+        List<LeaderboardEntryDTO> day = trendingService.getTrending(TrendingService.Window.DAY, 10);
+        assertEquals(List.of(1L, 2L), day.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertEquals(2, day.get(1).getRatingCount());
+        assertEquals(2.5, day.get(1).getAverageRating());
+
+        // Acht dagen later is ook de week leeg
+        setClock(NOW.plus(Duration.ofDays(8)));
+        assertTrue(trendingService.getTrending(TrendingService.Window.WEEK, 10).isEmpty());
+    }
+
+    @Test
+    void onMovieChanged_DeletedMovieLeavesTheChart() {
+        // Act
+        trendingService.onMovieChanged(MovieChangedEvent.deleted(1L));
+
+        // Assert
+        List<LeaderboardEntryDTO> week = trendingService.getTrending(TrendingService.Window.WEEK, 10);
+        assertEquals(List.of(2L), week.stream().map(LeaderboardEntryDTO::getMovieId).toList());
+        assertThrows(IllegalArgumentException.class, () -> TrendingService.Window.parse("2h"));
+        assertEquals(TrendingService.Window.WEEK, TrendingService.Window.parse("7d"));
+    }
+
+    private void setClock(Instant instant) {
+        ReflectionTestUtils.setField(trendingService, "clock", Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    // Tijdstip 'ago' voor NOW (negatief: na NOW)
+    private static LocalDateTime at(Duration ago) {
+        return LocalDateTime.ofInstant(NOW.minus(ago), ZoneOffset.UTC);
+    }
+
+    private static RatingChangedEvent written(Long movieId, int value, LocalDateTime at) {
+        return new RatingChangedEvent(1L, 1L, "user", movieId, null, value, null, at);
+    }
+}
@@ -1,14 +1,19 @@
 package com.example.demo.unit;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.UserService;
+import com.example.demo.service.UsernameAvailabilityService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
@@ -28,6 +33,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UsernameAvailabilityService usernameAvailabilityService;
+
     @InjectMocks
     private UserService userService;
 
@@ -41,10 +49,10 @@ class UserServiceTest {
 
     @Test
     void registerUser_Success() {
-        // Arrange
-        when(userRepository.existsByUsername("testuser")).thenReturn(false);
+        // Arrange: Bloom filter zegt zeker vrij, dus geen pre-query
+        when(usernameAvailabilityService.mightBeTaken("testuser")).thenReturn(false);
         when(passwordEncoder.encode("password123")).thenReturn("hashedPassword123");
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(testUser);
 
         // Act
         User result = userService.registerUser(testUser);
@@ -52,14 +60,16 @@ class UserServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals("testuser", result.getUsername());
-        verify(userRepository).existsByUsername("testuser");
+        verify(userRepository, never()).existsByUsername(anyString());
         verify(passwordEncoder).encode("password123");
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(usernameAvailabilityService).onUsernameAdded("testuser");
     }
 
     @Test
     void registerUser_UsernameAlreadyExists_ThrowsException() {
         // Arrange
+        when(usernameAvailabilityService.mightBeTaken("testuser")).thenReturn(true);
         when(userRepository.existsByUsername("testuser")).thenReturn(true);
 
         // Act & Assert
@@ -70,7 +80,23 @@ class UserServiceTest {
         assertEquals("Username is already taken", exception.getMessage());
         verify(userRepository).existsByUsername("testuser");
         verify(passwordEncoder, never()).encode(anyString());
-        verify(userRepository, never()).save(any());
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void registerUser_UniqueConstraintViolated_ThrowsException() {
+        // Arrange: een gelijktijdige registratie won de race
+        when(usernameAvailabilityService.mightBeTaken("testuser")).thenReturn(false);
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword123");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.registerUser(testUser);
+        });
+
+        assertEquals("Username is already taken", exception.getMessage());
+        verify(usernameAvailabilityService, never()).onUsernameAdded(anyString());
     }
 
     @Test
@@ -123,46 +149,63 @@ class UserServiceTest {
     }
 
     @Test
-    void getAllUsers_Success() {
+    void getUserPage_ReturnsSummariesAndCursor() {
         // Arrange
-        List<User> users = List.of(testUser);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findSummariesAfter(0L, Limit.of(3))).thenReturn(List.of(
+            new UserSummaryDTO(1L, "testuser"), new UserSummaryDTO(2L, "jacco"), new UserSummaryDTO(5L, "maccoe")));
 
         // Act
-        List<User> result = userService.getAllUsers();
+        CursorPage<UserSummaryDTO> result = userService.getUserPage(null, 2);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(userRepository).findAll();
+        assertEquals(2, result.getItems().size());
+        assertEquals(CursorPage.encodeCursor(2L), result.getNextCursor());
+        verify(userRepository, never()).findAll();
     }
 
     @Test
     void getUserByUsername_Success() {
         // Arrange
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userRepository.findSummaryByUsername("testuser"))
+            .thenReturn(Optional.of(new UserSummaryDTO(1L, "testuser")));
 
         // Act
-        Optional<User> result = userService.getUserByUsername("testuser");
+        Optional<UserSummaryDTO> result = userService.getUserByUsername("testuser");
 
         // Assert
         assertTrue(result.isPresent());
         assertEquals("testuser", result.get().getUsername());
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository, never()).findByUsername(any());
     }
 
     @Test
     void deleteUserById_Success() {
         // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.lockForDelete(1L)).thenReturn(Optional.of(1L));
+        when(userRepository.markDeleted(1L)).thenReturn(1);
 
         // Act
         boolean result = userService.deleteUserById(1L);
 
-        // Assert
+        // Assert: alleen de tombstone, de rij zelf ruimt PurgeService op
         assertTrue(result);
-        verify(userRepository).findById(1L);
-        verify(userRepository).deleteById(1L);
+        verify(userRepository).markDeleted(1L);
+        verify(userRepository, never()).deleteById(any());
+        verify(usernameAvailabilityService).onUsernameRemoved();
+    }
+
+    @Test
+    void deleteUserById_NotFound_ReturnsFalse() {
+        // Arrange
+        when(userRepository.lockForDelete(99L)).thenReturn(Optional.empty());
+
+        // Act
+        boolean result = userService.deleteUserById(99L);
+
+        // Assert
+        assertFalse(result);
+        verify(userRepository, never()).markDeleted(any());
+        verify(usernameAvailabilityService, never()).onUsernameRemoved();
     }
 
     @Test
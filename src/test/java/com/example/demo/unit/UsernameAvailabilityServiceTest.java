@@ -0,0 +1,113 @@
+package com.example.demo.unit;
+
+import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserSearchRepository;
+import com.example.demo.service.UsernameAvailabilityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UsernameAvailabilityServiceTest {
+
+    private static final int USERS = 10_000;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserSearchRepository userSearchRepository;
+
+    @InjectMocks
+    private UsernameAvailabilityService usernameAvailabilityService;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.count()).thenReturn((long) USERS);
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            for (int i = 0; i < USERS; i++) {
+                consumer.accept("user" + i);
+            }
+            return null;
+        }).when(userSearchRepository).forEachUsername(any());
+        usernameAvailabilityService.load();
+    }
+
+    @Test
+    void isAvailable_UnknownName_AnsweredWithoutDatabase() {
+        // Act & Assert: elke bestaande naam is "misschien", bijna alle onbekende namen zeker vrij
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(usernameAvailabilityService.mightBeTaken("user" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < USERS; i++) {
+            if (usernameAvailabilityService.mightBeTaken("free" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < USERS / 50, "false positives: " + falsePositives);
+
+        assertTrue(usernameAvailabilityService.isAvailable("brandnewname"));
+        verify(userRepository, never()).existsByUsername("brandnewname");
+    }
+
+    @Test
+    void isAvailable_MaybeTaken_AsksDatabase() {
+        // Arrange
+        when(userRepository.existsByUsername("user42")).thenReturn(true);
+
+        // Act & Assert
+        assertFalse(usernameAvailabilityService.isAvailable("user42"));
+        verify(userRepository).existsByUsername("user42");
+    }
+
+    @Test
+    void onUsernameAdded_NameIsNoLongerDefinitelyFree() {
+        // Act
+        usernameAvailabilityService.onUsernameAdded("justregistered");
+
+        // Assert
+        assertTrue(usernameAvailabilityService.mightBeTaken("justregistered"));
+    }
+
+    @Test
+    void onUsernameAdded_DuringRebuild_SurvivesTheSwap() {
+        // Arrange: een registratie komt binnen terwijl de rebuild nog namen streamt
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("user1");
+            usernameAvailabilityService.onUsernameAdded("midbuild");
+            return null;
+        }).when(userSearchRepository).forEachUsername(any());
+
+        // Act
+        usernameAvailabilityService.rebuild();
+
+        // Assert
+        assertTrue(usernameAvailabilityService.mightBeTaken("midbuild"));
+        assertTrue(usernameAvailabilityService.mightBeTaken("user1"));
+    }
+
+    @Test
+    void rebuildIfStale_OnlyAfterRemovals() {
+        // Act
+        usernameAvailabilityService.rebuildIfStale();
+        usernameAvailabilityService.onUsernameRemoved();
+        usernameAvailabilityService.rebuildIfStale();
+
+        // Assert: de startup load plus één rebuild
+        verify(userSearchRepository, times(2)).forEachUsername(any());
+        verify(userRepository, never()).existsByUsername(anyString());
+    }
+}